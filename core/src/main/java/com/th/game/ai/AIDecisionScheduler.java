@@ -0,0 +1,137 @@
+package com.th.game.ai;
+
+import com.th.game.util.DecisionEvent;
+
+/**
+ * Decides when the AI may re-evaluate its high-level target.
+ * <p>
+ * Target selection runs right after a {@link DecisionEvent}, and otherwise only once
+ * per tick interval instead of every frame. The scheduler also counts decisions and
+ * path replans, averaged over the last second, so the effect of throttling can be
+ * watched at runtime.
+ */
+public class AIDecisionScheduler {
+    /** Default time between decisions when no event arrives, in seconds; see {@code GameSettings.aiDecisionInterval}. */
+    public static final float DEFAULT_TICK_INTERVAL = 0.5f;
+
+    private static final float RATE_WINDOW = 1f;
+
+    private float tickInterval = DEFAULT_TICK_INTERVAL;
+    private float sinceLastDecision;
+    private float decisionDelta;
+    private DecisionEvent pendingEvent;
+    private DecisionEvent decisionEvent;
+    private boolean firstDecision = true;
+
+    private long decisionCount;
+    private long replanCount;
+    private float windowTime;
+    private int windowDecisions;
+    private int windowReplans;
+    private float decisionsPerSecond;
+    private float replansPerSecond;
+
+    /**
+     * Requests a decision on the next update. If several events arrive in one frame,
+     * the last one is reported.
+     *
+     * @param event what happened
+     */
+    public void post(DecisionEvent event) {
+        pendingEvent = event;
+    }
+
+    /**
+     * Advances the timers. Call once per frame.
+     *
+     * @param delta frame time in seconds
+     * @return {@code true} if the AI should re-evaluate its target this frame
+     */
+    public boolean update(float delta) {
+        sinceLastDecision += delta;
+        windowTime += delta;
+        if (windowTime >= RATE_WINDOW) {
+            decisionsPerSecond = windowDecisions / windowTime;
+            replansPerSecond = windowReplans / windowTime;
+            windowTime = 0f;
+            windowDecisions = 0;
+            windowReplans = 0;
+        }
+
+        if (pendingEvent == null && !firstDecision && sinceLastDecision < tickInterval) {
+            return false;
+        }
+        decisionEvent = pendingEvent;
+        pendingEvent = null;
+        firstDecision = false;
+        decisionDelta = sinceLastDecision;
+        sinceLastDecision = 0f;
+        decisionCount++;
+        windowDecisions++;
+        return true;
+    }
+
+    /**
+     * Counts a path search requested by the AI.
+     */
+    public void recordReplan() {
+        replanCount++;
+        windowReplans++;
+    }
+
+    /**
+     * @return the event behind the current decision, or {@code null} if it is a regular tick
+     */
+    public DecisionEvent getDecisionEvent() {
+        return decisionEvent;
+    }
+
+    /**
+     * @return time since the previous decision; pass it on so timers in the decision logic stay correct
+     */
+    public float getDecisionDelta() {
+        return decisionDelta;
+    }
+
+    /**
+     * @param tickInterval seconds between decisions when no event arrives
+     */
+    public void setTickInterval(float tickInterval) {
+        this.tickInterval = tickInterval;
+    }
+
+    /**
+     * @return seconds between decisions when no event arrives
+     */
+    public float getTickInterval() {
+        return tickInterval;
+    }
+
+    /**
+     * @return total number of decisions
+     */
+    public long getDecisionCount() {
+        return decisionCount;
+    }
+
+    /**
+     * @return total number of path searches requested
+     */
+    public long getReplanCount() {
+        return replanCount;
+    }
+
+    /**
+     * @return decisions per second over the last full second
+     */
+    public float getDecisionsPerSecond() {
+        return decisionsPerSecond;
+    }
+
+    /**
+     * @return path searches requested per second over the last full second
+     */
+    public float getReplansPerSecond() {
+        return replansPerSecond;
+    }
+}
@@ -0,0 +1,42 @@
+package com.th.game.ai;
+
+import com.th.game.ai.pathfinder.NavigationData;
+import com.th.game.ai.pathfinder.PathRequestService;
+import com.th.game.entities.Landmark;
+
+import java.util.List;
+
+/**
+ * What {@link SmartAI} reads from the game each frame. The game screen implements it;
+ * tests can pass a plain implementation without a screen or a GL context.
+ */
+public interface AIWorld {
+    /**
+     * @return the shared navigation graph and tables of the current map
+     */
+    NavigationData getNavigationData();
+
+    /**
+     * @return the path request service shared by every AI on the map
+     */
+    PathRequestService getPathRequests();
+
+    /**
+     * @return the hint currently shown to the player, or an empty string
+     */
+    String getCurrentHint();
+
+    /**
+     * @return the landmarks of the current map
+     */
+    List<Landmark> getLandmarks();
+
+    /**
+     * Determines if the given world position is free for movement.
+     *
+     * @param x world x-coordinate in pixels
+     * @param y world y-coordinate in pixels
+     * @return {@code true} if it’s within bounds, on a walkable tile, and not blocked
+     */
+    boolean isWalkable(float x, float y);
+}
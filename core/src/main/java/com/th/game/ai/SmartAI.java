@@ -2,21 +2,29 @@ package com.th.game.ai;
 
 import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
 import com.badlogic.gdx.ai.pfa.GraphPath;
-import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
 import com.badlogic.gdx.ai.steer.Steerable;
 import com.badlogic.gdx.ai.utils.Location;
 import com.badlogic.gdx.maps.tiled.TiledMap;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
 import com.th.game.extenders.ai.HistoricalAIData;
 import com.th.game.entities.Landmark;
 import com.th.game.util.AIState;
+import com.th.game.util.DecisionEvent;
 import com.th.game.util.Direction;
-import com.th.game.ai.pathfinder.MapHeuristic;
+import com.th.game.util.PathSmoothing;
+import com.th.game.util.PathfinderType;
+import com.th.game.util.RefreshCause;
+import com.th.game.ai.pathfinder.AgentNavigationState;
+import com.th.game.ai.pathfinder.NavigationData;
+import com.th.game.ai.pathfinder.PathCache;
+import com.th.game.ai.pathfinder.PathRequestService;
+import com.th.game.ai.pathfinder.PathfindingStats;
+import com.th.game.ai.pathfinder.PathSmoother;
 import com.th.game.ai.pathfinder.TiledMapGraph;
 import com.th.game.ai.pathfinder.TiledNode;
-import com.th.game.screens.GameScreen;
 
 import java.util.List;
 
@@ -46,14 +54,28 @@ public class SmartAI implements Steerable<Vector2> {
 
     // Path finding
     private TiledMapGraph mapGraph;
-    private IndexedAStarPathFinder<TiledNode> pathFinder;
+    private PathRequestService pathRequests;
+    // One instance, so the shared service can tell this AI's requests apart
+    private final PathRequestService.Callback pathCallback = this::onPathReady;
+    private AgentNavigationState navigationState;
+    private PathSmoothing pathSmoothing = PathSmoothing.NONE;
+    private PathSmoother pathSmoother;
+    private boolean pathRequestPending = false;
+    private final Vector2 requestedTarget = new Vector2();
+    private final Vector2 targetScratch = new Vector2();
+    private int pathCacheGraphVersion;
+    private final PathCache pathCache = new PathCache();
+    private final GraphPath<TiledNode> cachedPath = new DefaultGraphPath<>();
     private GraphPath<TiledNode> currentPath;
     private int currentPathIndex;
     private Vector2 targetPosition = new Vector2();
     public boolean hasTarget = false;
     private boolean pathNeedsRefresh = false;
+    private RefreshCause refreshCause = RefreshCause.NEW_TARGET;
+    private final PathfindingStats stats = new PathfindingStats();
     private float pathRefreshTimer = 0f;
     private final float PATH_REFRESH_INTERVAL = 1.5f;
+    private final float INCREMENTAL_PATH_REFRESH_INTERVAL = 0.5f;
 
     // Steering behavior
     private float maxLinearSpeed = 100f;
@@ -67,11 +89,21 @@ public class SmartAI implements Steerable<Vector2> {
     private static final float STUCK_THRESHOLD = 1.0f;
     private int repathAttempts = 0;
     private static final int MAX_REPATH_ATTEMPTS = 3;
+    private static final int MAX_RANDOM_TARGET_ATTEMPTS = 8;
+    private static final float SAME_TARGET_EPSILON = 1f;
 
 
     private AIState currentState = AIState.EXPLORING;
+    private final AIDecisionScheduler decisionScheduler = new AIDecisionScheduler();
     private HistoricalAIData databaseManager;
-    private Array<Vector2> pathVisualizer = new Array<>();
+    private final Array<Vector2> pathVisualizer = new Array<>();
+    // Points of a replaced path are reused for the next one
+    private final Pool<Vector2> pathPointPool = new Pool<Vector2>() {
+        @Override
+        protected Vector2 newObject() {
+            return new Vector2();
+        }
+    };
 
     /**
      * Creates a new AI with advanced pathfinding capabilities
@@ -87,32 +119,108 @@ public class SmartAI implements Steerable<Vector2> {
     }
 
     /**
-     * Scans the walkable areas of the map and initializes the pathfinding graph
+     * Attaches the AI to the shared navigation data and path request service of the map and resets its
+     * exploration state
+     */
+    public void scanWalkableAreas(AIWorld world, TiledMap tiledMap) {
+        NavigationData navigationData = world.getNavigationData();
+        if (mapGraph != navigationData.getGraph()) {
+            // The graph and heuristic tables are shared by every AI on this map
+            mapGraph = navigationData.getGraph();
+            pathSmoother = new PathSmoother(navigationData.getWalkabilityGrid());
+
+            // Cached node indices belong to the old graph
+            pathCache.clear();
+            pathCacheGraphVersion = mapGraph.getVersion();
+        }
+        if (pathRequests != world.getPathRequests()) {
+            // Searches are queued on the screen's service, which runs them for every AI
+            if (pathRequests != null) {
+                pathRequests.cancel(pathCallback);
+            }
+            pathRequests = world.getPathRequests();
+            pathRequestPending = false;
+        }
+        navigationState = new AgentNavigationState(mapGraph);
+    }
+
+    /**
+     * Selects how found paths are reduced to waypoints before the AI follows them
+     *
+     * @param pathSmoothing the smoothing applied from the next path on
      */
-    public void scanWalkableAreas(GameScreen gameScreen, TiledMap tiledMap) {
-        // Create the map graph for pathfinding
-        mapGraph = new TiledMapGraph(gameScreen, tiledMap);
-        mapGraph.buildGraph();
+    public void setPathSmoothing(PathSmoothing pathSmoothing) {
+        this.pathSmoothing = pathSmoothing;
+    }
 
-        // Create the pathfinder
-        pathFinder = new IndexedAStarPathFinder<>(mapGraph, true);
+    /**
+     * Drops this AI's pending path requests and abandons a pending hotspot load. The shared navigation
+     * data and path request service are left alone.
+     */
+    public void dispose() {
+        if (pathRequests != null) {
+            pathRequests.cancel(pathCallback);
+            pathRequests = null;
+        }
+        if (databaseManager != null) {
+            databaseManager.dispose();
+        }
     }
 
     /**
      * Sets a new target position for the AI to move towards
+     *
+     * @return {@code false} if the target cannot be reached from where the AI stands; the current target is kept
      */
 
-    public void setTarget(Vector2 targetPos, boolean seekMode) {
+    public boolean setTarget(Vector2 targetPos, boolean seekMode) {
         // clamp the incoming position to one‐tile margin
-        Vector2 safePos = clampInside(targetPos.cpy());
+        Vector2 safePos = clampInside(targetScratch.set(targetPos));
+
+        // Targets on walls (e.g. hint offsets) move to the nearest walkable tile
+        if (mapGraph.getNodeAtWorldCoordinates(safePos.x, safePos.y) == null) {
+            TiledNode nearestNode = mapGraph.getNearestNode(safePos.x, safePos.y);
+            if (nearestNode != null) {
+                safePos.set(nearestNode.x, nearestNode.y);
+            }
+        }
+
+        // A goal in another enclosed area would only make the search exhaust our own area
+        if (!isReachable(safePos)) {
+            return false;
+        }
+
+        // Re-selecting the current target must not trigger another search
+        if (hasTarget && targetPosition.epsilonEquals(safePos, SAME_TARGET_EPSILON)) {
+            if (seekMode) {
+                this.currentState = AIState.SEEKING;
+            }
+            return true;
+        }
 
         this.targetPosition.set(safePos);
         this.hasTarget = true;
         this.pathNeedsRefresh = true;
+        this.refreshCause = RefreshCause.NEW_TARGET;
 
         if (seekMode) {
             this.currentState = AIState.SEEKING;
         }
+        return true;
+    }
+
+    /**
+     * Checks in constant time whether a path exists from the AI's position to a world position
+     *
+     * @param worldPos the position to test; positions off the graph count as their nearest walkable tile
+     * @return {@code true} if both positions are in the same connected area of the map
+     */
+    public boolean isReachable(Vector2 worldPos) {
+        if (mapGraph == null) return false;
+
+        TiledNode from = mapGraph.getNearestNode(position.x, position.y);
+        TiledNode to = mapGraph.getNearestNode(worldPos.x, worldPos.y);
+        return from != null && to != null && mapGraph.isConnected(from, to);
     }
 
     /**
@@ -127,12 +235,17 @@ public class SmartAI implements Steerable<Vector2> {
     /**
      * Updates the AI's position and behavior
      */
-    public void update(float delta, GameScreen gameScreen) {
-        boolean targetUpdated = databaseManager.updateAITarget(
-            delta,
-            gameScreen.getCurrentHint(),
-            gameScreen.getLandmarks()
-        );
+    public void update(float delta, AIWorld world) {
+        // High-level targets are re-evaluated on events or on the scheduler's tick, not every frame
+        boolean targetUpdated = false;
+        if (decisionScheduler.update(delta)) {
+            targetUpdated = databaseManager.updateAITarget(
+                decisionScheduler.getDecisionDelta(),
+                world.getCurrentHint(),
+                world.getLandmarks(),
+                decisionScheduler.getDecisionEvent() != null
+            );
+        }
         if (hasTarget) {
             if (!movedThisFrame) {
                 stuckTimer += delta;
@@ -141,7 +254,7 @@ public class SmartAI implements Steerable<Vector2> {
             }
 
             if (stuckTimer > STUCK_THRESHOLD) {
-                onStuck(gameScreen);
+                onStuck(world);
                 stuckTimer = 0f;
             }
         }
@@ -149,7 +262,7 @@ public class SmartAI implements Steerable<Vector2> {
         previousPosition.set(position);
 
         if (stuckTimer > STUCK_THRESHOLD) {
-            onStuck(gameScreen);
+            onStuck(world);
             stuckTimer = 0f;
         }
 
@@ -165,9 +278,13 @@ public class SmartAI implements Steerable<Vector2> {
 
         //  PATH REFRESH LOGIC ---
         pathRefreshTimer += delta;
-        if ((pathNeedsRefresh || pathRefreshTimer > PATH_REFRESH_INTERVAL) && hasTarget) {
+        // Incremental repairs are cheap enough to refresh more often
+        float refreshInterval = pathRequests.getPathfinderType() == PathfinderType.INCREMENTAL
+            ? INCREMENTAL_PATH_REFRESH_INTERVAL : PATH_REFRESH_INTERVAL;
+        if ((pathNeedsRefresh || pathRefreshTimer > refreshInterval) && hasTarget) {
+            stats.recordRefresh(pathNeedsRefresh ? refreshCause : RefreshCause.INTERVAL);
             snapToValidNode();
-            findPathToTarget(gameScreen);
+            findPathToTarget(world);
             pathRefreshTimer = 0f;
             pathNeedsRefresh = false;
         }
@@ -176,32 +293,32 @@ public class SmartAI implements Steerable<Vector2> {
         if (!hasTarget && !targetUpdated) {
             switch (currentState) {
                 case ROAMING:
-                    findRandomTarget(gameScreen);
+                    findRandomTarget(world);
                     break;
                 case EXPLORING:
-                    findExplorationTarget(gameScreen);
+                    findExplorationTarget(world);
                     break;
                 case SEEKING:
                     // If seeking but no target, revert to exploring
                     if (!hasTarget) {
                         currentState = AIState.EXPLORING;
-                        findExplorationTarget(gameScreen);
+                        findExplorationTarget(world);
                     }
                     break;
             }
         }
 
         // MOVE ALONG CURRENT PATH
-        moveAlongPath(delta, gameScreen);
+        moveAlongPath(delta, world);
 
         // UPDATE VISUAL FACING DIRECTION
         updateDirection(delta);
     }
     /**
-     * Clamps a position to stay within the map boundaries.
+     * Clamps a position to stay within the map boundaries, in place.
      *
      * @param pos the world coordinates to clamp
-     * @return the clamped position vector
+     * @return {@code pos}, clamped
      */
     private Vector2 clampInside(Vector2 pos) {
         // Grab map and tile dims from your graph
@@ -223,7 +340,7 @@ public class SmartAI implements Steerable<Vector2> {
     /**
      * On AI stuck: clear path, snap to a valid node, pick a new target, reset velocity.
      */
-    private void onStuck(GameScreen gameScreen) {
+    private void onStuck(AIWorld world) {
         repathAttempts++;
         snapToValidNode();
         currentPath.clear();
@@ -233,10 +350,12 @@ public class SmartAI implements Steerable<Vector2> {
         // Pick a fresh goal
         if (repathAttempts >= MAX_REPATH_ATTEMPTS) {
             repathAttempts = 0;
-            findRandomTarget(gameScreen);
+            findRandomTarget(world);
         } else {
-            findExplorationTarget(gameScreen);
+            findExplorationTarget(world);
         }
+        refreshCause = RefreshCause.STUCK;
+        decisionScheduler.post(DecisionEvent.STUCK);
 
         // Reset velocity again just in case
         linearVelocity.setZero();
@@ -248,13 +367,14 @@ public class SmartAI implements Steerable<Vector2> {
     /**
      * Finds a path to the current target
      */
-    private void findPathToTarget(GameScreen gameScreen) {
+    private void findPathToTarget(AIWorld world) {
         //  Bail out if there’s no target or the graph isn’t built yet
         if (!hasTarget || mapGraph == null) return;
 
         // If we’re already very close to the target, clear it and stop
         if (position.dst(targetPosition) < 32f) {
             hasTarget = false;
+            decisionScheduler.post(DecisionEvent.TARGET_REACHED);
             return;
         }
 
@@ -268,50 +388,87 @@ public class SmartAI implements Steerable<Vector2> {
         // Remember how far we were last time
         lastDistanceToTarget = position.dst(targetPosition);
 
-        // Clear out the old path & any debug visualization
-        currentPath.clear();
-        pathVisualizer.clear();
-
-        // Find the start/end nodes on the grid
-        TiledNode startNode = mapGraph.getNodeAtWorldCoordinates(position.x, position.y);
-        TiledNode endNode   = mapGraph.getNodeAtWorldCoordinates(targetPosition.x, targetPosition.y);
+        // Find the start/end nodes on the grid; off-grid positions use the nearest walkable tile
+        TiledNode startNode = mapGraph.getNearestNode(position.x, position.y);
+        TiledNode endNode   = mapGraph.getNearestNode(targetPosition.x, targetPosition.y);
 
         if (startNode != null && endNode != null) {
-            // Run A* search into currentPath
-            MapHeuristic heuristic = new MapHeuristic();
-            pathFinder.searchNodePath(startNode, endNode, heuristic, currentPath);
-
-            // Reset index so we start at the first node
-            currentPathIndex = 0;
-
-            // simple debug list of world‐space points
-            for (TiledNode node : currentPath) {
-                pathVisualizer.add(new Vector2(node.x, node.y));
+            if (pathCacheGraphVersion != mapGraph.getVersion()) {
+                // Node indices changed with the graph
+                pathCache.clear();
+                pathCacheGraphVersion = mapGraph.getVersion();
             }
 
-            System.out.println("Path found with " + currentPath.getCount() + " nodes");
+            // Reuse a cached path if possible, otherwise queue a search and keep
+            // following the old path until the result arrives
+            cachedPath.clear();
+            if (pathCache.get(mapGraph, startNode.index, endNode.index, cachedPath)) {
+                applyPath(cachedPath);
+            } else if (!pathRequestPending) {
+                pathRequestPending = true;
+                requestedTarget.set(targetPosition);
+                pathRequests.request(startNode, endNode, pathCallback);
+                decisionScheduler.recordReplan();
+            }
         } else {
-            // If either end is off‐grid, bail out
+            // Only happens when the map has no walkable tile at all
             System.out.println("Path finding failed – invalid start or end node");
             hasTarget = false;
         }
     }
+    /**
+     * Receives a finished search from the path request service
+     */
+    private void onPathReady(boolean found, GraphPath<TiledNode> path) {
+        pathRequestPending = false;
+        stats.recordSearch(found, pathRequests.getLastSearchNanos(), pathRequests.getLastVisitedNodes(), path.getCount());
+        if (!hasTarget || !requestedTarget.equals(targetPosition)) {
+            // The target changed while searching; ask again for the new one
+            pathNeedsRefresh = hasTarget;
+            return;
+        }
+        if (found) {
+            pathCache.put(path);
+        }
+        applyPath(path);
+    }
+
+    /**
+     * Replaces the current path and its debug visualization
+     */
+    private void applyPath(GraphPath<TiledNode> path) {
+        // Collapse straight runs (and optionally cut corners) so there are fewer waypoints to visit
+        pathSmoother.smooth(path, pathSmoothing, currentPath);
+        pathPointPool.freeAll(pathVisualizer);
+        pathVisualizer.clear();
+
+        // Reset index so we start at the first node
+        currentPathIndex = 0;
+
+        // simple debug list of world‐space points
+        for (TiledNode node : currentPath) {
+            pathVisualizer.add(pathPointPool.obtain().set(node.x, node.y));
+        }
+    }
+
     /**
      * Moves the AI along the current path
      */
-    private void moveAlongPath(float delta, GameScreen gameScreen) {
+    private void moveAlongPath(float delta, AIWorld world) {
         movedThisFrame = false;
         if (currentPath.getCount() == 0) return;
         if (currentPathIndex >= currentPath.getCount()) {
-            if (position.dst(targetPosition) < 32f) hasTarget = false;
+            if (position.dst(targetPosition) < 32f) {
+                hasTarget = false;
+                decisionScheduler.post(DecisionEvent.TARGET_REACHED);
+            }
             return;
         }
 
         //  Figure out which cardinal direction we _hould be heading
         TiledNode nextNode = currentPath.get(currentPathIndex);
-        Vector2 nextPos = new Vector2(nextNode.x, nextNode.y);
-        float dx = nextPos.x - position.x;
-        float dy = nextPos.y - position.y;
+        float dx = nextNode.x - position.x;
+        float dy = nextNode.y - position.y;
 
         Direction desiredMove;
         if (Math.abs(dx) > Math.abs(dy)) {
@@ -320,35 +477,43 @@ public class SmartAI implements Steerable<Vector2> {
             desiredMove = (dy > 0) ? Direction.UP : Direction.DOWN;
         }
 
-        // If we're not yet facing that way, just turn—no movement this frame
-        if (currentDirection != desiredMove) {
+        if (pathSmoothing == PathSmoothing.ANY_ANGLE) {
+            // Any-angle waypoints are followed in a straight line; the facing only drives the animation
             currentDirection = desiredMove;
-            linearVelocity.setZero();
-            return;
-        }
+            float distance = (float) Math.sqrt(dx * dx + dy * dy);
+            float speed = Math.min(moveSpeed, distance / Math.max(delta, 1e-6f));
+            linearVelocity.set(dx, dy).nor().scl(speed);
+        } else {
+            // If we're not yet facing that way, just turn—no movement this frame
+            if (currentDirection != desiredMove) {
+                currentDirection = desiredMove;
+                linearVelocity.setZero();
+                return;
+            }
 
-        // Now that we're facing correctly, compute our velocity vector
-        Vector2 moveVec = new Vector2(
-            (currentDirection == Direction.RIGHT ? 1 : (currentDirection == Direction.LEFT ? -1 : 0)),
-            (currentDirection == Direction.UP    ? 1 : (currentDirection == Direction.DOWN  ? -1 : 0))
-        );
-        linearVelocity.set(moveVec).scl(moveSpeed);
+            // Now that we're facing correctly, compute our velocity vector
+            linearVelocity.set(
+                (currentDirection == Direction.RIGHT ? 1 : (currentDirection == Direction.LEFT ? -1 : 0)),
+                (currentDirection == Direction.UP    ? 1 : (currentDirection == Direction.DOWN  ? -1 : 0))
+            ).scl(moveSpeed);
+        }
 
-        // Attempt to move (with walkability checks)
-        Vector2 oldPos     = new Vector2(position);
-        Vector2 proposed   = oldPos.cpy().add(linearVelocity.x * delta, linearVelocity.y * delta);
-        if (gameScreen.isWalkable(proposed)) {
-            position.set(proposed);
+        // Attempt to move (with walkability checks); plain floats so no vectors are allocated per frame
+        float oldX  = position.x;
+        float oldY  = position.y;
+        float stepX = linearVelocity.x * delta;
+        float stepY = linearVelocity.y * delta;
+        if (world.isWalkable(oldX + stepX, oldY + stepY)) {
+            position.set(oldX + stepX, oldY + stepY);
             movedThisFrame = true;
 
         } else {
             // fallback sliding
             for (float scale = 0.9f; scale >= 0.1f; scale -= 0.1f) {
-                Vector2 tryPos = oldPos.cpy()
-                    .add(linearVelocity.x * delta * scale,
-                        linearVelocity.y * delta * scale);
-                if (gameScreen.isWalkable(tryPos)) {
-                    position.set(proposed);
+                float tryX = oldX + stepX * scale;
+                float tryY = oldY + stepY * scale;
+                if (world.isWalkable(tryX, tryY)) {
+                    position.set(tryX, tryY);
                     movedThisFrame = true;
 
                     break;
@@ -357,11 +522,15 @@ public class SmartAI implements Steerable<Vector2> {
         }
 
         // Clamp inside map bounds
-        position.set(clampInside(position.cpy()));
+        clampInside(position);
 
+        // Tiles walked through no longer count as unexplored
+        if (movedThisFrame) {
+            navigationState.markNodeVisited(mapGraph.getNodeAtWorldCoordinates(position.x, position.y));
+        }
 
         // If we got close enough, advance to the next node
-        if (position.dst(nextPos) < 5f) {
+        if (position.dst(nextNode.x, nextNode.y) < 5f) {
             currentPathIndex++;
             linearVelocity.setZero();
             repathAttempts = 0;
@@ -406,27 +575,33 @@ public class SmartAI implements Steerable<Vector2> {
     /**
      * Finds a random target on the map
      */
-    private void findRandomTarget(GameScreen gameScreen) {
+    private void findRandomTarget(AIWorld world) {
         if (mapGraph == null) return;
 
-        TiledNode node = mapGraph.getRandomWalkableNode();
-        if (node != null) {
+        // A few draws, since a tile in another enclosed area is rejected
+        for (int attempt = 0; attempt < MAX_RANDOM_TARGET_ATTEMPTS; attempt++) {
+            TiledNode node = navigationState.getRandomWalkableNode();
             // centralizes clamping + flag‐setting
-            setTarget(new Vector2(node.x, node.y), false);
+            if (node != null && setTarget(targetScratch.set(node.x, node.y), false)) {
+                return;
+            }
         }
     }
 
     /**
      * Finds an exploration target, preferring unexplored areas
      */
-    private void findExplorationTarget(GameScreen gameScreen) {
+    private void findExplorationTarget(AIWorld world) {
         if (mapGraph == null) return;
 
-        TiledNode node = mapGraph.getUnexploredNode(position);
+        TiledNode node = navigationState.getUnexploredNode(position);
         if (node != null) {
-            setTarget(new Vector2(node.x, node.y), false);
+            if (!setTarget(targetScratch.set(node.x, node.y), false)) {
+                // Unreachable; take it off the frontier and pick again next frame
+                navigationState.markNodeVisited(node);
+            }
         } else {
-            findRandomTarget(gameScreen);
+            findRandomTarget(world);
         }
     }
 
@@ -452,6 +627,7 @@ public class SmartAI implements Steerable<Vector2> {
         // Reset target-seeking behavior
         hasTarget = false;
         currentState = AIState.EXPLORING;
+        decisionScheduler.post(DecisionEvent.TREASURE_COLLECTED);
     }
 
     /**
@@ -482,6 +658,7 @@ public class SmartAI implements Steerable<Vector2> {
 
             // We need to ensure the AI is in SEEKING state when a hint is processed
             this.currentState = AIState.SEEKING;
+            decisionScheduler.post(DecisionEvent.HINT_ISSUED);
         }
     }
 
@@ -496,28 +673,58 @@ public class SmartAI implements Steerable<Vector2> {
         return null;
     }
 
+    /**
+     * Copies the current target position without allocating
+     *
+     * @param out receives the target position
+     * @return {@code false} if the AI has no target, in which case {@code out} is unchanged
+     */
+    public boolean getTargetPosition(Vector2 out) {
+        if (hasTarget) {
+            out.set(targetPosition);
+        }
+        return hasTarget;
+    }
+
+    /**
+     * Gets the scheduler that throttles target decisions, for its decision and replan rates
+     */
+    public AIDecisionScheduler getDecisionScheduler() {
+        return decisionScheduler;
+    }
+
+    /**
+     * Gets how long the background load of historical hotspots took
+     *
+     * @return load time in milliseconds, or -1 until the hotspots have been swapped in
+     */
+    public long getHotspotLoadMillis() {
+        return databaseManager.getHotspotLoadMillis();
+    }
+
+    /**
+     * Gets the search counters and histograms collected since the AI was created
+     */
+    public PathfindingStats getPathfindingStats() {
+        return stats;
+    }
+
+    /**
+     * Gets the cache of found paths, for its hit and miss counters
+     */
+    public PathCache getPathCache() {
+        return pathCache;
+    }
+
     /**
      * Ensures the AI is positioned on a valid grid node.
      * <p>If the current world coordinates don’t map to a node, this finds the closest
      * walkable node and snaps the AI’s position to it.</p>
      */
     private void snapToValidNode() {
-        // Get the AI's current grid position
-        TiledNode currentNode = mapGraph.getNodeAtWorldCoordinates(position.x, position.y);
-
-        if (currentNode == null) {
-            // Find the closest valid node
-            TiledNode nearestNode = null;
-            float minDistance = Float.MAX_VALUE;
-
-            for (TiledNode node : mapGraph.getWalkableNodes()) {
-                float dist = Vector2.dst(position.x, position.y, node.x, node.y);
-                if (dist < minDistance) {
-                    minDistance = dist;
-                    nearestNode = node;
-                }
-            }
-
+        if (mapGraph.getNodeAtWorldCoordinates(position.x, position.y) == null) {
+            // Precomputed per cell, so this is a single lookup
+            TiledNode nearestNode = mapGraph.getNearestNode(position.x, position.y);
             if (nearestNode != null) {
                 position.set(nearestNode.x, nearestNode.y);
             }
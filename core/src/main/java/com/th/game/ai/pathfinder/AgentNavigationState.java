@@ -0,0 +1,102 @@
+package com.th.game.ai.pathfinder;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+
+import java.util.Random;
+
+/**
+ * Navigation state that belongs to a single agent: which tiles it has explored and
+ * its own random source. Kept apart from {@link TiledMapGraph} so the graph can be
+ * shared read-only by every agent on the same map.
+ * <p>
+ * Explored tiles are tracked by an {@link ExplorationFrontier}, so marking a tile,
+ * picking an exploration target and clearing the history allocate nothing and do not
+ * scan the whole map. The frontier is rebuilt if the graph's walkability changes.
+ */
+public class AgentNavigationState {
+    private final TiledMapGraph graph;
+    private final Random random = new Random();
+    private ExplorationFrontier frontier;
+    private int frontierVersion;
+
+    /**
+     * Creates fresh exploration state over a shared graph.
+     *
+     * @param graph the shared navigation graph
+     */
+    public AgentNavigationState(TiledMapGraph graph) {
+        this.graph = graph;
+        this.frontier = new ExplorationFrontier(graph);
+        this.frontierVersion = graph.getVersion();
+    }
+
+    /**
+     * @return the graph this state refers to
+     */
+    public TiledMapGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns a random walkable node, excluding border tiles.
+     *
+     * @return a random TiledNode
+     */
+    public TiledNode getRandomWalkableNode() {
+        int cell = frontier().pickAny(random);
+        return cell == -1 ? graph.getRandomWalkableNode(random) : nodeAt(cell);
+    }
+
+    /**
+     * Marks a node as visited for unexplored-area tracking.
+     *
+     * @param node the node to mark
+     */
+    public void markNodeVisited(TiledNode node) {
+        if (node != null) {
+            frontier().markVisited(node.gridY * graph.getWidth() + node.gridX);
+        }
+    }
+
+    /**
+     * Finds an unexplored node, preferring those farthest from current.
+     * Resets visited status if most nodes are explored.
+     *
+     * @param currentPosition current world position
+     * @return an unexplored TiledNode
+     */
+    public TiledNode getUnexploredNode(Vector2 currentPosition) {
+        markNodeVisited(graph.getNodeAtWorldCoordinates(currentPosition.x, currentPosition.y));
+
+        ExplorationFrontier frontier = frontier();
+        if (frontier.getUnvisitedCount() < graph.getNodeCount() * 0.2f) {
+            resetVisitedStatus();
+            return getRandomWalkableNode();
+        }
+        int gridX = MathUtils.clamp((int) (currentPosition.x / graph.getTileWidth()), 0, graph.getWidth() - 1);
+        int gridY = MathUtils.clamp((int) (currentPosition.y / graph.getTileHeight()), 0, graph.getHeight() - 1);
+        int cell = frontier.pickFar(gridX, gridY, random);
+        return cell == -1 ? null : nodeAt(cell);
+    }
+
+    /**
+     * Resets visitation status for all nodes.
+     */
+    public void resetVisitedStatus() {
+        frontier().reset();
+    }
+
+    private ExplorationFrontier frontier() {
+        if (frontierVersion != graph.getVersion()) {
+            // Tiles were opened or blocked; start over on the new layout
+            frontier = new ExplorationFrontier(graph);
+            frontierVersion = graph.getVersion();
+        }
+        return frontier;
+    }
+
+    private TiledNode nodeAt(int cell) {
+        return graph.getNode(graph.getNodeIndexForCell(cell));
+    }
+}
@@ -0,0 +1,199 @@
+package com.th.game.ai.pathfinder;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The interior walkable tiles an agent has not visited yet, grouped into square blocks.
+ * <p>
+ * Each block owns a contiguous range of one cell array, partitioned in place: unvisited
+ * cells first, visited cells after them. Marking a tile visited is a single swap. A
+ * "far unexplored tile" query ranks blocks by their distance from the agent instead of
+ * sorting tiles, so it costs one pass over the blocks. Clearing all visits only bumps a
+ * generation counter; each block restores its partition lazily the next time it is
+ * touched. Nothing is allocated after construction.
+ */
+class ExplorationFrontier {
+    /** Side length of a block, in tiles. */
+    static final int BLOCK_SIZE = 8;
+
+    private final int width;
+    private final int blocksX;
+    private final int blockCount;
+
+    private final int[] cells;
+    private final int[] slotOfCell;
+    private final int[] blockStart;
+    private final int[] unvisitedEnd;
+    private final int[] blockGeneration;
+    private final int[] ringCounts;
+    private int generation;
+    private int unvisitedCount;
+
+    /**
+     * Collects every walkable tile of the graph that is not on the map border.
+     *
+     * @param graph the built navigation graph
+     */
+    ExplorationFrontier(TiledMapGraph graph) {
+        this.width = graph.getWidth();
+        int height = graph.getHeight();
+        this.blocksX = (width + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int blocksY = (height + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        this.blockCount = blocksX * blocksY;
+        this.slotOfCell = new int[width * height];
+        this.blockStart = new int[blockCount + 1];
+        this.unvisitedEnd = new int[blockCount];
+        this.blockGeneration = new int[blockCount];
+        this.ringCounts = new int[Math.max(blocksX, blocksY)];
+        Arrays.fill(slotOfCell, -1);
+
+        // Count tiles per block, then lay the blocks out one after another
+        for (int y = 1; y < height - 1; y++) {
+            for (int x = 1; x < width - 1; x++) {
+                if (graph.getNodeIndex(x, y) != TiledMapGraph.NO_NODE) {
+                    blockStart[blockOf(y * width + x) + 1]++;
+                }
+            }
+        }
+        for (int b = 0; b < blockCount; b++) {
+            blockStart[b + 1] += blockStart[b];
+        }
+        this.cells = new int[blockStart[blockCount]];
+        int[] fill = Arrays.copyOf(blockStart, blockCount);
+        for (int y = 1; y < height - 1; y++) {
+            for (int x = 1; x < width - 1; x++) {
+                if (graph.getNodeIndex(x, y) != TiledMapGraph.NO_NODE) {
+                    int cell = y * width + x;
+                    int slot = fill[blockOf(cell)]++;
+                    cells[slot] = cell;
+                    slotOfCell[cell] = slot;
+                }
+            }
+        }
+        reset();
+    }
+
+    /**
+     * Marks every tile unvisited again in constant time.
+     */
+    void reset() {
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            // Stale stamps could now match; force every block to refresh
+            Arrays.fill(blockGeneration, 0);
+            generation = 1;
+        }
+        unvisitedCount = cells.length;
+    }
+
+    /**
+     * Removes a tile from the unexplored set. Tiles that are not tracked are ignored.
+     *
+     * @param cell flat cell index
+     */
+    void markVisited(int cell) {
+        int slot = slotOfCell[cell];
+        if (slot < 0) {
+            return;
+        }
+        int block = blockOf(cell);
+        refresh(block);
+        if (slot >= unvisitedEnd[block]) {
+            return;
+        }
+        // Swap the tile to the start of the block's visited part
+        int last = --unvisitedEnd[block];
+        int other = cells[last];
+        cells[last] = cell;
+        cells[slot] = other;
+        slotOfCell[cell] = last;
+        slotOfCell[other] = slot;
+        unvisitedCount--;
+    }
+
+    /**
+     * Picks a random unvisited tile among roughly the farthest third of them, measured in
+     * blocks from the given tile.
+     *
+     * @param gridX  grid x-coordinate of the agent
+     * @param gridY  grid y-coordinate of the agent
+     * @param random the agent's random source
+     * @return a flat cell index, or -1 if every tile is visited
+     */
+    int pickFar(int gridX, int gridY, Random random) {
+        if (unvisitedCount == 0) {
+            return -1;
+        }
+        int originX = gridX / BLOCK_SIZE;
+        int originY = gridY / BLOCK_SIZE;
+        Arrays.fill(ringCounts, 0);
+        for (int b = 0; b < blockCount; b++) {
+            refresh(b);
+            ringCounts[ring(b, originX, originY)] += unvisitedEnd[b] - blockStart[b];
+        }
+
+        // Walk in from the outermost ring until a third of the tiles are covered
+        int wanted = Math.max(1, unvisitedCount / 3);
+        int minRing = ringCounts.length - 1;
+        int covered = ringCounts[minRing];
+        while (covered < wanted && minRing > 0) {
+            covered += ringCounts[--minRing];
+        }
+
+        int pick = random.nextInt(covered);
+        for (int b = 0; b < blockCount; b++) {
+            if (ring(b, originX, originY) < minRing) {
+                continue;
+            }
+            int count = unvisitedEnd[b] - blockStart[b];
+            if (pick < count) {
+                return cells[blockStart[b] + pick];
+            }
+            pick -= count;
+        }
+        return -1;
+    }
+
+    /**
+     * Picks any tracked tile, visited or not, uniformly at random.
+     *
+     * @param random the agent's random source
+     * @return a flat cell index, or -1 if no tile is tracked
+     */
+    int pickAny(Random random) {
+        return cells.length == 0 ? -1 : cells[random.nextInt(cells.length)];
+    }
+
+    /**
+     * @return number of tracked tiles not visited since the last reset
+     */
+    int getUnvisitedCount() {
+        return unvisitedCount;
+    }
+
+    /**
+     * @return number of tracked tiles
+     */
+    int getTileCount() {
+        return cells.length;
+    }
+
+    private void refresh(int block) {
+        if (blockGeneration[block] != generation) {
+            blockGeneration[block] = generation;
+            unvisitedEnd[block] = blockStart[block + 1];
+        }
+    }
+
+    /**
+     * Chebyshev distance between a block and the origin block, in blocks.
+     */
+    private int ring(int block, int originX, int originY) {
+        return Math.max(Math.abs(block % blocksX - originX), Math.abs(block / blocksX - originY));
+    }
+
+    private int blockOf(int cell) {
+        return (cell / width / BLOCK_SIZE) * blocksX + (cell % width) / BLOCK_SIZE;
+    }
+}
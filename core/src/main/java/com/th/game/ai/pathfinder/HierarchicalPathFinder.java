@@ -0,0 +1,523 @@
+package com.th.game.ai.pathfinder;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.ai.pfa.DefaultConnection;
+import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
+import com.badlogic.gdx.ai.pfa.GraphPath;
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.ai.pfa.PathFinderRequest;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.util.Arrays;
+
+/**
+ * Hierarchical path finding (HPA*) on top of a {@link TiledMapGraph}.
+ * <p>
+ * The grid is split into square clusters. Where two neighboring clusters share an open
+ * stretch of border, one or two entrance tiles are placed on each side, and the walking
+ * distance between every pair of entrances inside a cluster is precomputed. A query
+ * temporarily links the start and goal to the entrances of their own clusters, searches
+ * the small abstract graph of entrances, and only then refines each abstract hop into
+ * tiles with a breadth-first search confined to one cluster.
+ * <p>
+ * Paths are near-optimal rather than optimal, in exchange for a search cost that grows
+ * with the number of clusters instead of the map area. They take at most 1.5 times the
+ * shortest number of steps plus two cluster sizes; the detour comes from routing through
+ * entrances, so it matters most on short paths. When a tile changes through
+ * {@link TiledMapGraph#setTileWalkable(int, int, boolean)}, only the clusters touching
+ * that tile are rebuilt, right before the next search.
+ */
+public class HierarchicalPathFinder implements InstrumentedPathFinder, TiledMapGraph.ChangeListener {
+    /** Default cluster side length in tiles. */
+    public static final int DEFAULT_CLUSTER_SIZE = 10;
+
+    /** Open border stretches at least this long get an entrance at each end. */
+    private static final int WIDE_ENTRANCE_LENGTH = 6;
+
+    private static final int NONE = -1;
+    private static final int UNREACHABLE = -1;
+
+    private final TiledMapGraph graph;
+    private final int width;
+    private final int height;
+    private final int clusterSize;
+    private final int clustersX;
+    private final int clustersY;
+
+    // Abstract graph: entrance cells per cluster and their pairwise in-cluster distances
+    private final IntArray[] entrances;
+    private final int[][] intraDistances;
+    private final int[] entranceSlot;
+    private final boolean[] dirty;
+    private boolean anyDirty;
+
+    // Abstract search state, per cell, valid while stamp == searchId
+    private final int[] costSoFar;
+    private final int[] parent;
+    private final int[] stamp;
+    private final boolean[] closed;
+    private final NodeHeap openList;
+    private int searchId;
+
+    // Start/goal links to the entrances of their clusters for the current query
+    private int[] startLinks = new int[0];
+    private int[] goalLinks = new int[0];
+    private int directDistance;
+
+    // Breadth-first search scratch confined to a single cluster
+    private final int[] bfsDistance;
+    private final int[] bfsParent;
+    private final int[] bfsStamp;
+    private final int[] bfsQueue;
+    private int bfsId;
+
+    private final IntArray abstractPath = new IntArray();
+    private final IntArray segment = new IntArray();
+    private int visitedNodes;
+
+    /**
+     * Creates a hierarchical path finder with {@link #DEFAULT_CLUSTER_SIZE} clusters.
+     *
+     * @param graph the built navigation graph
+     */
+    public HierarchicalPathFinder(TiledMapGraph graph) {
+        this(graph, DEFAULT_CLUSTER_SIZE);
+    }
+
+    /**
+     * Creates a hierarchical path finder and precomputes every cluster.
+     *
+     * @param graph       the built navigation graph
+     * @param clusterSize cluster side length in tiles
+     */
+    public HierarchicalPathFinder(TiledMapGraph graph, int clusterSize) {
+        this.graph = graph;
+        this.width = graph.getWidth();
+        this.height = graph.getHeight();
+        this.clusterSize = clusterSize;
+        this.clustersX = (width + clusterSize - 1) / clusterSize;
+        this.clustersY = (height + clusterSize - 1) / clusterSize;
+
+        int clusterCount = clustersX * clustersY;
+        int cells = width * height;
+        this.entrances = new IntArray[clusterCount];
+        this.intraDistances = new int[clusterCount][];
+        this.entranceSlot = new int[cells];
+        this.dirty = new boolean[clusterCount];
+        Arrays.fill(entranceSlot, NONE);
+
+        this.costSoFar = new int[cells];
+        this.parent = new int[cells];
+        this.stamp = new int[cells];
+        this.closed = new boolean[cells];
+        this.openList = new NodeHeap(cells);
+
+        this.bfsDistance = new int[cells];
+        this.bfsParent = new int[cells];
+        this.bfsStamp = new int[cells];
+        this.bfsQueue = new int[clusterSize * clusterSize];
+
+        for (int c = 0; c < clusterCount; c++) {
+            entrances[c] = new IntArray();
+            rebuildCluster(c);
+        }
+        graph.addChangeListener(this);
+    }
+
+    /**
+     * Marks the clusters around a changed tile for rebuilding before the next search.
+     */
+    @Override
+    public void onTileChanged(int gridX, int gridY) {
+        int cx = gridX / clusterSize;
+        int cy = gridY / clusterSize;
+        markDirty(cx, cy);
+        // Border tiles also change the entrances of the cluster on the other side
+        if (gridX % clusterSize == 0) markDirty(cx - 1, cy);
+        if (gridX % clusterSize == clusterSize - 1) markDirty(cx + 1, cy);
+        if (gridY % clusterSize == 0) markDirty(cx, cy - 1);
+        if (gridY % clusterSize == clusterSize - 1) markDirty(cx, cy + 1);
+    }
+
+    /**
+     * Stops listening to graph changes. Call when this path finder is no longer used.
+     */
+    public void dispose() {
+        graph.removeChangeListener(this);
+    }
+
+    private void markDirty(int cx, int cy) {
+        if (cx >= 0 && cx < clustersX && cy >= 0 && cy < clustersY) {
+            dirty[cy * clustersX + cx] = true;
+            anyDirty = true;
+        }
+    }
+
+    private void rebuildDirtyClusters() {
+        if (!anyDirty) {
+            return;
+        }
+        for (int c = 0; c < dirty.length; c++) {
+            if (dirty[c]) {
+                rebuildCluster(c);
+                dirty[c] = false;
+            }
+        }
+        anyDirty = false;
+    }
+
+    /**
+     * Recomputes the entrances of one cluster and the distances between them.
+     */
+    private void rebuildCluster(int cluster) {
+        IntArray list = entrances[cluster];
+        for (int i = 0; i < list.size; i++) {
+            entranceSlot[list.get(i)] = NONE;
+        }
+        list.clear();
+
+        int cx = cluster % clustersX;
+        int cy = cluster / clustersX;
+        int minX = cx * clusterSize;
+        int minY = cy * clusterSize;
+        int maxX = Math.min(width, minX + clusterSize) - 1;
+        int maxY = Math.min(height, minY + clusterSize) - 1;
+
+        // Borders are scanned the same way from either side, so both clusters agree
+        if (cx > 0) addBorderEntrances(list, minX, minY, maxY, -1, true);
+        if (cx < clustersX - 1) addBorderEntrances(list, maxX, minY, maxY, 1, true);
+        if (cy > 0) addBorderEntrances(list, minY, minX, maxX, -1, false);
+        if (cy < clustersY - 1) addBorderEntrances(list, maxY, minX, maxX, 1, false);
+
+        int count = list.size;
+        int[] distances = new int[count * count];
+        for (int i = 0; i < count; i++) {
+            int from = list.get(i);
+            clusterBfs(from, NONE);
+            for (int j = 0; j < count; j++) {
+                distances[i * count + j] = bfsDistanceTo(list.get(j));
+            }
+        }
+        intraDistances[cluster] = distances;
+    }
+
+    /**
+     * Adds entrance tiles along one border of a cluster. A border tile qualifies when it
+     * and the tile across the border are both walkable; every maximal run of those gets
+     * an entrance in its middle, or one at each end if it is wide.
+     *
+     * @param list     the cluster's entrance list
+     * @param line     the border column (vertical) or row (horizontal) inside this cluster
+     * @param from     first tile along the border
+     * @param to       last tile along the border
+     * @param outward  direction to the neighboring cluster (-1 or 1)
+     * @param vertical whether the border is a column
+     */
+    private void addBorderEntrances(IntArray list, int line, int from, int to, int outward, boolean vertical) {
+        int runStart = NONE;
+        for (int i = from; i <= to + 1; i++) {
+            boolean open = i <= to && (vertical
+                ? isWalkable(line, i) && isWalkable(line + outward, i)
+                : isWalkable(i, line) && isWalkable(i, line + outward));
+            if (open && runStart == NONE) {
+                runStart = i;
+            } else if (!open && runStart != NONE) {
+                int runEnd = i - 1;
+                if (runEnd - runStart + 1 >= WIDE_ENTRANCE_LENGTH) {
+                    addEntrance(list, vertical ? cellOf(line, runStart) : cellOf(runStart, line));
+                    addEntrance(list, vertical ? cellOf(line, runEnd) : cellOf(runEnd, line));
+                } else {
+                    int middle = (runStart + runEnd) / 2;
+                    addEntrance(list, vertical ? cellOf(line, middle) : cellOf(middle, line));
+                }
+                runStart = NONE;
+            }
+        }
+    }
+
+    private void addEntrance(IntArray list, int cell) {
+        // Corner tiles can serve two borders; keep them once
+        if (entranceSlot[cell] == NONE) {
+            entranceSlot[cell] = list.size;
+            list.add(cell);
+        }
+    }
+
+    @Override
+    public boolean searchNodePath(TiledNode startNode, TiledNode endNode,
+                                  Heuristic<TiledNode> heuristic, GraphPath<TiledNode> outPath) {
+        if (!search(startNode, endNode, heuristic)) {
+            return false;
+        }
+        refine(outPath);
+        return true;
+    }
+
+    @Override
+    public boolean searchConnectionPath(TiledNode startNode, TiledNode endNode,
+                                        Heuristic<TiledNode> heuristic,
+                                        GraphPath<Connection<TiledNode>> outPath) {
+        DefaultGraphPath<TiledNode> nodePath = new DefaultGraphPath<>();
+        if (!searchNodePath(startNode, endNode, heuristic, nodePath)) {
+            return false;
+        }
+        for (int i = 1; i < nodePath.getCount(); i++) {
+            outPath.add(new DefaultConnection<>(nodePath.get(i - 1), nodePath.get(i)));
+        }
+        return true;
+    }
+
+    /**
+     * Runs the whole search in one go; the abstract graph is small enough that it is
+     * not split across frames.
+     */
+    @Override
+    public boolean search(PathFinderRequest<TiledNode> request, long timeToRun) {
+        request.pathFound = searchNodePath(request.startNode, request.endNode,
+            request.heuristic, request.resultPath);
+        return true;
+    }
+
+    /**
+     * @return abstract nodes expanded plus tiles visited while linking and refining in the last search
+     */
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    /**
+     * @return total number of entrance tiles in the abstract graph
+     */
+    public int getEntranceCount() {
+        int total = 0;
+        for (IntArray list : entrances) {
+            total += list.size;
+        }
+        return total;
+    }
+
+    /**
+     * Searches the abstract graph and leaves the chosen entrance sequence in {@code abstractPath}.
+     */
+    private boolean search(TiledNode startNode, TiledNode endNode, Heuristic<TiledNode> heuristic) {
+        rebuildDirtyClusters();
+        visitedNodes = 0;
+        abstractPath.clear();
+
+        int start = cellOf(startNode.gridX, startNode.gridY);
+        int goal = cellOf(endNode.gridX, endNode.gridY);
+        int startCluster = clusterOf(start);
+        int goalCluster = clusterOf(goal);
+
+        startLinks = linkToEntrances(start, startLinks);
+        goalLinks = linkToEntrances(goal, goalLinks);
+        directDistance = UNREACHABLE;
+        if (startCluster == goalCluster) {
+            clusterBfs(start, goal);
+            directDistance = bfsDistanceTo(goal);
+        }
+
+        nextSearch();
+        touch(start, 0, NONE);
+        openList.add(start, heuristic.estimate(startNode, endNode));
+
+        while (!openList.isEmpty()) {
+            int current = openList.pop();
+            closed[current] = true;
+            visitedNodes++;
+            if (current == goal) {
+                openList.clear();
+                for (int cell = goal; cell != NONE; cell = parent[cell]) {
+                    abstractPath.add(cell);
+                }
+                abstractPath.reverse();
+                return true;
+            }
+
+            int cluster = clusterOf(current);
+            if (current == start) {
+                if (directDistance != UNREACHABLE) {
+                    relax(current, goal, directDistance, endNode, heuristic);
+                }
+                IntArray list = entrances[startCluster];
+                for (int i = 0; i < list.size; i++) {
+                    relax(current, list.get(i), startLinks[i], endNode, heuristic);
+                }
+                if (entranceSlot[current] == NONE) {
+                    continue;
+                }
+            }
+
+            int slot = entranceSlot[current];
+            if (slot == NONE) {
+                continue;
+            }
+
+            // Hops inside the cluster use the precomputed distances
+            IntArray list = entrances[cluster];
+            int[] distances = intraDistances[cluster];
+            for (int i = 0; i < list.size; i++) {
+                relax(current, list.get(i), distances[slot * list.size + i], endNode, heuristic);
+            }
+            if (cluster == goalCluster) {
+                relax(current, goal, goalLinks[slot], endNode, heuristic);
+            }
+
+            // Hops across the border to the matching entrance of the next cluster
+            int x = current % width;
+            int y = current / width;
+            relaxAcross(current, cluster, x + 1, y, endNode, heuristic);
+            relaxAcross(current, cluster, x - 1, y, endNode, heuristic);
+            relaxAcross(current, cluster, x, y + 1, endNode, heuristic);
+            relaxAcross(current, cluster, x, y - 1, endNode, heuristic);
+        }
+        return false;
+    }
+
+    private void relaxAcross(int current, int cluster, int x, int y, TiledNode endNode, Heuristic<TiledNode> heuristic) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return;
+        }
+        int neighbor = cellOf(x, y);
+        if (entranceSlot[neighbor] != NONE && clusterOf(neighbor) != cluster) {
+            relax(current, neighbor, 1, endNode, heuristic);
+        }
+    }
+
+    private void relax(int current, int next, int edgeCost, TiledNode endNode, Heuristic<TiledNode> heuristic) {
+        if (edgeCost == UNREACHABLE || next == current || (stamp[next] == searchId && closed[next])) {
+            return;
+        }
+        int cost = costSoFar[current] + edgeCost;
+        if (stamp[next] == searchId && cost >= costSoFar[next]) {
+            return;
+        }
+        touch(next, cost, current);
+        openList.add(next, cost + heuristic.estimate(nodeAt(next), endNode));
+    }
+
+    /**
+     * Measures the in-cluster distance from a tile to each entrance of its cluster.
+     */
+    private int[] linkToEntrances(int cell, int[] links) {
+        IntArray list = entrances[clusterOf(cell)];
+        if (links.length < list.size) {
+            links = new int[Math.max(list.size, links.length * 2)];
+        }
+        clusterBfs(cell, NONE);
+        for (int i = 0; i < list.size; i++) {
+            links[i] = bfsDistanceTo(list.get(i));
+        }
+        return links;
+    }
+
+    /**
+     * Turns the abstract entrance sequence into a tile-by-tile path. Each hop is either a
+     * single step across a border or a walk inside one cluster.
+     */
+    private void refine(GraphPath<TiledNode> outPath) {
+        outPath.add(nodeAt(abstractPath.get(0)));
+        for (int i = 1; i < abstractPath.size; i++) {
+            int from = abstractPath.get(i - 1);
+            int to = abstractPath.get(i);
+            if (clusterOf(from) != clusterOf(to)) {
+                outPath.add(nodeAt(to));
+                continue;
+            }
+            clusterBfs(from, to);
+            segment.clear();
+            for (int cell = to; cell != from; cell = bfsParent[cell]) {
+                segment.add(cell);
+            }
+            for (int j = segment.size - 1; j >= 0; j--) {
+                outPath.add(nodeAt(segment.get(j)));
+            }
+        }
+    }
+
+    /**
+     * Breadth-first search from a tile that never leaves the tile's cluster. Stops early
+     * once {@code target} is reached, or explores the whole cluster if it is {@link #NONE}.
+     */
+    private void clusterBfs(int source, int target) {
+        bfsId++;
+        if (bfsId == Integer.MAX_VALUE) {
+            Arrays.fill(bfsStamp, 0);
+            bfsId = 1;
+        }
+        int cluster = clusterOf(source);
+        int minX = (cluster % clustersX) * clusterSize;
+        int minY = (cluster / clustersX) * clusterSize;
+        int maxX = Math.min(width, minX + clusterSize) - 1;
+        int maxY = Math.min(height, minY + clusterSize) - 1;
+
+        int head = 0;
+        int tail = 0;
+        bfsQueue[tail++] = source;
+        bfsStamp[source] = bfsId;
+        bfsDistance[source] = 0;
+        bfsParent[source] = NONE;
+
+        while (head < tail) {
+            int cell = bfsQueue[head++];
+            visitedNodes++;
+            if (cell == target) {
+                return;
+            }
+            int x = cell % width;
+            int y = cell / width;
+            if (x < maxX) tail = visit(cell, x + 1, y, tail);
+            if (x > minX) tail = visit(cell, x - 1, y, tail);
+            if (y < maxY) tail = visit(cell, x, y + 1, tail);
+            if (y > minY) tail = visit(cell, x, y - 1, tail);
+        }
+    }
+
+    private int visit(int from, int x, int y, int tail) {
+        int cell = cellOf(x, y);
+        if (bfsStamp[cell] == bfsId || !isWalkable(x, y)) {
+            return tail;
+        }
+        bfsStamp[cell] = bfsId;
+        bfsDistance[cell] = bfsDistance[from] + 1;
+        bfsParent[cell] = from;
+        bfsQueue[tail] = cell;
+        return tail + 1;
+    }
+
+    private int bfsDistanceTo(int cell) {
+        return bfsStamp[cell] == bfsId ? bfsDistance[cell] : UNREACHABLE;
+    }
+
+    private void touch(int cell, int cost, int from) {
+        stamp[cell] = searchId;
+        closed[cell] = false;
+        costSoFar[cell] = cost;
+        parent[cell] = from;
+    }
+
+    private void nextSearch() {
+        searchId++;
+        if (searchId == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            searchId = 1;
+        }
+    }
+
+    private boolean isWalkable(int x, int y) {
+        return graph.getNodeIndex(x, y) != TiledMapGraph.NO_NODE;
+    }
+
+    private int cellOf(int x, int y) {
+        return y * width + x;
+    }
+
+    private int clusterOf(int cell) {
+        return (cell / width / clusterSize) * clustersX + (cell % width) / clusterSize;
+    }
+
+    private TiledNode nodeAt(int cell) {
+        return graph.getNode(graph.getNodeIndexForCell(cell));
+    }
+}
@@ -0,0 +1,327 @@
+package com.th.game.ai.pathfinder;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.ai.pfa.DefaultConnection;
+import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
+import com.badlogic.gdx.ai.pfa.GraphPath;
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.ai.pfa.PathFinderRequest;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.util.Arrays;
+
+/**
+ * Incremental path planning with D* Lite on the grid of a {@link TiledMapGraph}.
+ * <p>
+ * The search runs backward from the goal and keeps its distance estimates between
+ * calls. As long as the goal stays the same, a new query only repairs what changed: a
+ * start that moved along the path costs almost nothing, and a tile toggled through
+ * {@link TiledMapGraph#setTileWalkable(int, int, boolean)} only re-examines the tiles
+ * whose distance it affects. A new goal starts a fresh search.
+ * <p>
+ * D* Lite needs a consistent heuristic to keep its queue keys valid, so the heuristic
+ * passed to the search methods is ignored and plain Manhattan distance is used.
+ */
+public class IncrementalPathFinder implements InstrumentedPathFinder, TiledMapGraph.ChangeListener {
+    private static final int NONE = -1;
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+    private final TiledMapGraph graph;
+    private final int width;
+    private final int height;
+    private final double keyScale;
+
+    // Per-cell estimates; a cell's entries are valid only while stamp == searchId
+    private final int[] g;
+    private final int[] rhs;
+    private final int[] stamp;
+    private final NodeHeap openList;
+    private int searchId;
+
+    private int goal = NONE;
+    private int lastStart = NONE;
+    private int keyModifier;
+    private final IntArray changedCells = new IntArray();
+    private final int[] neighbors = new int[4];
+
+    private int visitedNodes;
+
+    /**
+     * Creates an incremental planner over the given graph and listens for its changes.
+     *
+     * @param graph the built navigation graph
+     */
+    public IncrementalPathFinder(TiledMapGraph graph) {
+        this.graph = graph;
+        this.width = graph.getWidth();
+        this.height = graph.getHeight();
+        int cells = width * height;
+        // Keys compare by (k1, k2); both stay below cells + width + height, so this is exact
+        this.keyScale = cells + width + height + 1;
+        this.g = new int[cells];
+        this.rhs = new int[cells];
+        this.stamp = new int[cells];
+        this.openList = new NodeHeap(cells);
+        graph.addChangeListener(this);
+    }
+
+    /**
+     * Queues the tile for repair on the next search toward the current goal.
+     */
+    @Override
+    public void onTileChanged(int gridX, int gridY) {
+        if (goal != NONE) {
+            changedCells.add(gridY * width + gridX);
+        }
+    }
+
+    /**
+     * Stops listening to graph changes. Call when this path finder is no longer used.
+     */
+    public void dispose() {
+        graph.removeChangeListener(this);
+    }
+
+    @Override
+    public boolean searchNodePath(TiledNode startNode, TiledNode endNode,
+                                  Heuristic<TiledNode> heuristic, GraphPath<TiledNode> outPath) {
+        int start = startNode.gridY * width + startNode.gridX;
+        if (!plan(start, endNode.gridY * width + endNode.gridX)) {
+            return false;
+        }
+        // Follow the cheapest successor down the distance field. A simple path visits each
+        // tile at most once, so a longer walk means the estimates are inconsistent
+        int current = start;
+        outPath.add(nodeAt(current));
+        for (int steps = 0; current != goal; steps++) {
+            current = bestSuccessor(current);
+            if (current == NONE || steps >= width * height) {
+                outPath.clear();
+                return false;
+            }
+            outPath.add(nodeAt(current));
+        }
+        return true;
+    }
+
+    @Override
+    public boolean searchConnectionPath(TiledNode startNode, TiledNode endNode,
+                                        Heuristic<TiledNode> heuristic,
+                                        GraphPath<Connection<TiledNode>> outPath) {
+        DefaultGraphPath<TiledNode> nodePath = new DefaultGraphPath<>();
+        if (!searchNodePath(startNode, endNode, heuristic, nodePath)) {
+            return false;
+        }
+        for (int i = 1; i < nodePath.getCount(); i++) {
+            outPath.add(new DefaultConnection<>(nodePath.get(i - 1), nodePath.get(i)));
+        }
+        return true;
+    }
+
+    /**
+     * Runs the whole repair in one go; it is usually a handful of expansions.
+     */
+    @Override
+    public boolean search(PathFinderRequest<TiledNode> request, long timeToRun) {
+        request.pathFound = searchNodePath(request.startNode, request.endNode,
+            request.heuristic, request.resultPath);
+        return true;
+    }
+
+    /**
+     * @return number of tiles expanded by the last search
+     */
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    /**
+     * Brings the distance estimates up to date for the given start and goal.
+     *
+     * @return {@code true} if the goal is reachable from the start
+     */
+    private boolean plan(int start, int newGoal) {
+        visitedNodes = 0;
+        if (newGoal != goal || !isWalkable(newGoal) || keyModifier > width * height) {
+            reset(start, newGoal);
+        } else {
+            // Earlier keys were computed for the old start; raise the bound instead of re-keying
+            keyModifier += manhattan(lastStart, start);
+            lastStart = start;
+            for (int i = 0; i < changedCells.size; i++) {
+                int cell = changedCells.get(i);
+                updateRhs(cell);
+                int count = neighborsOf(cell);
+                for (int n = 0; n < count; n++) {
+                    updateRhs(neighbors[n]);
+                }
+            }
+        }
+        changedCells.clear();
+        computeShortestPath(start);
+        return g(start) < INFINITY;
+    }
+
+    private void reset(int start, int newGoal) {
+        searchId++;
+        if (searchId == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            searchId = 1;
+        }
+        openList.clear();
+        goal = newGoal;
+        lastStart = start;
+        keyModifier = 0;
+        if (isWalkable(goal)) {
+            touch(goal);
+            rhs[goal] = 0;
+            openList.add(goal, key(goal, start));
+        }
+    }
+
+    private void computeShortestPath(int start) {
+        while (!openList.isEmpty()
+            && (openList.getPriority(openList.peek()) < key(start, start) || rhs(start) != g(start))) {
+            int u = openList.peek();
+            double oldKey = openList.getPriority(u);
+            double newKey = key(u, start);
+            visitedNodes++;
+            if (oldKey < newKey) {
+                openList.add(u, newKey);
+            } else if (g(u) > rhs(u)) {
+                g[u] = rhs[u];
+                openList.pop();
+                int count = neighborsOf(u);
+                for (int n = 0; n < count; n++) {
+                    int s = neighbors[n];
+                    if (s != goal && g[u] + 1 < rhs(s)) {
+                        touch(s);
+                        rhs[s] = g[u] + 1;
+                    }
+                    updateVertex(s, start);
+                }
+            } else {
+                int oldG = g(u);
+                touch(u);
+                g[u] = INFINITY;
+                int count = neighborsOf(u);
+                for (int n = 0; n < count; n++) {
+                    int s = neighbors[n];
+                    if (s != goal && rhs(s) == oldG + 1) {
+                        recomputeRhs(s);
+                    }
+                    updateVertex(s, start);
+                }
+                if (u != goal && rhs(u) == oldG + 1) {
+                    recomputeRhs(u);
+                }
+                updateVertex(u, start);
+            }
+        }
+    }
+
+    /**
+     * Recomputes a tile's one-step lookahead after the tile or a neighbor changed.
+     */
+    private void updateRhs(int cell) {
+        if (cell != goal) {
+            recomputeRhs(cell);
+        }
+        updateVertex(cell, lastStart);
+    }
+
+    private void recomputeRhs(int cell) {
+        touch(cell);
+        int best = INFINITY;
+        if (isWalkable(cell)) {
+            // Not via neighborsOf: callers may be iterating over the shared buffer
+            int x = cell % width;
+            int y = cell / width;
+            if (x + 1 < width) best = Math.min(best, stepCost(cell + 1));
+            if (x > 0) best = Math.min(best, stepCost(cell - 1));
+            if (y + 1 < height) best = Math.min(best, stepCost(cell + width));
+            if (y > 0) best = Math.min(best, stepCost(cell - width));
+        }
+        rhs[cell] = best;
+    }
+
+    private int stepCost(int neighbor) {
+        return isWalkable(neighbor) ? Math.min(g(neighbor) + 1, INFINITY) : INFINITY;
+    }
+
+    private void updateVertex(int cell, int start) {
+        if (g(cell) != rhs(cell)) {
+            openList.add(cell, key(cell, start));
+        } else {
+            openList.remove(cell);
+        }
+    }
+
+    private int bestSuccessor(int cell) {
+        int best = NONE;
+        int bestCost = INFINITY;
+        int count = neighborsOf(cell);
+        for (int n = 0; n < count; n++) {
+            int cost = g(neighbors[n]);
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = neighbors[n];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Fills {@code neighbors} with the walkable 4-neighbors of a tile, in the same
+     * +x, -x, +y, -y order the graph uses.
+     *
+     * @return number of neighbors written
+     */
+    private int neighborsOf(int cell) {
+        int x = cell % width;
+        int y = cell / width;
+        int count = 0;
+        if (x + 1 < width && isWalkable(cell + 1)) neighbors[count++] = cell + 1;
+        if (x > 0 && isWalkable(cell - 1)) neighbors[count++] = cell - 1;
+        if (y + 1 < height && isWalkable(cell + width)) neighbors[count++] = cell + width;
+        if (y > 0 && isWalkable(cell - width)) neighbors[count++] = cell - width;
+        return count;
+    }
+
+    private double key(int cell, int start) {
+        int k2 = Math.min(g(cell), rhs(cell));
+        if (k2 >= INFINITY) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return (k2 + manhattan(start, cell) + keyModifier) * keyScale + k2;
+    }
+
+    private int g(int cell) {
+        return stamp[cell] == searchId ? g[cell] : INFINITY;
+    }
+
+    private int rhs(int cell) {
+        return stamp[cell] == searchId ? rhs[cell] : INFINITY;
+    }
+
+    private void touch(int cell) {
+        if (stamp[cell] != searchId) {
+            stamp[cell] = searchId;
+            g[cell] = INFINITY;
+            rhs[cell] = INFINITY;
+        }
+    }
+
+    private boolean isWalkable(int cell) {
+        return graph.getNodeIndexForCell(cell) != TiledMapGraph.NO_NODE;
+    }
+
+    private int manhattan(int a, int b) {
+        return Math.abs(a % width - b % width) + Math.abs(a / width - b / width);
+    }
+
+    private TiledNode nodeAt(int cell) {
+        return graph.getNode(graph.getNodeIndexForCell(cell));
+    }
+}
@@ -0,0 +1,14 @@
+package com.th.game.ai.pathfinder;
+
+import com.badlogic.gdx.ai.pfa.PathFinder;
+
+/**
+ * A path finder that reports how much work its last search did, like the
+ * {@code Metrics} of gdx-ai's {@code IndexedAStarPathFinder}.
+ */
+public interface InstrumentedPathFinder extends PathFinder<TiledNode> {
+    /**
+     * @return number of nodes expanded by the last finished search
+     */
+    int getVisitedNodes();
+}
@@ -0,0 +1,253 @@
+package com.th.game.ai.pathfinder;
+
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.ai.pfa.DefaultConnection;
+import com.badlogic.gdx.ai.pfa.GraphPath;
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.ai.pfa.PathFinderRequest;
+
+import java.util.Arrays;
+
+/**
+ * Jump Point Search for the 4-connected, uniform-cost grid of a {@link TiledMapGraph}.
+ * <p>
+ * Instead of pushing every neighbor onto the open list like A*, the search "jumps" in a
+ * straight line until it reaches the goal or a tile with a forced neighbor (a side
+ * opening that the previous tile did not have). Only those jump points are expanded,
+ * which prunes the many equally short paths a uniform-cost grid has.
+ * <p>
+ * The returned path is tile-by-tile, exactly like the one {@code IndexedAStarPathFinder}
+ * produces, so callers can switch between the two freely.
+ */
+public class JumpPointPathFinder implements InstrumentedPathFinder {
+    private static final int NONE = -1;
+
+    private final TiledMapGraph graph;
+    private final int width;
+    private final int height;
+
+    // Per-cell search state; a cell's entries are valid only while stamp == searchId
+    private final int[] costSoFar;
+    private final int[] parent;
+    private final int[] stamp;
+    private final boolean[] closed;
+    private final NodeHeap openList;
+    private int searchId;
+
+    private int visitedNodes;
+
+    /**
+     * Creates a jump point search over the given graph.
+     *
+     * @param graph the built navigation graph
+     */
+    public JumpPointPathFinder(TiledMapGraph graph) {
+        this.graph = graph;
+        this.width = graph.getWidth();
+        this.height = graph.getHeight();
+        int cells = width * height;
+        this.costSoFar = new int[cells];
+        this.parent = new int[cells];
+        this.stamp = new int[cells];
+        this.closed = new boolean[cells];
+        this.openList = new NodeHeap(cells);
+    }
+
+    @Override
+    public boolean searchNodePath(TiledNode startNode, TiledNode endNode,
+                                  Heuristic<TiledNode> heuristic, GraphPath<TiledNode> outPath) {
+        int goal = search(startNode, endNode, heuristic);
+        if (goal == NONE) {
+            return false;
+        }
+        appendPath(startNode, goal, outPath);
+        return true;
+    }
+
+    @Override
+    public boolean searchConnectionPath(TiledNode startNode, TiledNode endNode,
+                                        Heuristic<TiledNode> heuristic,
+                                        GraphPath<Connection<TiledNode>> outPath) {
+        int goal = search(startNode, endNode, heuristic);
+        if (goal == NONE) {
+            return false;
+        }
+        int[] cells = collectCells(startNode, goal);
+        for (int i = 1; i < cells.length; i++) {
+            outPath.add(new DefaultConnection<>(nodeAt(cells[i - 1]), nodeAt(cells[i])));
+        }
+        return true;
+    }
+
+    /**
+     * Runs the whole search in one go; jump point search is fast enough that it is not
+     * split across frames.
+     */
+    @Override
+    public boolean search(PathFinderRequest<TiledNode> request, long timeToRun) {
+        request.pathFound = searchNodePath(request.startNode, request.endNode,
+            request.heuristic, request.resultPath);
+        return true;
+    }
+
+    /**
+     * @return number of jump points expanded by the last search
+     */
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    /**
+     * Runs the search and returns the goal cell, or {@link #NONE} if it is unreachable.
+     */
+    private int search(TiledNode startNode, TiledNode endNode, Heuristic<TiledNode> heuristic) {
+        visitedNodes = 0;
+        nextSearch();
+
+        int start = startNode.gridY * width + startNode.gridX;
+        int goal = endNode.gridY * width + endNode.gridX;
+        touch(start, 0, NONE);
+        openList.add(start, heuristic.estimate(startNode, endNode));
+
+        while (!openList.isEmpty()) {
+            int current = openList.pop();
+            closed[current] = true;
+            visitedNodes++;
+            if (current == goal) {
+                openList.clear();
+                return goal;
+            }
+            expand(current, goal, endNode, heuristic);
+        }
+        return NONE;
+    }
+
+    /**
+     * Pushes the jump points reachable from {@code current} along its pruned directions.
+     */
+    private void expand(int current, int goal, TiledNode endNode, Heuristic<TiledNode> heuristic) {
+        int x = current % width;
+        int y = current / width;
+        int from = parent[current];
+
+        if (from == NONE) {
+            relax(current, jump(x + 1, y, 1, 0, goal), goal, endNode, heuristic);
+            relax(current, jump(x - 1, y, -1, 0, goal), goal, endNode, heuristic);
+            relax(current, jump(x, y + 1, 0, 1, goal), goal, endNode, heuristic);
+            relax(current, jump(x, y - 1, 0, -1, goal), goal, endNode, heuristic);
+            return;
+        }
+
+        int dx = Integer.signum(x - from % width);
+        int dy = Integer.signum(y - from / width);
+        if (dx != 0) {
+            // Moving horizontally: keep going, and turn only where a side opens up
+            relax(current, jump(x + dx, y, dx, 0, goal), goal, endNode, heuristic);
+            relax(current, jump(x, y + 1, 0, 1, goal), goal, endNode, heuristic);
+            relax(current, jump(x, y - 1, 0, -1, goal), goal, endNode, heuristic);
+        } else {
+            relax(current, jump(x, y + dy, 0, dy, goal), goal, endNode, heuristic);
+            relax(current, jump(x + 1, y, 1, 0, goal), goal, endNode, heuristic);
+            relax(current, jump(x - 1, y, -1, 0, goal), goal, endNode, heuristic);
+        }
+    }
+
+    private void relax(int current, int jumpPoint, int goal, TiledNode endNode, Heuristic<TiledNode> heuristic) {
+        if (jumpPoint == NONE || (stamp[jumpPoint] == searchId && closed[jumpPoint])) {
+            return;
+        }
+        int cost = costSoFar[current] + manhattan(current, jumpPoint);
+        if (stamp[jumpPoint] == searchId && cost >= costSoFar[jumpPoint]) {
+            return;
+        }
+        touch(jumpPoint, cost, current);
+        openList.add(jumpPoint, cost + heuristic.estimate(nodeAt(jumpPoint), endNode));
+    }
+
+    /**
+     * Walks from (x, y) in direction (dx, dy) and returns the first jump point, or
+     * {@link #NONE} if the walk hits a wall first.
+     */
+    private int jump(int x, int y, int dx, int dy, int goal) {
+        while (isWalkable(x, y)) {
+            int cell = y * width + x;
+            if (cell == goal) {
+                return cell;
+            }
+            if (dx != 0) {
+                // A side tile that was blocked one step back is now open: forced neighbor
+                if ((isWalkable(x, y + 1) && !isWalkable(x - dx, y + 1))
+                    || (isWalkable(x, y - 1) && !isWalkable(x - dx, y - 1))) {
+                    return cell;
+                }
+            } else {
+                if ((isWalkable(x + 1, y) && !isWalkable(x + 1, y - dy))
+                    || (isWalkable(x - 1, y) && !isWalkable(x - 1, y - dy))) {
+                    return cell;
+                }
+                // Vertical moves also stop where a horizontal scan would find a jump point
+                if (jump(x + 1, y, 1, 0, goal) != NONE || jump(x - 1, y, -1, 0, goal) != NONE) {
+                    return cell;
+                }
+            }
+            x += dx;
+            y += dy;
+        }
+        return NONE;
+    }
+
+    private boolean isWalkable(int x, int y) {
+        return graph.getNodeIndex(x, y) != TiledMapGraph.NO_NODE;
+    }
+
+    private int manhattan(int a, int b) {
+        return Math.abs(a % width - b % width) + Math.abs(a / width - b / width);
+    }
+
+    private void touch(int cell, int cost, int from) {
+        stamp[cell] = searchId;
+        closed[cell] = false;
+        costSoFar[cell] = cost;
+        parent[cell] = from;
+    }
+
+    private void nextSearch() {
+        searchId++;
+        if (searchId == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            searchId = 1;
+        }
+    }
+
+    private TiledNode nodeAt(int cell) {
+        return graph.getNode(graph.getNodeIndexForCell(cell));
+    }
+
+    /**
+     * Appends every tile from the start to the goal, filling in the straight runs
+     * between consecutive jump points.
+     */
+    private void appendPath(TiledNode startNode, int goal, GraphPath<TiledNode> outPath) {
+        for (int cell : collectCells(startNode, goal)) {
+            outPath.add(nodeAt(cell));
+        }
+    }
+
+    private int[] collectCells(TiledNode startNode, int goal) {
+        int[] cells = new int[costSoFar[goal] + 1];
+        int index = cells.length - 1;
+        int current = goal;
+        while (parent[current] != NONE) {
+            int from = parent[current];
+            int step = Integer.signum(from % width - current % width)
+                + Integer.signum(from / width - current / width) * width;
+            for (int cell = current; cell != from; cell += step) {
+                cells[index--] = cell;
+            }
+            current = from;
+        }
+        cells[index] = startNode.gridY * width + startNode.gridX;
+        return cells;
+    }
+}
@@ -0,0 +1,92 @@
+package com.th.game.ai.pathfinder;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.math.Vector2;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps one {@link NavigationData} per map so the graph and its tables are built once
+ * and reused by every round and every agent on that map.
+ * <p>
+ * Entries are keyed by the map's file path and a checksum of the file's contents, so
+ * an edited map file gets fresh data instead of a stale graph. The checksum is kept per
+ * path and only computed again when the file's size or modification time changes, so
+ * starting a round does not read the whole map file again.
+ */
+public class NavigationCache {
+    private static final Map<String, NavigationData> cache = new HashMap<>();
+    private static final Map<String, FileStamp> hashes = new HashMap<>();
+
+    /**
+     * The checksum of a map file and what the file looked like when it was computed.
+     */
+    private static class FileStamp {
+        final long lastModified;
+        final long length;
+        final String hash;
+
+        FileStamp(long lastModified, long length, String hash) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.hash = hash;
+        }
+    }
+
+    private NavigationCache() {
+    }
+
+    /**
+     * Returns the navigation data for a map, building it on first use.
+     *
+     * @param mapPath   internal path of the .tmx file the map was loaded from
+     * @param tiledMap  the loaded map
+     * @param landmarks world positions preferred as heuristic pivots; only used when building
+     * @return the shared navigation data
+     */
+    public static synchronized NavigationData get(String mapPath, TiledMap tiledMap, List<Vector2> landmarks) {
+        String key = mapPath + "#" + contentHash(mapPath);
+        NavigationData data = cache.get(key);
+        if (data == null) {
+            long startTime = System.nanoTime();
+            data = new NavigationData(tiledMap, landmarks);
+            cache.put(key, data);
+            AltHeuristic heuristic = data.getHeuristic();
+            System.out.println("Navigation data built for " + mapPath + " in "
+                + (System.nanoTime() - startTime) / 1000000 + " ms (ALT heuristic: "
+                + heuristic.getPivotCount() + " pivots, " + heuristic.getMemoryBytes() / 1024 + " KB, "
+                + heuristic.getPrecomputeNanos() / 1000000 + " ms)");
+        }
+        return data;
+    }
+
+    /**
+     * Drops every cached entry and checksum.
+     */
+    public static synchronized void clear() {
+        for (NavigationData data : cache.values()) {
+            data.dispose();
+        }
+        cache.clear();
+        hashes.clear();
+    }
+
+    private static String contentHash(String mapPath) {
+        FileHandle file = Gdx.files.internal(mapPath);
+        long lastModified = file.lastModified();
+        long length = file.length();
+        FileStamp stamp = hashes.get(mapPath);
+        if (stamp == null || stamp.lastModified != lastModified || stamp.length != length) {
+            CRC32 crc = new CRC32();
+            crc.update(file.readBytes());
+            stamp = new FileStamp(lastModified, length, Long.toHexString(crc.getValue()));
+            hashes.put(mapPath, stamp);
+        }
+        return stamp.hash;
+    }
+}
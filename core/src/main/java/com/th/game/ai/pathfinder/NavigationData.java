@@ -0,0 +1,69 @@
+package com.th.game.ai.pathfinder;
+
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.math.Vector2;
+import com.th.game.util.map.WalkabilityGrid;
+
+import java.util.List;
+
+/**
+ * Everything about a map that navigation needs and that does not depend on who is
+ * moving: the walkability grid, the graph built from it and the heuristic tables.
+ * One instance is built per map by {@link NavigationCache} and shared by every agent,
+ * every round and every game screen on that map; per-agent state lives in
+ * {@link AgentNavigationState}.
+ * <p>
+ * The shared objects must be treated as read-only. The graph and grid are mutable
+ * types, but a {@link TiledMapGraph#setTileWalkable(int, int, boolean)} or
+ * {@link WalkabilityGrid#setTileWalkable(int, int, boolean)} call on them would
+ * outlive the round and change the map for everyone that uses it later. Code that
+ * needs a changing map works on {@link TiledMapGraph#snapshot()}. Change listeners
+ * added to the shared graph, such as those of path finders and request services, must
+ * be removed when their owner is disposed, since the graph outlives the screen.
+ */
+public class NavigationData {
+    private final WalkabilityGrid walkabilityGrid;
+    private final TiledMapGraph graph;
+    private final AltHeuristic heuristic;
+
+    /**
+     * Rasterizes the map and precomputes the graph and heuristic tables.
+     *
+     * @param tiledMap  the loaded map
+     * @param landmarks world positions preferred as heuristic pivots; may be empty
+     */
+    public NavigationData(TiledMap tiledMap, List<Vector2> landmarks) {
+        this.walkabilityGrid = new WalkabilityGrid(tiledMap);
+        this.graph = new TiledMapGraph(walkabilityGrid);
+        graph.buildGraph();
+        this.heuristic = new AltHeuristic(graph, landmarks);
+    }
+
+    /**
+     * @return the walkability of every tile; shared, do not modify
+     */
+    public WalkabilityGrid getWalkabilityGrid() {
+        return walkabilityGrid;
+    }
+
+    /**
+     * @return the navigation graph over the walkable tiles; shared, do not change its tiles
+     */
+    public TiledMapGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return the landmark heuristic over {@link #getGraph()}
+     */
+    public AltHeuristic getHeuristic() {
+        return heuristic;
+    }
+
+    /**
+     * Detaches the precomputed tables from the graph.
+     */
+    public void dispose() {
+        heuristic.dispose();
+    }
+}
@@ -0,0 +1,143 @@
+package com.th.game.ai.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * An indexed binary min-heap of int ids keyed by double priorities.
+ * <p>
+ * Used as the open list of the grid searches in this package. Ids must be in
+ * {@code [0, capacity)}; each id is in the heap at most once, and its priority can be
+ * lowered in place. Nothing is allocated after construction.
+ */
+class NodeHeap {
+    private final int[] heap;
+    private final double[] priority;
+    private final int[] position;
+    private int size;
+
+    /**
+     * @param capacity number of distinct ids the heap can hold
+     */
+    NodeHeap(int capacity) {
+        heap = new int[capacity];
+        priority = new double[capacity];
+        position = new int[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(int id) {
+        return position[id] >= 0;
+    }
+
+    double getPriority(int id) {
+        return priority[id];
+    }
+
+    /**
+     * Inserts the id, or updates its priority if it is already queued.
+     */
+    void add(int id, double value) {
+        if (position[id] >= 0) {
+            double old = priority[id];
+            priority[id] = value;
+            if (value < old) {
+                siftUp(position[id]);
+            } else {
+                siftDown(position[id]);
+            }
+            return;
+        }
+        priority[id] = value;
+        heap[size] = id;
+        position[id] = size;
+        siftUp(size++);
+    }
+
+    int peek() {
+        return heap[0];
+    }
+
+    int pop() {
+        int top = heap[0];
+        position[top] = -1;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            position[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /**
+     * Removes the id if it is queued.
+     */
+    void remove(int id) {
+        int index = position[id];
+        if (index < 0) {
+            return;
+        }
+        position[id] = -1;
+        size--;
+        if (index == size) {
+            return;
+        }
+        heap[index] = heap[size];
+        position[heap[index]] = index;
+        siftUp(index);
+        siftDown(position[heap[index]]);
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int index) {
+        int id = heap[index];
+        double value = priority[id];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            int parentId = heap[parent];
+            if (priority[parentId] <= value) {
+                break;
+            }
+            heap[index] = parentId;
+            position[parentId] = index;
+            index = parent;
+        }
+        heap[index] = id;
+        position[id] = index;
+    }
+
+    private void siftDown(int index) {
+        int id = heap[index];
+        double value = priority[id];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && priority[heap[right]] < priority[heap[child]]) {
+                child = right;
+            }
+            if (value <= priority[heap[child]]) {
+                break;
+            }
+            heap[index] = heap[child];
+            position[heap[index]] = index;
+            index = child;
+        }
+        heap[index] = id;
+        position[id] = index;
+    }
+}
@@ -0,0 +1,213 @@
+package com.th.game.ai.pathfinder;
+
+import com.badlogic.gdx.ai.pfa.GraphPath;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded cache of found paths, keyed by start and goal node index, with
+ * least-recently-used eviction.
+ * <p>
+ * Besides exact (start, goal) matches, a lookup also succeeds when a cached path to the
+ * same goal passes through the start node, and the remaining suffix is returned. That
+ * is the common case for an agent that re-plans while walking toward a goal it has
+ * already searched for. The suffix is a valid path to the goal and, when the cached path
+ * came from an optimal search (A*, jump point or incremental), also a shortest one. A
+ * {@link HierarchicalPathFinder} path is not shortest, and neither are its suffixes.
+ * <p>
+ * Node indices are only stable for one build of the graph, so the cache must be
+ * {@link #clear() cleared} whenever the graph is rebuilt or changed.
+ */
+public class PathCache {
+    /** Default number of paths kept. */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private final int capacity;
+    private final LinkedHashMap<Long, Entry> entries;
+    private final Map<Integer, List<Entry>> entriesByGoal = new HashMap<>();
+
+    private long hits;
+    private long suffixHits;
+    private long misses;
+
+    private static final class Entry {
+        final long key;
+        final int goal;
+        final int[] nodes;
+
+        Entry(long key, int goal, int[] nodes) {
+            this.key = key;
+            this.goal = goal;
+            this.nodes = nodes;
+        }
+    }
+
+    /**
+     * Creates a cache holding {@link #DEFAULT_CAPACITY} paths.
+     */
+    public PathCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param capacity maximum number of paths kept before the least recently used is evicted
+     */
+    public PathCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be >= 1, got " + capacity);
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() > PathCache.this.capacity) {
+                    unindex(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Looks up a path and appends its nodes to {@code outPath} on a hit.
+     *
+     * @param graph   the graph the node indices belong to
+     * @param start   index of the start node
+     * @param goal    index of the goal node
+     * @param outPath path to append the cached nodes to
+     * @return {@code true} on an exact or suffix hit
+     */
+    public boolean get(TiledMapGraph graph, int start, int goal, GraphPath<TiledNode> outPath) {
+        Entry entry = entries.get(key(start, goal));
+        if (entry != null) {
+            hits++;
+            copy(graph, entry.nodes, 0, outPath);
+            return true;
+        }
+
+        List<Entry> sameGoal = entriesByGoal.get(goal);
+        if (sameGoal != null) {
+            for (Entry candidate : sameGoal) {
+                int offset = indexOf(candidate.nodes, start);
+                if (offset >= 0) {
+                    // Touch the entry so it counts as recently used
+                    entries.get(candidate.key);
+                    hits++;
+                    suffixHits++;
+                    copy(graph, candidate.nodes, offset, outPath);
+                    return true;
+                }
+            }
+        }
+
+        misses++;
+        return false;
+    }
+
+    /**
+     * Stores a found path. The first and last nodes of the path are used as its key.
+     *
+     * @param path a non-empty path
+     */
+    public void put(GraphPath<TiledNode> path) {
+        int count = path.getCount();
+        if (count == 0) {
+            return;
+        }
+        int[] nodes = new int[count];
+        for (int i = 0; i < count; i++) {
+            nodes[i] = path.get(i).index;
+        }
+        int goal = nodes[count - 1];
+        Entry entry = new Entry(key(nodes[0], goal), goal, nodes);
+        Entry previous = entries.put(entry.key, entry);
+        if (previous != null) {
+            unindex(previous);
+        }
+        List<Entry> sameGoal = entriesByGoal.get(goal);
+        if (sameGoal == null) {
+            sameGoal = new ArrayList<>();
+            entriesByGoal.put(goal, sameGoal);
+        }
+        sameGoal.add(entry);
+    }
+
+    /**
+     * Drops every cached path. Counters are kept.
+     */
+    public void clear() {
+        entries.clear();
+        entriesByGoal.clear();
+    }
+
+    /**
+     * @return number of lookups answered from the cache, suffix hits included
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of hits answered from the suffix of a longer cached path
+     */
+    public long getSuffixHits() {
+        return suffixHits;
+    }
+
+    /**
+     * @return number of lookups that had to fall back to a search
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return number of paths currently cached
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private void unindex(Entry entry) {
+        List<Entry> sameGoal = entriesByGoal.get(entry.goal);
+        if (sameGoal == null) {
+            return;
+        }
+        for (Iterator<Entry> it = sameGoal.iterator(); it.hasNext(); ) {
+            if (it.next() == entry) {
+                it.remove();
+                break;
+            }
+        }
+        if (sameGoal.isEmpty()) {
+            entriesByGoal.remove(entry.goal);
+        }
+    }
+
+    private static long key(int start, int goal) {
+        return ((long) start << 32) | (goal & 0xFFFFFFFFL);
+    }
+
+    private static int indexOf(int[] nodes, int node) {
+        for (int i = 0; i < nodes.length; i++) {
+            if (nodes[i] == node) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void copy(TiledMapGraph graph, int[] nodes, int from, GraphPath<TiledNode> outPath) {
+        for (int i = from; i < nodes.length; i++) {
+            outPath.add(graph.getNode(nodes[i]));
+        }
+    }
+}
@@ -0,0 +1,477 @@
+package com.th.game.ai.pathfinder;
+
+import com.badlogic.gdx.ai.msg.Telegram;
+import com.badlogic.gdx.ai.pfa.Connection;
+import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
+import com.badlogic.gdx.ai.pfa.GraphPath;
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.ai.pfa.PathFinder;
+import com.badlogic.gdx.ai.pfa.PathFinderQueue;
+import com.badlogic.gdx.ai.pfa.PathFinderRequest;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BooleanArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.th.game.util.PathRequestMode;
+import com.th.game.util.PathfinderType;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs path searches off the hot path of the frame.
+ * <p>
+ * One service is shared by every agent on a map. Agents only queue requests; the owner
+ * of the service (the game screen) calls {@link #update(long)} once per frame, and each
+ * result comes back through its {@link Callback} on the game thread during that call.
+ * Depending on the {@link PathRequestMode}:
+ * <ul>
+ *   <li>{@code TIME_SLICED} feeds requests to a gdx-ai {@link PathFinderQueue}, which
+ *       spends at most the given budget per frame and resumes unfinished searches in
+ *       the next one.</li>
+ *   <li>{@code WORKER_THREAD} runs searches on a background thread against a snapshot
+ *       of the graph, and {@link #update(long)} only hands finished paths over.</li>
+ * </ul>
+ * If the graph changes while requests are in flight, they are searched again on the
+ * new graph, so a callback never receives nodes that no longer exist. Path finders that
+ * listen for tile changes (HPA* and D* Lite) are kept across changes so their repair
+ * state survives; in worker mode the same changes are replayed onto the snapshot on the
+ * worker thread. Only A* and Jump Point Search are created again.
+ */
+public class PathRequestService {
+    /** Default per-frame search budget in nanoseconds (2 ms). */
+    public static final long DEFAULT_BUDGET_NANOS = 2000000L;
+
+    /**
+     * Receives the outcome of a path request.
+     */
+    public interface Callback {
+        /**
+         * Called on the game thread once the search is done.
+         *
+         * @param found whether a path exists
+         * @param path  the path from start to goal, made of nodes of the live graph
+         */
+        void onPathReady(boolean found, GraphPath<TiledNode> path);
+    }
+
+    private final TiledMapGraph graph;
+    private final PathfinderType pathfinderType;
+    private final PathRequestMode mode;
+    private final Heuristic<TiledNode> heuristic;
+    private final Array<Request> inFlight = new Array<>();
+
+    // Time-sliced mode
+    private PathFinder<TiledNode> pathFinder;
+    private PathFinderQueue<TiledNode> queue;
+    private int queueGraphVersion;
+    private final Telegram telegram = new Telegram();
+
+    // Worker mode; after creation the snapshot graph and its finder are only touched on the worker thread
+    private ExecutorService worker;
+    private TiledMapGraph snapshot;
+    private PathFinder<TiledNode> snapshotFinder;
+    private final ConcurrentLinkedQueue<Request> completed = new ConcurrentLinkedQueue<>();
+    private final IntArray changedCells = new IntArray();
+    private final BooleanArray changedWalkable = new BooleanArray();
+    private final TiledMapGraph.ChangeListener changeRecorder = this::recordChange;
+
+    // Metrics of the search whose callback is running
+    private long lastSearchNanos;
+    private int lastVisitedNodes = -1;
+
+    /**
+     * A queued search. Remembers cells rather than nodes so it can be re-resolved
+     * against a rebuilt graph.
+     */
+    private final class Request extends PathFinderRequest<TiledNode> {
+        final int startCell;
+        final int endCell;
+        final Callback callback;
+        long searchNanos;
+        int visitedNodes = -1;
+
+        Request(int startCell, int endCell, Callback callback) {
+            this.startCell = startCell;
+            this.endCell = endCell;
+            this.callback = callback;
+            this.heuristic = PathRequestService.this.heuristic;
+            this.resultPath = new DefaultGraphPath<>();
+        }
+
+        /**
+         * Called by the queue on the game thread when a time-sliced search is done.
+         */
+        @Override
+        public boolean finalizeSearch(long timeToRun) {
+            // A cancelled request still runs to the end in the queue; its result is dropped
+            if (inFlight.removeValue(this, true)) {
+                complete(this, pathFound, resultPath);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Times every slice a path finder spends on a request and reads its expanded node
+     * count when the search finishes.
+     */
+    private static final class TimedPathFinder implements PathFinder<TiledNode> {
+        private final PathFinder<TiledNode> pathFinder;
+
+        TimedPathFinder(PathFinder<TiledNode> pathFinder) {
+            this.pathFinder = pathFinder;
+        }
+
+        @Override
+        public boolean searchConnectionPath(TiledNode startNode, TiledNode endNode, Heuristic<TiledNode> heuristic,
+                                            GraphPath<Connection<TiledNode>> outPath) {
+            return pathFinder.searchConnectionPath(startNode, endNode, heuristic, outPath);
+        }
+
+        @Override
+        public boolean searchNodePath(TiledNode startNode, TiledNode endNode, Heuristic<TiledNode> heuristic,
+                                      GraphPath<TiledNode> outPath) {
+            return pathFinder.searchNodePath(startNode, endNode, heuristic, outPath);
+        }
+
+        @Override
+        public boolean search(PathFinderRequest<TiledNode> request, long timeToRun) {
+            long startTime = System.nanoTime();
+            boolean finished = pathFinder.search(request, timeToRun);
+            Request timed = (Request) request;
+            timed.searchNanos += System.nanoTime() - startTime;
+            if (finished) {
+                timed.visitedNodes = visitedNodes(pathFinder);
+            }
+            return finished;
+        }
+    }
+
+    /**
+     * Creates a request service over the given graph.
+     *
+     * @param graph          the live navigation graph
+     * @param pathfinderType search engine used for every request
+     * @param mode           where the searches run
+     * @param heuristic      distance estimate used by the search; must be safe to read from the worker thread
+     */
+    public PathRequestService(TiledMapGraph graph, PathfinderType pathfinderType, PathRequestMode mode,
+                              Heuristic<TiledNode> heuristic) {
+        this.graph = graph;
+        this.heuristic = heuristic;
+        this.pathfinderType = pathfinderType;
+        this.mode = mode;
+        if (mode == PathRequestMode.WORKER_THREAD) {
+            worker = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "path-request-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+            graph.addChangeListener(changeRecorder);
+        } else {
+            pathFinder = createPathFinder(pathfinderType, graph);
+            resetQueue();
+        }
+    }
+
+    /**
+     * Creates a search engine of the given type over a graph.
+     *
+     * @param pathfinderType the engine to create
+     * @param graph          the graph to search
+     * @return a new path finder
+     */
+    public static PathFinder<TiledNode> createPathFinder(PathfinderType pathfinderType, TiledMapGraph graph) {
+        switch (pathfinderType) {
+            case JUMP_POINT:
+                return new JumpPointPathFinder(graph);
+            case HIERARCHICAL:
+                return new HierarchicalPathFinder(graph);
+            case INCREMENTAL:
+                return new IncrementalPathFinder(graph);
+            case ASTAR:
+            default:
+                return new IndexedAStarPathFinder<>(graph, true);
+        }
+    }
+
+    /**
+     * Returns the nodes a path finder expanded in its last search.
+     *
+     * @param pathFinder a path finder created by {@link #createPathFinder}
+     * @return expanded nodes, or -1 if the path finder does not count them
+     */
+    private static int visitedNodes(PathFinder<TiledNode> pathFinder) {
+        if (pathFinder instanceof InstrumentedPathFinder) {
+            return ((InstrumentedPathFinder) pathFinder).getVisitedNodes();
+        }
+        if (pathFinder instanceof IndexedAStarPathFinder) {
+            IndexedAStarPathFinder.Metrics metrics = ((IndexedAStarPathFinder<TiledNode>) pathFinder).metrics;
+            return metrics != null ? metrics.visitedNodes : -1;
+        }
+        return -1;
+    }
+
+    /**
+     * Tells whether a path finder repairs itself through {@link TiledMapGraph.ChangeListener}
+     * and can therefore be kept across graph changes. The others are cheap to create and
+     * A* sizes its node records by the node count, which changes with every rebuild.
+     */
+    private static boolean survivesGraphChanges(PathFinder<TiledNode> pathFinder) {
+        return pathFinder instanceof TiledMapGraph.ChangeListener;
+    }
+
+    /**
+     * Detaches a path finder created by {@link #createPathFinder} from its graph.
+     */
+    private static void disposePathFinder(PathFinder<TiledNode> pathFinder) {
+        if (pathFinder instanceof HierarchicalPathFinder) {
+            ((HierarchicalPathFinder) pathFinder).dispose();
+        } else if (pathFinder instanceof IncrementalPathFinder) {
+            ((IncrementalPathFinder) pathFinder).dispose();
+        }
+    }
+
+    /**
+     * Queues a path search between two nodes of the live graph.
+     *
+     * @param startNode where the path starts
+     * @param endNode   where the path ends
+     * @param callback  receives the result on the game thread
+     */
+    public void request(TiledNode startNode, TiledNode endNode, Callback callback) {
+        syncWithGraph();
+        Request request = new Request(cellOf(startNode), cellOf(endNode), callback);
+        inFlight.add(request);
+        submit(request);
+    }
+
+    /**
+     * Drops every pending request of one callback; it will not be called for them. Call
+     * when the agent that queued them goes away.
+     *
+     * @param callback the callback passed to {@link #request}
+     */
+    public void cancel(Callback callback) {
+        for (int i = inFlight.size - 1; i >= 0; i--) {
+            if (inFlight.get(i).callback == callback) {
+                inFlight.removeIndex(i);
+            }
+        }
+    }
+
+    /**
+     * Advances pending searches and delivers finished ones. Call once per frame from
+     * the game thread.
+     *
+     * @param budgetNanos time the time-sliced queue may spend searching this frame
+     */
+    public void update(long budgetNanos) {
+        if (mode == PathRequestMode.WORKER_THREAD) {
+            Request request;
+            while ((request = completed.poll()) != null) {
+                deliver(request);
+            }
+            return;
+        }
+
+        syncWithGraph();
+        if (!inFlight.isEmpty()) {
+            queue.run(budgetNanos);
+        }
+    }
+
+    /**
+     * @return the search engine used for every request
+     */
+    public PathfinderType getPathfinderType() {
+        return pathfinderType;
+    }
+
+    /**
+     * Time spent searching for the request whose callback is running. For time-sliced
+     * requests this is the sum over all frames, not the time since the request.
+     *
+     * @return search time in nanoseconds
+     */
+    public long getLastSearchNanos() {
+        return lastSearchNanos;
+    }
+
+    /**
+     * Nodes expanded for the request whose callback is running.
+     *
+     * @return expanded nodes, or -1 if unknown
+     */
+    public int getLastVisitedNodes() {
+        return lastVisitedNodes;
+    }
+
+    /**
+     * @return number of requests whose callback has not run yet
+     */
+    public int getPendingCount() {
+        return inFlight.size;
+    }
+
+    /**
+     * Stops the worker thread and detaches the path finders from their graphs. Pending
+     * callbacks are never called.
+     */
+    public void dispose() {
+        if (worker != null) {
+            worker.shutdownNow();
+            graph.removeChangeListener(changeRecorder);
+        }
+        disposePathFinder(pathFinder);
+        inFlight.clear();
+        completed.clear();
+    }
+
+    /**
+     * Restarts time-sliced searches on a new queue if the graph changed since they were
+     * queued, since they refer to the old nodes. The path finder itself is only replaced
+     * if it cannot follow the change on its own.
+     */
+    private void syncWithGraph() {
+        if (mode == PathRequestMode.WORKER_THREAD || queueGraphVersion == graph.getVersion()) {
+            return;
+        }
+        if (!survivesGraphChanges(pathFinder)) {
+            pathFinder = createPathFinder(pathfinderType, graph);
+        }
+        resetQueue();
+        for (int i = inFlight.size - 1; i >= 0; i--) {
+            submit(inFlight.get(i));
+        }
+    }
+
+    private void resetQueue() {
+        queue = new PathFinderQueue<>(new TimedPathFinder(pathFinder));
+        queueGraphVersion = graph.getVersion();
+    }
+
+    /**
+     * Remembers a live tile change so it can be replayed onto the worker's snapshot.
+     */
+    private void recordChange(int gridX, int gridY) {
+        if (snapshot == null) {
+            return;
+        }
+        changedCells.add(gridY * graph.getWidth() + gridX);
+        changedWalkable.add(graph.getNodeIndex(gridX, gridY) != TiledMapGraph.NO_NODE);
+    }
+
+    /**
+     * Applies recorded tile changes to the snapshot. Runs on the worker thread, between
+     * searches, so listening path finders repair themselves as they do on the live graph.
+     */
+    private void applyToSnapshot(int[] cells, boolean[] walkable) {
+        int width = snapshot.getWidth();
+        for (int i = 0; i < cells.length; i++) {
+            snapshot.setTileWalkable(cells[i] % width, cells[i] / width, walkable[i]);
+        }
+        if (!survivesGraphChanges(snapshotFinder)) {
+            snapshotFinder = createPathFinder(pathfinderType, snapshot);
+        }
+    }
+
+    private void submit(Request request) {
+        if (mode == PathRequestMode.WORKER_THREAD) {
+            submitToWorker(request);
+            return;
+        }
+
+        TiledNode startNode = nodeAt(graph, request.startCell);
+        TiledNode endNode = nodeAt(graph, request.endCell);
+        if (startNode == null || endNode == null) {
+            inFlight.removeValue(request, true);
+            complete(request, false, request.resultPath);
+            return;
+        }
+        request.startNode = startNode;
+        request.endNode = endNode;
+        request.resultPath.clear();
+        request.pathFound = false;
+        request.searchNanos = 0;
+        request.visitedNodes = -1;
+
+        // Same hand-off the message system would do
+        telegram.extraInfo = request;
+        queue.handleMessage(telegram);
+        telegram.extraInfo = null;
+    }
+
+    private void submitToWorker(Request request) {
+        if (snapshot == null) {
+            snapshot = graph.snapshot();
+            snapshotFinder = createPathFinder(pathfinderType, snapshot);
+        } else if (changedCells.size > 0) {
+            final int[] cells = changedCells.toArray();
+            final boolean[] walkable = changedWalkable.toArray();
+            changedCells.clear();
+            changedWalkable.clear();
+            // The single worker runs tasks in order, so this lands before the search below
+            worker.execute(() -> applyToSnapshot(cells, walkable));
+        }
+        worker.execute(() -> {
+            PathFinder<TiledNode> searchFinder = snapshotFinder;
+            request.resultPath.clear();
+            request.visitedNodes = -1;
+            TiledNode startNode = nodeAt(snapshot, request.startCell);
+            TiledNode endNode = nodeAt(snapshot, request.endCell);
+            long startTime = System.nanoTime();
+            try {
+                request.pathFound = startNode != null && endNode != null
+                    && searchFinder.searchNodePath(startNode, endNode, heuristic, request.resultPath);
+                request.visitedNodes = visitedNodes(searchFinder);
+            } catch (RuntimeException e) {
+                System.err.println("Path search failed: " + e.getMessage());
+                e.printStackTrace();
+                request.pathFound = false;
+            }
+            request.searchNanos = System.nanoTime() - startTime;
+            completed.add(request);
+        });
+    }
+
+    /**
+     * Hands a worker result to its callback after mapping it onto the live graph.
+     */
+    private void deliver(Request request) {
+        if (!inFlight.removeValue(request, true)) {
+            return;
+        }
+        GraphPath<TiledNode> livePath = new DefaultGraphPath<>();
+        if (request.pathFound) {
+            for (TiledNode node : request.resultPath) {
+                TiledNode liveNode = nodeAt(graph, cellOf(node));
+                if (liveNode == null) {
+                    // The map changed under the snapshot; search again
+                    inFlight.add(request);
+                    submitToWorker(request);
+                    return;
+                }
+                livePath.add(liveNode);
+            }
+        }
+        complete(request, request.pathFound, livePath);
+    }
+
+    private void complete(Request request, boolean found, GraphPath<TiledNode> path) {
+        lastSearchNanos = request.searchNanos;
+        lastVisitedNodes = request.visitedNodes;
+        request.callback.onPathReady(found, path);
+    }
+
+    private int cellOf(TiledNode node) {
+        return node.gridY * graph.getWidth() + node.gridX;
+    }
+
+    private static TiledNode nodeAt(TiledMapGraph graph, int cell) {
+        int index = graph.getNodeIndexForCell(cell);
+        return index == TiledMapGraph.NO_NODE ? null : graph.getNode(index);
+    }
+}
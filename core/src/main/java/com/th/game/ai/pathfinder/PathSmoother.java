@@ -0,0 +1,84 @@
+package com.th.game.ai.pathfinder;
+
+import com.badlogic.gdx.ai.pfa.GraphPath;
+import com.th.game.util.PathSmoothing;
+import com.th.game.util.map.WalkabilityGrid;
+
+/**
+ * Turns a tile-by-tile path into fewer waypoints.
+ * <p>
+ * {@link PathSmoothing#COLLINEAR} keeps only the tiles where the path changes direction,
+ * so straight runs become a single segment and the walked route is unchanged.
+ * {@link PathSmoothing#ANY_ANGLE} additionally skips every tile that a straight line
+ * from the previous waypoint can reach over walkable ground, checked against the
+ * {@link WalkabilityGrid} at sub-tile resolution. Waypoints are always tiles of the
+ * original path, so the result never leaves walkable ground.
+ */
+public class PathSmoother {
+    private final WalkabilityGrid walkabilityGrid;
+
+    /**
+     * @param walkabilityGrid the grid used for line-of-sight checks
+     */
+    public PathSmoother(WalkabilityGrid walkabilityGrid) {
+        this.walkabilityGrid = walkabilityGrid;
+    }
+
+    /**
+     * Writes the smoothed form of a path into {@code out}. The first and last tiles are
+     * always kept.
+     *
+     * @param path tile-by-tile path from a search
+     * @param mode how much to smooth
+     * @param out  cleared, then receives the waypoints; must not be {@code path}
+     */
+    public void smooth(GraphPath<TiledNode> path, PathSmoothing mode, GraphPath<TiledNode> out) {
+        out.clear();
+        int count = path.getCount();
+        if (mode == PathSmoothing.NONE || count <= 2) {
+            for (int i = 0; i < count; i++) {
+                out.add(path.get(i));
+            }
+            return;
+        }
+
+        if (mode == PathSmoothing.COLLINEAR) {
+            out.add(path.get(0));
+            for (int i = 1; i < count - 1; i++) {
+                if (!isStraight(path.get(i - 1), path.get(i), path.get(i + 1))) {
+                    out.add(path.get(i));
+                }
+            }
+            out.add(path.get(count - 1));
+            return;
+        }
+
+        // Greedy string pulling: from each waypoint, go as far along the path as stays visible
+        int anchor = 0;
+        out.add(path.get(0));
+        while (anchor < count - 1) {
+            int next = anchor + 1;
+            while (next + 1 < count && isVisible(path.get(anchor), path.get(next + 1))) {
+                next++;
+            }
+            out.add(path.get(next));
+            anchor = next;
+        }
+    }
+
+    /**
+     * Determines if a straight line between two tile centres stays on walkable ground.
+     *
+     * @param from start tile
+     * @param to   end tile
+     * @return {@code true} if the segment crosses no blocked sub-cell
+     */
+    public boolean isVisible(TiledNode from, TiledNode to) {
+        return walkabilityGrid.isSegmentWalkable(from.x, from.y, to.x, to.y);
+    }
+
+    private static boolean isStraight(TiledNode previous, TiledNode current, TiledNode next) {
+        return current.gridX - previous.gridX == next.gridX - current.gridX
+            && current.gridY - previous.gridY == next.gridY - current.gridY;
+    }
+}
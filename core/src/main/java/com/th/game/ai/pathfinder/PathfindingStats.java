@@ -0,0 +1,221 @@
+package com.th.game.ai.pathfinder;
+
+import com.th.game.util.RefreshCause;
+
+import java.util.Arrays;
+
+/**
+ * Per-agent counters for where path finding time goes.
+ * <p>
+ * Records why paths were refreshed, how many searches ran and failed, and
+ * distributions of search time, expanded nodes and path length. Distributions are
+ * kept as power-of-two histograms, so recording is a few integer operations and the
+ * memory use is fixed. Read the values at runtime, or print them with {@link #dump(String)}.
+ */
+public class PathfindingStats {
+
+    /**
+     * A histogram with one bucket per power of two: bucket {@code k} counts values in
+     * {@code [2^(k-1), 2^k)}, and bucket 0 counts zeros.
+     */
+    public static class Histogram {
+        private final long[] buckets = new long[64];
+        private long count;
+        private long sum;
+        private long max;
+
+        /**
+         * @param value a non-negative sample; negative values are ignored
+         */
+        public void add(long value) {
+            if (value < 0) {
+                return;
+            }
+            buckets[64 - Long.numberOfLeadingZeros(value)]++;
+            count++;
+            sum += value;
+            max = Math.max(max, value);
+        }
+
+        /**
+         * @param bucket bucket index between 0 and 63
+         * @return number of samples in the bucket
+         */
+        public long getBucket(int bucket) {
+            return buckets[bucket];
+        }
+
+        /**
+         * @return number of samples
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return average sample, or 0 if there are none
+         */
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @return largest sample
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Returns an upper bound for a percentile: the exclusive end of the bucket the
+         * percentile falls into.
+         *
+         * @param fraction percentile between 0 and 1
+         * @return bucket end, or 0 if there are no samples
+         */
+        public long getPercentileBound(double fraction) {
+            long rank = (long) Math.ceil(fraction * count);
+            long seen = 0;
+            for (int bucket = 0; bucket < buckets.length; bucket++) {
+                seen += buckets[bucket];
+                if (seen >= rank && seen > 0) {
+                    return bucket == 0 ? 0 : Math.min(1L << bucket, max);
+                }
+            }
+            return 0;
+        }
+
+        void reset() {
+            Arrays.fill(buckets, 0);
+            count = 0;
+            sum = 0;
+            max = 0;
+        }
+
+        String summary(String unit) {
+            return "n=" + count + " mean=" + Math.round(getMean()) + unit
+                + " p50<=" + getPercentileBound(0.5) + unit
+                + " p95<=" + getPercentileBound(0.95) + unit
+                + " max=" + max + unit;
+        }
+    }
+
+    private final long[] refreshes = new long[RefreshCause.values().length];
+    private long searches;
+    private long failures;
+    private long totalSearchNanos;
+    private final Histogram searchMicros = new Histogram();
+    private final Histogram visitedNodes = new Histogram();
+    private final Histogram pathLength = new Histogram();
+
+    /**
+     * Counts a path refresh.
+     *
+     * @param cause why the path was refreshed
+     */
+    public void recordRefresh(RefreshCause cause) {
+        refreshes[cause.ordinal()]++;
+    }
+
+    /**
+     * Counts a finished search.
+     *
+     * @param found        whether a path was found
+     * @param searchNanos  time spent searching, summed over frames for time-sliced searches
+     * @param visited      nodes expanded, or -1 if the path finder does not report it
+     * @param length       nodes in the found path
+     */
+    public void recordSearch(boolean found, long searchNanos, int visited, int length) {
+        searches++;
+        totalSearchNanos += searchNanos;
+        searchMicros.add(searchNanos / 1000);
+        visitedNodes.add(visited);
+        if (found) {
+            pathLength.add(length);
+        } else {
+            failures++;
+        }
+    }
+
+    /**
+     * @param cause a refresh cause
+     * @return number of refreshes with that cause
+     */
+    public long getRefreshCount(RefreshCause cause) {
+        return refreshes[cause.ordinal()];
+    }
+
+    /**
+     * @return number of finished searches
+     */
+    public long getSearchCount() {
+        return searches;
+    }
+
+    /**
+     * @return number of searches that found no path
+     */
+    public long getFailureCount() {
+        return failures;
+    }
+
+    /**
+     * @return total time spent searching, in nanoseconds
+     */
+    public long getTotalSearchNanos() {
+        return totalSearchNanos;
+    }
+
+    /**
+     * @return search time per search, in microseconds
+     */
+    public Histogram getSearchMicros() {
+        return searchMicros;
+    }
+
+    /**
+     * @return nodes expanded per search
+     */
+    public Histogram getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    /**
+     * @return nodes per found path
+     */
+    public Histogram getPathLength() {
+        return pathLength;
+    }
+
+    /**
+     * Clears all counters.
+     */
+    public void reset() {
+        Arrays.fill(refreshes, 0);
+        searches = 0;
+        failures = 0;
+        totalSearchNanos = 0;
+        searchMicros.reset();
+        visitedNodes.reset();
+        pathLength.reset();
+    }
+
+    /**
+     * Prints a summary of all counters.
+     *
+     * @param label name of the agent the stats belong to
+     */
+    public void dump(String label) {
+        StringBuilder causes = new StringBuilder();
+        for (RefreshCause cause : RefreshCause.values()) {
+            causes.append(' ').append(cause).append('=').append(refreshes[cause.ordinal()]);
+        }
+        System.out.println("Pathfinding stats for " + label + ":");
+        System.out.println("  refreshes:" + causes);
+        System.out.println("  searches: " + searches + ", failed: " + failures
+            + ", total time: " + totalSearchNanos / 1000000 + " ms");
+        System.out.println("  search time: " + searchMicros.summary("us"));
+        System.out.println("  nodes expanded: " + visitedNodes.summary(""));
+        System.out.println("  path length: " + pathLength.summary(""));
+    }
+}
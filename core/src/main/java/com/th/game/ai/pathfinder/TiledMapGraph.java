@@ -3,105 +3,309 @@ package com.th.game.ai.pathfinder;
 import com.badlogic.gdx.ai.pfa.Connection;
 import com.badlogic.gdx.ai.pfa.DefaultConnection;
 import com.badlogic.gdx.ai.pfa.indexed.IndexedGraph;
-import com.badlogic.gdx.maps.tiled.TiledMap;
-import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
-import com.badlogic.gdx.utils.ObjectMap;
-import com.th.game.screens.GameScreen;
+import com.th.game.util.map.WalkabilityGrid;
+import java.util.Arrays;
 import java.util.Random;
 
 /**
  * An {@link IndexedGraph} implementation for A* pathfinding on a TiledMap.
  * Nodes are created for walkable tiles and connected to adjacent walkable neighbors.
+ * <p>
+ * Adjacency is stored in compressed sparse row form: node ids are dense ints, the
+ * neighbors of node {@code n} are {@code edgeTargets[edgeOffsets[n] .. edgeOffsets[n + 1])},
+ * and a flat {@code int[]} maps every grid cell to its node id. Custom searches can work
+ * on these arrays directly through the primitive accessors; the {@link Connection}
+ * objects gdx-ai needs are only materialized, per node, the first time
+ * {@link #getConnections(TiledNode)} asks for them.
+ * <p>
+ * A runtime tile change rebuilds the rows in place: the arrays only grow, so toggling
+ * tiles back and forth does not allocate them again. Node ids are only valid until the
+ * next rebuild.
+ * <p>
+ * Every cell, blocked or not, also records the node closest to it, so positions that
+ * land on walls or outside the map can be snapped onto the graph in constant time.
+ * Nodes are labelled with their connected component, so whether a path exists at all
+ * is also a constant-time check.
  */
 public class TiledMapGraph implements IndexedGraph<TiledNode> {
 
-    private final GameScreen gameScreen;
+    /** Value stored in the cell lookup for cells that have no node. */
+    public static final int NO_NODE = -1;
+
+    /**
+     * Receives a callback whenever a tile's walkability changes after the graph was built.
+     */
+    public interface ChangeListener {
+        /**
+         * Called after the graph has been rebuilt for the changed tile.
+         *
+         * @param gridX grid x-coordinate of the tile
+         * @param gridY grid y-coordinate of the tile
+         */
+        void onTileChanged(int gridX, int gridY);
+    }
+
+    private final WalkabilityGrid walkabilityGrid;
     private final int mapWidth;
     private final int mapHeight;
     private final int tileWidth;
     private final int tileHeight;
 
     private final Array<TiledNode> nodes;
-    private final Array<TiledNode> walkableNodes;
-    private final TiledNode[][] nodeMap;
-    private final ObjectMap<TiledNode, Array<Connection<TiledNode>>> connectionMap;
-    private final boolean[][] visitedTiles;
-    private final Random random = new Random();
+    private final int[] nodeIndexByCell;
+    private final int[] nearestNodeByCell;
+    private int[] cellByNode;
+    private int[] componentByNode;
+    private int componentCount;
+    private int[] edgeOffsets;
+    private int[] edgeTargets;
+    private int edgeCount;
+    private final int[] queue;
+    private Array<Connection<TiledNode>>[] connectionCache;
+    private final Array<ChangeListener> changeListeners = new Array<>();
+    private int version;
 
     /**
-     * Constructs a graph for the given TiledMap and game screen.
+     * Constructs a graph over the given walkability grid.
      *
-     * @param gameScreen the GameScreen used for walkability checks
-     * @param tiledMap   the TiledMap to build the graph from
+     * @param walkabilityGrid the precomputed walkability used to decide which tiles become nodes
      */
-    public TiledMapGraph(GameScreen gameScreen, TiledMap tiledMap) {
-        this.gameScreen = gameScreen;
-        this.mapWidth = tiledMap.getProperties().get("width", Integer.class);
-        this.mapHeight = tiledMap.getProperties().get("height", Integer.class);
-        this.tileWidth = tiledMap.getProperties().get("tilewidth", Integer.class);
-        this.tileHeight = tiledMap.getProperties().get("tileheight", Integer.class);
+    public TiledMapGraph(WalkabilityGrid walkabilityGrid) {
+        this.walkabilityGrid = walkabilityGrid;
+        this.mapWidth = walkabilityGrid.getWidth();
+        this.mapHeight = walkabilityGrid.getHeight();
+        this.tileWidth = walkabilityGrid.getTileWidth();
+        this.tileHeight = walkabilityGrid.getTileHeight();
 
         this.nodes = new Array<>();
-        this.walkableNodes = new Array<>();
-        this.nodeMap = new TiledNode[mapWidth][mapHeight];
-        this.connectionMap = new ObjectMap<>();
-        this.visitedTiles = new boolean[mapWidth][mapHeight];
+        this.nodeIndexByCell = new int[mapWidth * mapHeight];
+        this.nearestNodeByCell = new int[mapWidth * mapHeight];
+        this.queue = new int[mapWidth * mapHeight];
+        this.cellByNode = new int[0];
+        this.componentByNode = new int[0];
+        this.edgeOffsets = new int[1];
+        this.edgeTargets = new int[0];
     }
 
     /**
      * Builds nodes for each walkable tile and connects them to adjacent walkable neighbors.
+     * Arrays from an earlier build are reused when they are large enough.
      */
     public void buildGraph() {
+        nodes.clear();
         int index = 0;
         for (int y = 0; y < mapHeight; y++) {
             for (int x = 0; x < mapWidth; x++) {
                 float pixelX = x * tileWidth + tileWidth / 2f;
                 float pixelY = y * tileHeight + tileHeight / 2f;
-                Vector2 position = new Vector2(pixelX, pixelY);
-                if (gameScreen.isWalkable(position)) {
-                    TiledNode node = new TiledNode(index++, pixelX, pixelY, x, y);
-                    nodeMap[x][y] = node;
-                    nodes.add(node);
-                    walkableNodes.add(node);
+                int cell = y * mapWidth + x;
+                if (walkabilityGrid.isWalkable(pixelX, pixelY)) {
+                    nodes.add(new TiledNode(index, pixelX, pixelY, x, y));
+                    nodeIndexByCell[cell] = index++;
+                } else {
+                    nodeIndexByCell[cell] = NO_NODE;
                 }
             }
         }
 
-        for (TiledNode node : nodes) {
-            Array<Connection<TiledNode>> connections = new Array<>();
-            int x = node.gridX;
-            int y = node.gridY;
-            addConnection(connections, node, x + 1, y);
-            addConnection(connections, node, x - 1, y);
-            addConnection(connections, node, x, y + 1);
-            addConnection(connections, node, x, y - 1);
-            connectionMap.put(node, connections);
+        int nodeCount = nodes.size;
+        if (cellByNode.length < nodeCount) {
+            cellByNode = new int[nodeCount];
+            componentByNode = new int[nodeCount];
+            edgeOffsets = new int[nodeCount + 1];
+        }
+
+        // First pass counts edges so the neighbor array is sized before it is filled
+        edgeCount = 0;
+        for (int n = 0; n < nodeCount; n++) {
+            TiledNode node = nodes.get(n);
+            cellByNode[n] = node.gridY * mapWidth + node.gridX;
+            edgeOffsets[n] = edgeCount;
+            edgeCount += countNeighbor(node.gridX + 1, node.gridY)
+                + countNeighbor(node.gridX - 1, node.gridY)
+                + countNeighbor(node.gridX, node.gridY + 1)
+                + countNeighbor(node.gridX, node.gridY - 1);
+        }
+        edgeOffsets[nodeCount] = edgeCount;
+
+        if (edgeTargets.length < edgeCount) {
+            edgeTargets = new int[edgeCount];
+        }
+        int edge = 0;
+        for (int n = 0; n < nodeCount; n++) {
+            TiledNode node = nodes.get(n);
+            edge = addEdge(edge, node.gridX + 1, node.gridY);
+            edge = addEdge(edge, node.gridX - 1, node.gridY);
+            edge = addEdge(edge, node.gridX, node.gridY + 1);
+            edge = addEdge(edge, node.gridX, node.gridY - 1);
+        }
+
+        if (connectionCache == null || connectionCache.length < nodeCount) {
+            connectionCache = newConnectionCache(nodeCount);
+        } else {
+            // Cached connections point at the previous build's nodes
+            Arrays.fill(connectionCache, null);
+        }
+        buildNearestNodeTable();
+        labelComponents();
+    }
+
+    /**
+     * Gives every node the id of its connected component, one breadth-first search per
+     * component over the neighbor arrays.
+     */
+    private void labelComponents() {
+        int nodeCount = nodes.size;
+        Arrays.fill(componentByNode, 0, nodeCount, -1);
+        componentCount = 0;
+        for (int root = 0; root < nodeCount; root++) {
+            if (componentByNode[root] != -1) {
+                continue;
+            }
+            int head = 0;
+            int tail = 0;
+            componentByNode[root] = componentCount;
+            queue[tail++] = root;
+            while (head < tail) {
+                int node = queue[head++];
+                for (int edge = edgeOffsets[node]; edge < edgeOffsets[node + 1]; edge++) {
+                    int neighbor = edgeTargets[edge];
+                    if (componentByNode[neighbor] == -1) {
+                        componentByNode[neighbor] = componentCount;
+                        queue[tail++] = neighbor;
+                    }
+                }
+            }
+            componentCount++;
+        }
+    }
+
+    /**
+     * Fills {@code nearestNodeByCell} with a breadth-first search that starts from every
+     * node at once and spreads through blocked cells too. Each cell ends up owned by a
+     * node at the smallest number of 4-neighbor steps, which is its Manhattan-nearest node.
+     */
+    private void buildNearestNodeTable() {
+        int head = 0;
+        int tail = 0;
+        for (int cell = 0; cell < nearestNodeByCell.length; cell++) {
+            nearestNodeByCell[cell] = nodeIndexByCell[cell];
+            if (nodeIndexByCell[cell] != NO_NODE) {
+                queue[tail++] = cell;
+            }
+        }
+        while (head < tail) {
+            int cell = queue[head++];
+            int x = cell % mapWidth;
+            int y = cell / mapWidth;
+            tail = claimNearest(tail, cell, x + 1 < mapWidth ? cell + 1 : -1);
+            tail = claimNearest(tail, cell, x > 0 ? cell - 1 : -1);
+            tail = claimNearest(tail, cell, y + 1 < mapHeight ? cell + mapWidth : -1);
+            tail = claimNearest(tail, cell, y > 0 ? cell - mapWidth : -1);
+        }
+    }
+
+    private int claimNearest(int tail, int from, int cell) {
+        if (cell < 0 || nearestNodeByCell[cell] != NO_NODE) {
+            return tail;
         }
+        nearestNodeByCell[cell] = nearestNodeByCell[from];
+        queue[tail] = cell;
+        return tail + 1;
     }
 
     /**
-     * Adds a connection between two nodes if the target tile is walkable.
-     * Diagonal connections are not added.
+     * Opens or blocks a tile at runtime. The walkability grid is updated, the graph is
+     * rebuilt in place, its version is bumped and every {@link ChangeListener} is notified.
+     * Node ids and {@link TiledNode} instances may change and {@link #getNodeCount()} grows
+     * or shrinks by one, so callers must not keep ids across this call, and searches that
+     * size their state by node count (such as gdx-ai's {@code IndexedAStarPathFinder})
+     * must be created again. Listeners that work on grid cells can keep their state.
      *
-     * @param connections the list to add to
-     * @param from        the source node
-     * @param toX         grid x-coordinate of the target
-     * @param toY         grid y-coordinate of the target
+     * @param gridX    grid x-coordinate of the tile
+     * @param gridY    grid y-coordinate of the tile
+     * @param walkable the new state of the tile
      */
-    private void addConnection(Array<Connection<TiledNode>> connections,
-                               TiledNode from, int toX, int toY) {
-        if (toX < 0 || toX >= mapWidth || toY < 0 || toY >= mapHeight) {
+    public void setTileWalkable(int gridX, int gridY, boolean walkable) {
+        if (walkabilityGrid.isTileWalkable(gridX, gridY) == walkable) {
             return;
         }
-        TiledNode to = nodeMap[toX][toY];
-        if (to == null) {
-            return;
+        walkabilityGrid.setTileWalkable(gridX, gridY, walkable);
+        buildGraph();
+        version++;
+        for (int i = 0; i < changeListeners.size; i++) {
+            changeListeners.get(i).onTileChanged(gridX, gridY);
         }
-        boolean cardinal = (from.gridX == toX || from.gridY == toY);
-        if (cardinal) {
-            connections.add(new DefaultConnection<>(from, to));
+    }
+
+    /**
+     * Builds an independent copy of this graph over a copy of its walkability grid.
+     * Searches on another thread can use the copy while this graph keeps changing. To
+     * keep it current, replay the same {@link #setTileWalkable(int, int, boolean)} calls
+     * on it from the thread that searches it.
+     *
+     * @return a built graph with the same nodes, node indices and version
+     */
+    public TiledMapGraph snapshot() {
+        TiledMapGraph copy = new TiledMapGraph(new WalkabilityGrid(walkabilityGrid));
+        copy.buildGraph();
+        copy.version = version;
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Array<Connection<TiledNode>>[] newConnectionCache(int length) {
+        return (Array<Connection<TiledNode>>[]) new Array[length];
+    }
+
+    /**
+     * Registers a listener for runtime walkability changes.
+     *
+     * @param listener the listener to add
+     */
+    public void addChangeListener(ChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Removes a previously registered change listener.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeChangeListener(ChangeListener listener) {
+        changeListeners.removeValue(listener, true);
+    }
+
+    /**
+     * Returns a counter that increases every time the graph changes after its first build.
+     *
+     * @return the graph version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    private int countNeighbor(int x, int y) {
+        return getNodeIndex(x, y) != NO_NODE ? 1 : 0;
+    }
+
+    /**
+     * Appends an edge to the target tile if it has a node. Only the four cardinal
+     * neighbors are ever passed in, so no diagonal connections are added.
+     *
+     * @param edge next free slot in the neighbor array
+     * @param toX  grid x-coordinate of the target
+     * @param toY  grid y-coordinate of the target
+     * @return the next free slot after this call
+     */
+    private int addEdge(int edge, int toX, int toY) {
+        int to = getNodeIndex(toX, toY);
+        if (to == NO_NODE) {
+            return edge;
         }
+        edgeTargets[edge] = to;
+        return edge + 1;
     }
 
     /**
@@ -110,7 +314,7 @@ public class TiledMapGraph implements IndexedGraph<TiledNode> {
      * @return array of walkable nodes
      */
     public Array<TiledNode> getWalkableNodes() {
-        return walkableNodes;
+        return nodes;
     }
 
     /**
@@ -123,84 +327,75 @@ public class TiledMapGraph implements IndexedGraph<TiledNode> {
     public TiledNode getNodeAtWorldCoordinates(float x, float y) {
         int gridX = (int) (x / tileWidth);
         int gridY = (int) (y / tileHeight);
-        if (gridX < 0 || gridX >= mapWidth || gridY < 0 || gridY >= mapHeight) {
-            return null;
-        }
-        return nodeMap[gridX][gridY];
+        int index = getNodeIndex(gridX, gridY);
+        return index == NO_NODE ? null : nodes.get(index);
+    }
+
+    /**
+     * Returns the node closest to a world position. Positions on blocked tiles or outside
+     * the map resolve to the nearest walkable tile instead of failing.
+     *
+     * @param x world x-coordinate
+     * @param y world y-coordinate
+     * @return the nearest TiledNode, or null if the graph has no nodes
+     */
+    public TiledNode getNearestNode(float x, float y) {
+        int gridX = Math.max(0, Math.min(mapWidth - 1, (int) Math.floor(x / tileWidth)));
+        int gridY = Math.max(0, Math.min(mapHeight - 1, (int) Math.floor(y / tileHeight)));
+        int index = nearestNodeByCell[gridY * mapWidth + gridX];
+        return index == NO_NODE ? null : nodes.get(index);
     }
 
     /**
      * Returns a random walkable node, excluding border tiles.
      *
+     * @param random the caller's random source, so shared graphs stay read-only
      * @return a random TiledNode
      */
-    public TiledNode getRandomWalkableNode() {
+    public TiledNode getRandomWalkableNode(Random random) {
         Array<TiledNode> safe = new Array<>();
-        for (TiledNode node : walkableNodes) {
+        for (TiledNode node : nodes) {
             if (node.gridX > 0 && node.gridX < mapWidth - 1
                 && node.gridY > 0 && node.gridY < mapHeight - 1) {
                 safe.add(node);
             }
         }
-        Array<TiledNode> pool = safe.size > 0 ? safe : walkableNodes;
+        Array<TiledNode> pool = safe.size > 0 ? safe : nodes;
         return pool.get(random.nextInt(pool.size));
     }
 
     /**
-     * Marks a node as visited for unexplored-area tracking.
+     * Returns the connected component a node belongs to. Two nodes are connected by
+     * some path exactly when their components are equal.
      *
-     * @param node the node to mark
+     * @param nodeIndex the node id
+     * @return the component id, between 0 and {@link #getComponentCount()}
      */
-    public void markNodeVisited(TiledNode node) {
-        if (node != null) {
-            visitedTiles[node.gridX][node.gridY] = true;
-        }
+    public int getComponent(int nodeIndex) {
+        return componentByNode[nodeIndex];
     }
 
     /**
-     * Finds an unexplored node, preferring those farthest from current.
-     * Resets visited status if most nodes are explored.
+     * Determines in constant time whether a path exists between two nodes.
      *
-     * @param currentPosition current world position
-     * @return an unexplored TiledNode
+     * @param a first node
+     * @param b second node
+     * @return {@code true} if both nodes are in the same connected component
      */
-    public TiledNode getUnexploredNode(Vector2 currentPosition) {
-        TiledNode current = getNodeAtWorldCoordinates(currentPosition.x, currentPosition.y);
-        markNodeVisited(current);
-
-        Array<TiledNode> unexplored = new Array<>();
-        for (TiledNode node : walkableNodes) {
-            if (!visitedTiles[node.gridX][node.gridY]
-                && node.gridX > 0 && node.gridX < mapWidth - 1
-                && node.gridY > 0 && node.gridY < mapHeight - 1) {
-                unexplored.add(node);
-            }
-        }
-        if (unexplored.size < walkableNodes.size * 0.2f) {
-            resetVisitedStatus();
-            return getRandomWalkableNode();
-        }
-        unexplored.sort((a, b) -> Float.compare(
-            Vector2.dst(currentPosition.x, currentPosition.y, b.x, b.y),
-            Vector2.dst(currentPosition.x, currentPosition.y, a.x, a.y)
-        ));
-        int pick = Math.max(1, unexplored.size / 3);
-        return unexplored.get(random.nextInt(pick));
+    public boolean isConnected(TiledNode a, TiledNode b) {
+        return componentByNode[a.index] == componentByNode[b.index];
     }
 
     /**
-     * Resets visitation status for all nodes.
+     * @return number of connected components in the graph
      */
-    public void resetVisitedStatus() {
-        for (int x = 0; x < mapWidth; x++) {
-            for (int y = 0; y < mapHeight; y++) {
-                visitedTiles[x][y] = false;
-            }
-        }
+    public int getComponentCount() {
+        return componentCount;
     }
 
     /**
-     * Returns the total number of nodes in the graph.
+     * Returns the total number of nodes in the graph, which is the number of walkable
+     * tiles. It changes when {@link #setTileWalkable(int, int, boolean)} rebuilds the graph.
      *
      * @return node count
      */
@@ -215,7 +410,98 @@ public class TiledMapGraph implements IndexedGraph<TiledNode> {
 
     @Override
     public Array<Connection<TiledNode>> getConnections(TiledNode fromNode) {
-        return connectionMap.get(fromNode);
+        Array<Connection<TiledNode>> connections = connectionCache[fromNode.index];
+        if (connections == null) {
+            int from = edgeOffsets[fromNode.index];
+            int to = edgeOffsets[fromNode.index + 1];
+            connections = new Array<>(to - from);
+            for (int edge = from; edge < to; edge++) {
+                connections.add(new DefaultConnection<>(fromNode, nodes.get(edgeTargets[edge])));
+            }
+            connectionCache[fromNode.index] = connections;
+        }
+        return connections;
+    }
+
+    /**
+     * Returns the node id for a grid cell.
+     *
+     * @param gridX grid x-coordinate
+     * @param gridY grid y-coordinate
+     * @return the node id, or {@link #NO_NODE} if the cell is blocked or outside the map
+     */
+    public int getNodeIndex(int gridX, int gridY) {
+        if (gridX < 0 || gridX >= mapWidth || gridY < 0 || gridY >= mapHeight) {
+            return NO_NODE;
+        }
+        return nodeIndexByCell[gridY * mapWidth + gridX];
+    }
+
+    /**
+     * Returns the node id for a flat cell index ({@code gridY * width + gridX}).
+     *
+     * @param cell flat cell index inside the map
+     * @return the node id, or {@link #NO_NODE} if the cell is blocked
+     */
+    public int getNodeIndexForCell(int cell) {
+        return nodeIndexByCell[cell];
+    }
+
+    /**
+     * Returns the flat cell index ({@code gridY * width + gridX}) of a node.
+     *
+     * @param nodeIndex the node id
+     * @return the cell the node sits on
+     */
+    public int getCellIndex(int nodeIndex) {
+        return cellByNode[nodeIndex];
+    }
+
+    /**
+     * Returns the node with the given id.
+     *
+     * @param nodeIndex the node id
+     * @return the node
+     */
+    public TiledNode getNode(int nodeIndex) {
+        return nodes.get(nodeIndex);
+    }
+
+    /**
+     * Returns the first slot of a node's neighbors in {@link #getEdgeTarget(int)}.
+     *
+     * @param nodeIndex the node id
+     * @return inclusive start of the node's edge range
+     */
+    public int getEdgeStart(int nodeIndex) {
+        return edgeOffsets[nodeIndex];
+    }
+
+    /**
+     * Returns the end of a node's neighbors in {@link #getEdgeTarget(int)}.
+     *
+     * @param nodeIndex the node id
+     * @return exclusive end of the node's edge range
+     */
+    public int getEdgeEnd(int nodeIndex) {
+        return edgeOffsets[nodeIndex + 1];
+    }
+
+    /**
+     * Returns the node id an edge points to.
+     *
+     * @param edge an edge slot between {@link #getEdgeStart(int)} and {@link #getEdgeEnd(int)}
+     * @return the neighbor node id
+     */
+    public int getEdgeTarget(int edge) {
+        return edgeTargets[edge];
+    }
+
+    /**
+     * @return total number of directed edges in the graph
+     */
+    public int getEdgeCount() {
+        return edgeCount;
     }
 
     /**
@@ -0,0 +1,71 @@
+package com.th.game.database;
+
+import com.badlogic.gdx.utils.BooleanArray;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongArray;
+
+/**
+ * Treasure collection rows stored column by column in primitive arrays.
+ * <p>
+ * Row {@code i} is made of element {@code i} of every column. Compared to a list of
+ * {@link TreasureCollectionData}, a row costs 25 bytes and no objects, and the columns
+ * can be handed to array-based code directly through their {@code items}. Calling
+ * {@link #clear()} keeps the capacity, so one instance can be refilled without
+ * allocating.
+ * <p>
+ * Filled by {@link TrainingDataDAO#readCollectionColumnsByMap}. Hotspot loading reads the
+ * pre-aggregated heatmap instead, so nothing in the game uses the columns; they are kept
+ * as the public API for bulk reads of the raw history.
+ */
+public class CollectionColumns implements CollectionRowHandler {
+    /** Round numbers. */
+    public final IntArray roundNumber = new IntArray();
+    /** Treasure x-coordinates. */
+    public final FloatArray treasureX = new FloatArray();
+    /** Treasure y-coordinates. */
+    public final FloatArray treasureY = new FloatArray();
+    /** Collector x-coordinates. */
+    public final FloatArray collectorX = new FloatArray();
+    /** Collector y-coordinates. */
+    public final FloatArray collectorY = new FloatArray();
+    /** Whether the player, rather than the AI, collected the treasure. */
+    public final BooleanArray collectedByPlayer = new BooleanArray();
+    /** Collection times in milliseconds since epoch. */
+    public final LongArray timeStamp = new LongArray();
+
+    /**
+     * @return number of rows
+     */
+    public int size() {
+        return treasureX.size;
+    }
+
+    /**
+     * Removes all rows and keeps the allocated capacity.
+     */
+    public void clear() {
+        roundNumber.clear();
+        treasureX.clear();
+        treasureY.clear();
+        collectorX.clear();
+        collectorY.clear();
+        collectedByPlayer.clear();
+        timeStamp.clear();
+    }
+
+    /**
+     * Appends a row.
+     */
+    @Override
+    public void onRow(int roundNumber, float treasureX, float treasureY, float collectorX, float collectorY,
+                      boolean collectedByPlayer, long timeStamp) {
+        this.roundNumber.add(roundNumber);
+        this.treasureX.add(treasureX);
+        this.treasureY.add(treasureY);
+        this.collectorX.add(collectorX);
+        this.collectorY.add(collectorY);
+        this.collectedByPlayer.add(collectedByPlayer);
+        this.timeStamp.add(timeStamp);
+    }
+}
@@ -0,0 +1,21 @@
+package com.th.game.database;
+
+/**
+ * Receives treasure collection rows one at a time from a streaming query, without an
+ * object per row.
+ */
+public interface CollectionRowHandler {
+    /**
+     * Called once per row, in the order the database returns them.
+     *
+     * @param roundNumber        the round number during which the event occurred
+     * @param treasureX          x-coordinate of the treasure
+     * @param treasureY          y-coordinate of the treasure
+     * @param collectorX         x-coordinate of the collector
+     * @param collectorY         y-coordinate of the collector
+     * @param collectedByPlayer  true if collected by the player, false if by AI
+     * @param timeStamp          when the collection happened, in milliseconds since epoch
+     */
+    void onRow(int roundNumber, float treasureX, float treasureY, float collectorX, float collectorY,
+               boolean collectedByPlayer, long timeStamp);
+}
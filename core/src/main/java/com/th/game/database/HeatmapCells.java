@@ -0,0 +1,71 @@
+package com.th.game.database;
+
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongArray;
+
+/**
+ * The heatmap cells of one map, stored column by column in primitive arrays.
+ * <p>
+ * Cell {@code i} is made of element {@code i} of every column. A cell covers a square of
+ * {@link TrainingDataDAO#HEATMAP_CELL_SIZE} world units and holds the number of treasures
+ * collected in it by the player and by the AI, the mean treasure position and the latest
+ * collection time. Calling {@link #clear()} keeps the capacity.
+ */
+public class HeatmapCells {
+    /** Cell column, {@code floor(x / HEATMAP_CELL_SIZE)}. */
+    public final IntArray cellX = new IntArray();
+    /** Cell row, {@code floor(y / HEATMAP_CELL_SIZE)}. */
+    public final IntArray cellY = new IntArray();
+    /** Treasures collected in the cell by the player. */
+    public final IntArray playerCount = new IntArray();
+    /** Treasures collected in the cell by the AI. */
+    public final IntArray aiCount = new IntArray();
+    /** Mean x-coordinate of the treasures collected in the cell. */
+    public final FloatArray centerX = new FloatArray();
+    /** Mean y-coordinate of the treasures collected in the cell. */
+    public final FloatArray centerY = new FloatArray();
+    /** Latest collection time in the cell, in milliseconds since epoch. */
+    public final LongArray latestTimeStamp = new LongArray();
+
+    /**
+     * @return number of cells
+     */
+    public int size() {
+        return cellX.size;
+    }
+
+    /**
+     * @param index cell index
+     * @return treasures collected in the cell by anyone
+     */
+    public int totalCount(int index) {
+        return playerCount.get(index) + aiCount.get(index);
+    }
+
+    /**
+     * Removes all cells and keeps the allocated capacity.
+     */
+    public void clear() {
+        cellX.clear();
+        cellY.clear();
+        playerCount.clear();
+        aiCount.clear();
+        centerX.clear();
+        centerY.clear();
+        latestTimeStamp.clear();
+    }
+
+    /**
+     * Appends a cell.
+     */
+    void add(int cellX, int cellY, int playerCount, int aiCount, float centerX, float centerY, long latestTimeStamp) {
+        this.cellX.add(cellX);
+        this.cellY.add(cellY);
+        this.playerCount.add(playerCount);
+        this.aiCount.add(aiCount);
+        this.centerX.add(centerX);
+        this.centerY.add(centerY);
+        this.latestTimeStamp.add(latestTimeStamp);
+    }
+}
@@ -0,0 +1,184 @@
+package com.th.game.database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small pool of long-lived SQLite connections.
+ * <p>
+ * Connections are opened on first use and kept until {@link #close()}. Each one is
+ * switched to WAL journaling, so the game thread can write while a background thread
+ * reads, and uses {@code synchronous=NORMAL}, which only syncs at checkpoints instead of
+ * on every commit. Every connection keeps the statements prepared on it, so each SQL
+ * string is parsed once per connection. A borrowed connection belongs to one thread
+ * until it is closed, which returns it to the pool.
+ */
+public class SQLiteConnectionPool {
+    private static final String[] PRAGMAS = {
+        "PRAGMA journal_mode=WAL",
+        "PRAGMA synchronous=NORMAL",
+        "PRAGMA cache_size=-8000",
+        "PRAGMA temp_store=MEMORY",
+        "PRAGMA busy_timeout=5000"
+    };
+
+    /**
+     * A connection borrowed from the pool. Closing it returns it to the pool.
+     */
+    public static class PooledConnection implements AutoCloseable {
+        private final SQLiteConnectionPool pool;
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        PooledConnection(SQLiteConnectionPool pool, Connection connection) {
+            this.pool = pool;
+            this.connection = connection;
+        }
+
+        /**
+         * @return the underlying JDBC connection; do not close it directly
+         */
+        public Connection getConnection() {
+            return connection;
+        }
+
+        /**
+         * Returns the cached statement for the SQL, preparing it on first use. Parameters
+         * left over from the previous use are cleared.
+         *
+         * @param sql the statement text
+         * @return a statement owned by this connection; do not close it
+         * @throws SQLException if the statement cannot be prepared
+         */
+        public PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            } else {
+                statement.clearParameters();
+            }
+            return statement;
+        }
+
+        /**
+         * Returns the connection to the pool.
+         */
+        @Override
+        public void close() {
+            pool.release(this);
+        }
+
+        void closeQuietly() {
+            for (PreparedStatement statement : statements.values()) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    System.err.println("Error closing statement: " + e.getMessage());
+                }
+            }
+            statements.clear();
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing database connection: " + e.getMessage());
+            }
+        }
+    }
+
+    private final String url;
+    private final int size;
+    private final BlockingQueue<PooledConnection> idle;
+    private int opened;
+    private boolean closed;
+
+    /**
+     * @param url  JDBC URL of the database
+     * @param size most connections open at once
+     */
+    public SQLiteConnectionPool(String url, int size) {
+        this.url = url;
+        this.size = size;
+        this.idle = new ArrayBlockingQueue<>(size);
+    }
+
+    /**
+     * Borrows a connection, opening a new one if none is idle and the pool is not full,
+     * and waiting otherwise.
+     *
+     * @return a connection for the calling thread; close it to give it back
+     * @throws SQLException if a connection cannot be opened or the pool is closed
+     */
+    public PooledConnection acquire() throws SQLException {
+        PooledConnection pooled = idle.poll();
+        if (pooled != null) {
+            return pooled;
+        }
+        synchronized (this) {
+            if (closed) {
+                throw new SQLException("Connection pool is closed");
+            }
+            if (opened < size) {
+                pooled = open();
+                opened++;
+                return pooled;
+            }
+        }
+        try {
+            while (true) {
+                pooled = idle.poll(100, TimeUnit.MILLISECONDS);
+                if (pooled != null) {
+                    return pooled;
+                }
+                synchronized (this) {
+                    if (closed) {
+                        throw new SQLException("Connection pool is closed");
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+    }
+
+    /**
+     * Closes every connection. Connections still borrowed are closed when they are returned.
+     */
+    public synchronized void close() {
+        closed = true;
+        PooledConnection pooled;
+        while ((pooled = idle.poll()) != null) {
+            pooled.closeQuietly();
+        }
+    }
+
+    private synchronized void release(PooledConnection pooled) {
+        if (closed) {
+            pooled.closeQuietly();
+            return;
+        }
+        idle.offer(pooled);
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection connection = DriverManager.getConnection(url);
+        try (Statement statement = connection.createStatement()) {
+            for (String pragma : PRAGMAS) {
+                statement.execute(pragma);
+            }
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return new PooledConnection(this, connection);
+    }
+}
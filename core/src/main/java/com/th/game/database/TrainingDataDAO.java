@@ -8,17 +8,193 @@ import com.badlogic.gdx.math.Vector2;
 /**
  * Data Access Object (DAO) for managing treasure collection training data.
  * Handles database initialization, insertion, and querying of collection events.
+ * A per-map heatmap of collection counts is kept up to date by triggers as events are stored.
+ * Connections stay open between calls and each SQL statement is prepared once per connection;
+ * call {@link #shutdown()} when the game screen goes away.
  */
 public class TrainingDataDAO {
     /** database connection URL for the SQLite database file. */
     private static final String DB_URL = "jdbc:sqlite:treasure_hunt_game.db";
 
+    /** Database the pool connects to; {@link #DB_URL} unless changed by {@link #useDatabase(String)}. */
+    private static String databaseUrl = DB_URL;
+
+    /** Connections kept open: one for the game thread's writes, one for background reads. */
+    private static final int POOL_SIZE = 2;
+
+    private static final String SQL_INSERT = "INSERT INTO treasure_collections(" +
+        "round_number, map_name, treasure_x, treasure_y, collector_x, collector_y, " +
+        "collected_by_player, timestamp) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SQL_SELECT_BY_MAP = "SELECT round_number, map_name, treasure_x, treasure_y, " +
+        "collector_x, collector_y, collected_by_player, timestamp " +
+        "FROM treasure_collections WHERE map_name = ?";
+
+    /** Column order matches {@link CollectionRowHandler#onRow}. */
+    private static final String SQL_STREAM_BY_MAP = "SELECT round_number, treasure_x, treasure_y, " +
+        "collector_x, collector_y, collected_by_player, timestamp " +
+        "FROM treasure_collections WHERE map_name = ?";
+
+    /** Rows the driver fetches per round trip when streaming. */
+    public static final int DEFAULT_FETCH_SIZE = 1024;
+
+    /** Bounding box on the (map_name, treasure_x, treasure_y) index, then the circle. */
+    private static final String SQL_SELECT_NEAR = "SELECT round_number, map_name, treasure_x, treasure_y, " +
+        "collector_x, collector_y, collected_by_player, timestamp " +
+        "FROM treasure_collections " +
+        "WHERE map_name = ? " +
+        "AND treasure_x BETWEEN ? AND ? " +
+        "AND treasure_y BETWEEN ? AND ? " +
+        "AND (treasure_x - ?) * (treasure_x - ?) + (treasure_y - ?) * (treasure_y - ?) <= ?";
+
+    /** Bounding box on the R*Tree and map on its auxiliary column, then the circle on the matching rows. */
+    private static final String SQL_SELECT_NEAR_RTREE = "SELECT t.round_number, t.map_name, t.treasure_x, " +
+        "t.treasure_y, t.collector_x, t.collector_y, t.collected_by_player, t.timestamp " +
+        "FROM treasure_collections_rtree r JOIN treasure_collections t ON t.id = r.id " +
+        "WHERE r.max_x >= ? AND r.min_x <= ? " +
+        "AND r.max_y >= ? AND r.min_y <= ? " +
+        "AND r.map_name = ? " +
+        "AND (t.treasure_x - ?) * (t.treasure_x - ?) + (t.treasure_y - ?) * (t.treasure_y - ?) <= ?";
+
+    private static final String[] SQL_CREATE_INDEXES = {
+        "CREATE INDEX IF NOT EXISTS idx_treasure_collections_map_xy " +
+            "ON treasure_collections (map_name, treasure_x, treasure_y)"
+    };
+
+    private static final String[] SQL_CREATE_RTREE = {
+        "CREATE VIRTUAL TABLE IF NOT EXISTS treasure_collections_rtree " +
+            "USING rtree(id, min_x, max_x, min_y, max_y, +map_name)",
+        "CREATE TRIGGER IF NOT EXISTS treasure_collections_rtree_insert " +
+            "AFTER INSERT ON treasure_collections BEGIN " +
+            "INSERT INTO treasure_collections_rtree VALUES " +
+            "(new.id, new.treasure_x, new.treasure_x, new.treasure_y, new.treasure_y, new.map_name); END",
+        "CREATE TRIGGER IF NOT EXISTS treasure_collections_rtree_delete " +
+            "AFTER DELETE ON treasure_collections BEGIN " +
+            "DELETE FROM treasure_collections_rtree WHERE id = old.id; END",
+        // Rows stored before the R*Tree existed
+        "INSERT INTO treasure_collections_rtree " +
+            "SELECT id, treasure_x, treasure_x, treasure_y, treasure_y, map_name FROM treasure_collections " +
+            "WHERE id > (SELECT IFNULL(MAX(id), 0) FROM treasure_collections_rtree)"
+    };
+
     /**
-     * Ensures the database and the treasure_collections table exist.
+     * Side length of a heatmap cell in world units, about the radius of an AI hotspot.
+     * Existing heatmaps must be rebuilt with {@link #rebuildHeatmap()} after changing it.
+     */
+    public static final float HEATMAP_CELL_SIZE = 150f;
+
+    private static final String SQL_CREATE_HEATMAP_TABLE = "CREATE TABLE IF NOT EXISTS treasure_heatmap (" +
+        "map_name TEXT NOT NULL, " +
+        "cell_x INTEGER NOT NULL, cell_y INTEGER NOT NULL, " +
+        "player_count INTEGER NOT NULL, ai_count INTEGER NOT NULL, " +
+        "sum_x REAL NOT NULL, sum_y REAL NOT NULL, " +
+        "latest_timestamp INTEGER NOT NULL, " +
+        "PRIMARY KEY (map_name, cell_x, cell_y)" +
+        ") WITHOUT ROWID";
+
+    /** Triggers run inside the inserting statement, so the heatmap commits or rolls back with the row. */
+    private static final String[] SQL_CREATE_HEATMAP_TRIGGERS = {
+        "CREATE TRIGGER IF NOT EXISTS treasure_heatmap_insert " +
+            "AFTER INSERT ON treasure_collections BEGIN " +
+            "INSERT INTO treasure_heatmap VALUES (new.map_name, " +
+            cellOf("new.treasure_x") + ", " + cellOf("new.treasure_y") + ", " +
+            "new.collected_by_player <> 0, new.collected_by_player = 0, " +
+            "new.treasure_x, new.treasure_y, new.timestamp) " +
+            "ON CONFLICT (map_name, cell_x, cell_y) DO UPDATE SET " +
+            "player_count = player_count + excluded.player_count, " +
+            "ai_count = ai_count + excluded.ai_count, " +
+            "sum_x = sum_x + excluded.sum_x, sum_y = sum_y + excluded.sum_y, " +
+            "latest_timestamp = MAX(latest_timestamp, excluded.latest_timestamp); END",
+        // The latest timestamp of a cell is left alone; it only matters for recency weighting
+        "CREATE TRIGGER IF NOT EXISTS treasure_heatmap_delete " +
+            "AFTER DELETE ON treasure_collections BEGIN " +
+            "UPDATE treasure_heatmap SET " +
+            "player_count = player_count - (old.collected_by_player <> 0), " +
+            "ai_count = ai_count - (old.collected_by_player = 0), " +
+            "sum_x = sum_x - old.treasure_x, sum_y = sum_y - old.treasure_y " +
+            "WHERE map_name = old.map_name " +
+            "AND cell_x = " + cellOf("old.treasure_x") + " AND cell_y = " + cellOf("old.treasure_y") + "; " +
+            "DELETE FROM treasure_heatmap WHERE map_name = old.map_name " +
+            "AND cell_x = " + cellOf("old.treasure_x") + " AND cell_y = " + cellOf("old.treasure_y") + " " +
+            "AND player_count + ai_count <= 0; END"
+    };
+
+    private static final String[] SQL_REBUILD_HEATMAP = {
+        "DELETE FROM treasure_heatmap",
+        "INSERT INTO treasure_heatmap " +
+            "SELECT map_name, " + cellOf("treasure_x") + ", " + cellOf("treasure_y") + ", " +
+            "SUM(collected_by_player <> 0), SUM(collected_by_player = 0), " +
+            "SUM(treasure_x), SUM(treasure_y), MAX(timestamp) " +
+            "FROM treasure_collections GROUP BY 1, 2, 3"
+    };
+
+    /** A database from before the heatmap existed has history but no cells. */
+    private static final String SQL_HEATMAP_MISSING = "SELECT EXISTS (SELECT 1 FROM treasure_collections) " +
+        "AND NOT EXISTS (SELECT 1 FROM treasure_heatmap)";
+
+    private static final String SQL_SELECT_HEATMAP_BY_MAP = "SELECT cell_x, cell_y, player_count, ai_count, " +
+        "sum_x, sum_y, latest_timestamp FROM treasure_heatmap WHERE map_name = ?";
+
+    /** Whether radius queries use the R*Tree; set by {@link #initializeDatabase(boolean)}. */
+    private static volatile boolean rtreeAvailable;
+
+    /** Shared connections, opened on first use and closed by {@link #shutdown()}. */
+    private static SQLiteConnectionPool pool;
+
+    /**
+     * Returns the shared connection pool, creating it if needed.
+     *
+     * @return the pool
+     */
+    private static synchronized SQLiteConnectionPool getPool() {
+        if (pool == null) {
+            pool = new SQLiteConnectionPool(databaseUrl, POOL_SIZE);
+        }
+        return pool;
+    }
+
+    /**
+     * Closes the shared database connections. A later call to any other method opens new ones.
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    /**
+     * Closes the shared connections and points later calls at another database, so
+     * tests and benchmarks can work on a scratch file instead of the game's data.
+     *
+     * @param url JDBC URL of the database to use from now on
+     */
+    public static synchronized void useDatabase(String url) {
+        shutdown();
+        databaseUrl = url;
+    }
+
+    /**
+     * Ensures the database, the treasure_collections table and its B-tree index exist.
      *
      * @throws SQLException if a database access error occurs
      */
     public static void initializeDatabase() throws SQLException {
+        initializeDatabase(false);
+    }
+
+    /**
+     * Ensures the database, the treasure_collections table and its spatial indexes exist.
+     * The composite (map_name, treasure_x, treasure_y) index is always created. The R*Tree
+     * index costs a trigger on every insert and, for a handful of maps, answers radius queries
+     * slower than the composite index, so it is only built on request. Without the R*Tree
+     * module, radius queries keep using the B-tree index.
+     *
+     * @param withRTree whether to build the R*Tree index, kept in sync by triggers, and query through it
+     * @throws SQLException if a database access error occurs
+     */
+    public static void initializeDatabase(boolean withRTree) throws SQLException {
         String sqlCreate = "CREATE TABLE IF NOT EXISTS treasure_collections (" +
             "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
             "round_number INTEGER, " +
@@ -28,11 +204,106 @@ public class TrainingDataDAO {
             "collected_by_player BOOLEAN, " +
             "timestamp INTEGER" +
             ")";
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement stmt = conn.prepareStatement(sqlCreate)) {
-            stmt.execute();
+        try (SQLiteConnectionPool.PooledConnection conn = getPool().acquire();
+             Statement stmt = conn.getConnection().createStatement()) {
+            stmt.execute(sqlCreate);
+            for (String sql : SQL_CREATE_INDEXES) {
+                stmt.execute(sql);
+            }
+            stmt.execute(SQL_CREATE_HEATMAP_TABLE);
+            for (String sql : SQL_CREATE_HEATMAP_TRIGGERS) {
+                stmt.execute(sql);
+            }
             System.out.println("Database initialized: treasure_collections table created (if not exists).");
         }
+
+        boolean heatmapMissing;
+        try (SQLiteConnectionPool.PooledConnection conn = getPool().acquire();
+             Statement stmt = conn.getConnection().createStatement();
+             ResultSet rs = stmt.executeQuery(SQL_HEATMAP_MISSING)) {
+            heatmapMissing = rs.next() && rs.getBoolean(1);
+        }
+        if (heatmapMissing) {
+            rebuildHeatmap();
+        }
+
+        rtreeAvailable = false;
+        if (!withRTree) {
+            return;
+        }
+        try (SQLiteConnectionPool.PooledConnection conn = getPool().acquire();
+             Statement stmt = conn.getConnection().createStatement()) {
+            for (String sql : SQL_CREATE_RTREE) {
+                stmt.execute(sql);
+            }
+            rtreeAvailable = true;
+        } catch (SQLException e) {
+            System.out.println("R*Tree index unavailable, using the B-tree index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recomputes the whole heatmap from the treasure_collections table in one transaction.
+     * Only needed for databases written before the heatmap existed, which
+     * {@link #initializeDatabase(boolean)} detects, or after changing {@link #HEATMAP_CELL_SIZE}.
+     *
+     * @throws SQLException if a database access error occurs
+     */
+    public static void rebuildHeatmap() throws SQLException {
+        try (SQLiteConnectionPool.PooledConnection conn = getPool().acquire();
+             Statement stmt = conn.getConnection().createStatement()) {
+            Connection connection = conn.getConnection();
+            connection.setAutoCommit(false);
+            try {
+                for (String sql : SQL_REBUILD_HEATMAP) {
+                    stmt.execute(sql);
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+            System.out.println("Treasure heatmap rebuilt from collection history.");
+        }
+    }
+
+    /**
+     * Appends the heatmap cells of a map. The number of cells depends on the map size,
+     * not on how much history has been recorded.
+     *
+     * @param mapName the name of the map to filter by
+     * @param out     receives the cells after any it already holds; clear it first to reuse it
+     * @return number of cells appended
+     * @throws SQLException if a database access error occurs
+     */
+    public static int readHeatmapByMap(String mapName, HeatmapCells out) throws SQLException {
+        int cells = 0;
+        try (SQLiteConnectionPool.PooledConnection conn = getPool().acquire()) {
+            PreparedStatement stmt = conn.prepare(SQL_SELECT_HEATMAP_BY_MAP);
+            stmt.setString(1, mapName);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int playerCount = rs.getInt(3);
+                    int aiCount = rs.getInt(4);
+                    int total = playerCount + aiCount;
+                    out.add(rs.getInt(1), rs.getInt(2), playerCount, aiCount,
+                        (float) (rs.getDouble(5) / total), (float) (rs.getDouble(6) / total), rs.getLong(7));
+                    cells++;
+                }
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Builds the SQL for the heatmap cell of a coordinate: {@code floor(column / HEATMAP_CELL_SIZE)}.
+     * The cast truncates towards zero, so negative coordinates off a cell boundary step down one.
+     */
+    private static String cellOf(String column) {
+        String truncated = "CAST(" + column + " / " + HEATMAP_CELL_SIZE + " AS INTEGER)";
+        return "(" + truncated + " - (" + column + " < " + truncated + " * " + HEATMAP_CELL_SIZE + "))";
     }
 
     /**
@@ -53,23 +324,31 @@ public class TrainingDataDAO {
         float minY = landmarkY - radius;
         float maxY = landmarkY + radius;
 
-        String sqlSelect = "SELECT round_number, map_name, treasure_x, treasure_y, " +
-            "collector_x, collector_y, collected_by_player, timestamp " +
-            "FROM treasure_collections " +
-            "WHERE map_name = ? " +
-            "AND treasure_x BETWEEN ? AND ? " +
-            "AND treasure_y BETWEEN ? AND ?";
-
         List<TreasureCollectionData> collections = new ArrayList<>();
 
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement stmt = conn.prepareStatement(sqlSelect)) {
-
-            stmt.setString(1, mapName);
-            stmt.setFloat(2, minX);
-            stmt.setFloat(3, maxX);
-            stmt.setFloat(4, minY);
-            stmt.setFloat(5, maxY);
+        try (SQLiteConnectionPool.PooledConnection conn = getPool().acquire()) {
+            PreparedStatement stmt;
+            if (rtreeAvailable) {
+                stmt = conn.prepare(SQL_SELECT_NEAR_RTREE);
+                stmt.setFloat(1, minX);
+                stmt.setFloat(2, maxX);
+                stmt.setFloat(3, minY);
+                stmt.setFloat(4, maxY);
+                stmt.setString(5, mapName);
+            } else {
+                stmt = conn.prepare(SQL_SELECT_NEAR);
+                stmt.setString(1, mapName);
+                stmt.setFloat(2, minX);
+                stmt.setFloat(3, maxX);
+                stmt.setFloat(4, minY);
+                stmt.setFloat(5, maxY);
+            }
+            // The circle itself is checked in SQL as well
+            stmt.setFloat(6, landmarkX);
+            stmt.setFloat(7, landmarkX);
+            stmt.setFloat(8, landmarkY);
+            stmt.setFloat(9, landmarkY);
+            stmt.setDouble(10, (double) radius * radius);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -78,15 +357,11 @@ public class TrainingDataDAO {
                     Vector2 treasurePos = new Vector2(rs.getFloat("treasure_x"), rs.getFloat("treasure_y"));
                     Vector2 collectorPos = new Vector2(rs.getFloat("collector_x"), rs.getFloat("collector_y"));
                     boolean byPlayer = rs.getBoolean("collected_by_player");
+                    long timeStamp = rs.getLong("timestamp");
 
-                    float distToLandmark = Vector2.dst(
-                        treasurePos.x, treasurePos.y, landmarkX, landmarkY);
-
-                    if (distToLandmark <= radius) {
-                        TreasureCollectionData data = new TreasureCollectionData(
-                            roundNumber, map, treasurePos, collectorPos, byPlayer);
-                        collections.add(data);
-                    }
+                    TreasureCollectionData data = new TreasureCollectionData(
+                        roundNumber, map, treasurePos, collectorPos, byPlayer, timeStamp);
+                    collections.add(data);
                 }
             }
         }
@@ -101,12 +376,8 @@ public class TrainingDataDAO {
      * @throws SQLException if a database access error occurs
      */
     public static void saveTreasureCollection(TreasureCollectionData data) throws SQLException {
-        String sqlInsert = "INSERT INTO treasure_collections(" +
-            "round_number, map_name, treasure_x, treasure_y, collector_x, collector_y, " +
-            "collected_by_player, timestamp) " +
-            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement stmt = conn.prepareStatement(sqlInsert)) {
+        try (SQLiteConnectionPool.PooledConnection conn = getPool().acquire()) {
+            PreparedStatement stmt = conn.prepare(SQL_INSERT);
             stmt.setInt(1, data.getRoundNumber());
             stmt.setString(2, data.getMapName());
             stmt.setFloat(3, data.getTreasurePosition().x);
@@ -120,6 +391,44 @@ public class TrainingDataDAO {
         }
     }
 
+    /**
+     * Persists several treasure collection events in a single transaction.
+     *
+     * @param batch the events to save; either all of them are stored or none
+     * @throws SQLException if a database access error occurs
+     */
+    public static void saveTreasureCollections(List<TreasureCollectionData> batch) throws SQLException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try (SQLiteConnectionPool.PooledConnection conn = getPool().acquire()) {
+            Connection connection = conn.getConnection();
+            PreparedStatement stmt = conn.prepare(SQL_INSERT);
+            connection.setAutoCommit(false);
+            try {
+                for (TreasureCollectionData data : batch) {
+                    stmt.setInt(1, data.getRoundNumber());
+                    stmt.setString(2, data.getMapName());
+                    stmt.setFloat(3, data.getTreasurePosition().x);
+                    stmt.setFloat(4, data.getTreasurePosition().y);
+                    stmt.setFloat(5, data.getCollectorPosition().x);
+                    stmt.setFloat(6, data.getCollectorPosition().y);
+                    stmt.setBoolean(7, data.isCollectedByPlayer());
+                    stmt.setLong(8, data.getTimeStamp());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                stmt.clearBatch();
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
     /**
      * Retrieves all treasure collection records from the database.
      *
@@ -157,12 +466,9 @@ public class TrainingDataDAO {
      * @throws SQLException if a database access error occurs
      */
     public static List<TreasureCollectionData> getCollectionDataByMap(String mapName) throws SQLException {
-        String sqlSelect = "SELECT round_number, map_name, treasure_x, treasure_y, " +
-            "collector_x, collector_y, collected_by_player, timestamp " +
-            "FROM treasure_collections WHERE map_name = ?";
         List<TreasureCollectionData> collections = new ArrayList<>();
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement stmt = conn.prepareStatement(sqlSelect)) {
+        try (SQLiteConnectionPool.PooledConnection conn = getPool().acquire()) {
+            PreparedStatement stmt = conn.prepare(SQL_SELECT_BY_MAP);
 
             stmt.setString(1, mapName);
             try (ResultSet rs = stmt.executeQuery()) {
@@ -172,13 +478,58 @@ public class TrainingDataDAO {
                     Vector2 treasurePos = new Vector2(rs.getFloat("treasure_x"), rs.getFloat("treasure_y"));
                     Vector2 collectorPos = new Vector2(rs.getFloat("collector_x"), rs.getFloat("collector_y"));
                     boolean byPlayer = rs.getBoolean("collected_by_player");
+                    long timeStamp = rs.getLong("timestamp");
 
                     TreasureCollectionData data = new TreasureCollectionData(
-                        roundNumber, map, treasurePos, collectorPos, byPlayer);
+                        roundNumber, map, treasurePos, collectorPos, byPlayer, timeStamp);
                     collections.add(data);
                 }
             }
         }
         return collections;
     }
+
+    /**
+     * Streams the treasure collection records of a map to a handler, one row at a time,
+     * without building an object per row.
+     * <p>The game itself loads hotspots from the heatmap ({@link #readHeatmapByMap}). This and
+     * {@link #readCollectionColumnsByMap} are kept on purpose as the public API for reading the
+     * raw history in bulk, e.g. for analysis or for a new aggregate, in place of
+     * {@link #getCollectionDataByMap}.</p>
+     *
+     * @param mapName   the name of the map to filter by
+     * @param fetchSize rows the driver fetches per round trip
+     * @param handler   receives every row on the calling thread
+     * @return number of rows passed to the handler
+     * @throws SQLException if a database access error occurs
+     */
+    public static int streamCollectionDataByMap(String mapName, int fetchSize, CollectionRowHandler handler)
+        throws SQLException {
+        int rows = 0;
+        try (SQLiteConnectionPool.PooledConnection conn = getPool().acquire()) {
+            PreparedStatement stmt = conn.prepare(SQL_STREAM_BY_MAP);
+            stmt.setFetchSize(fetchSize);
+            stmt.setString(1, mapName);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    handler.onRow(rs.getInt(1), rs.getFloat(2), rs.getFloat(3),
+                        rs.getFloat(4), rs.getFloat(5), rs.getBoolean(6), rs.getLong(7));
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Appends the treasure collection records of a map to primitive columns.
+     *
+     * @param mapName the name of the map to filter by
+     * @param out     receives the rows after any it already holds; clear it first to reuse it
+     * @return number of rows appended
+     * @throws SQLException if a database access error occurs
+     */
+    public static int readCollectionColumnsByMap(String mapName, CollectionColumns out) throws SQLException {
+        return streamCollectionDataByMap(mapName, DEFAULT_FETCH_SIZE, out);
+    }
 }
@@ -38,12 +38,28 @@ public class TreasureCollectionData {
      */
     public TreasureCollectionData(int roundNumber, String mapName, Vector2 treasurePosition,
                                   Vector2 collectorPosition, boolean collectedByPlayer) {
+        this(roundNumber, mapName, treasurePosition, collectorPosition, collectedByPlayer,
+            System.currentTimeMillis());
+    }
+
+    /**
+     * Constructs a TreasureCollectionData instance for an event recorded earlier.
+     *
+     * @param roundNumber         the round number during which the event occurred
+     * @param mapName             the name of the map
+     * @param treasurePosition    the position of the treasure at collection time
+     * @param collectorPosition   the position of the collector at collection time
+     * @param collectedByPlayer   true if collected by the player, false if by AI
+     * @param timeStamp           when the collection happened, in milliseconds since epoch
+     */
+    public TreasureCollectionData(int roundNumber, String mapName, Vector2 treasurePosition,
+                                  Vector2 collectorPosition, boolean collectedByPlayer, long timeStamp) {
         this.roundNumber = roundNumber;
         this.mapName = mapName;
         this.treasurePosition = new Vector2(treasurePosition);
         this.collectorPosition = new Vector2(collectorPosition);
         this.collectedByPlayer = collectedByPlayer;
-        this.timeStamp = System.currentTimeMillis();
+        this.timeStamp = timeStamp;
     }
 
     /**
@@ -0,0 +1,460 @@
+package com.th.game.database;
+
+import com.badlogic.gdx.math.Vector2;
+import com.th.game.util.WriteBackpressure;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Saves treasure collection events in the background, so opening a chest never waits on
+ * the database.
+ * <p>
+ * {@link #submit(TreasureCollectionData)} puts the event into a bounded lock-free queue and
+ * returns. A single writer thread drains the queue into multi-row transactions once a
+ * batch is full, once the oldest event has waited for the flush interval, or when
+ * {@link #flush()} asks for it. When the queue is full, the {@link WriteBackpressure}
+ * decides whether the caller waits, the event is dropped, or it is appended to a spill
+ * file that the writer replays into the database later. {@link #close()} writes
+ * everything that is still queued before it returns.
+ */
+public class TreasureCollectionWriter {
+    /** Events the queue holds before backpressure applies. */
+    public static final int DEFAULT_CAPACITY = 1024;
+    /** Most events written in one transaction. */
+    public static final int DEFAULT_BATCH_SIZE = 64;
+    /** Longest an event waits in the queue before it is written. */
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+    /** Events that did not fit into the queue, waiting to be replayed. */
+    public static final String DEFAULT_SPILL_FILE = "treasure_collections.spill";
+
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+    private static final long REPLAY_RETRY_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    /**
+     * A queued event with the time it was submitted.
+     */
+    private static class Pending {
+        final TreasureCollectionData data;
+        final long submittedNanos;
+
+        Pending(TreasureCollectionData data, long submittedNanos) {
+            this.data = data;
+            this.submittedNanos = submittedNanos;
+        }
+    }
+
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final WriteBackpressure backpressure;
+    private final Path spillFile;
+
+    private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private final Object spillLock = new Object();
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile boolean flushRequested;
+    private volatile boolean spillPending;
+    private long replayNotBeforeNanos;
+
+    // Counters; the write statistics are only updated by the writer thread
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private volatile long written;
+    private volatile long failed;
+    private volatile long batches;
+    private volatile int maxBatch;
+    private volatile long latencySamples;
+    private volatile long totalLatencyNanos;
+    private volatile long maxLatencyNanos;
+    private volatile long totalCommitNanos;
+
+    /**
+     * Creates a writer with the default capacity, batch size, flush interval and spill file.
+     *
+     * @param backpressure what to do with events that do not fit into the queue
+     */
+    public TreasureCollectionWriter(WriteBackpressure backpressure) {
+        this(DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS, backpressure,
+            Paths.get(DEFAULT_SPILL_FILE));
+    }
+
+    /**
+     * Creates a writer and starts its thread. Events left in the spill file by an earlier
+     * session are replayed.
+     *
+     * @param capacity             events the queue holds before backpressure applies
+     * @param batchSize            most events written in one transaction
+     * @param flushIntervalMillis  longest an event waits before it is written
+     * @param backpressure         what to do with events that do not fit into the queue
+     * @param spillFile            where {@link WriteBackpressure#SPILL_TO_DISK} appends overflowing events
+     */
+    public TreasureCollectionWriter(int capacity, int batchSize, long flushIntervalMillis,
+                                    WriteBackpressure backpressure, Path spillFile) {
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.backpressure = backpressure;
+        this.spillFile = spillFile;
+        this.spillPending = Files.exists(spillFile);
+        this.writer = new Thread(this::run, "treasure-collection-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues an event for writing. Never touches the database on the calling thread.
+     *
+     * @param data the event to save
+     * @return {@code false} if the event was dropped because the queue was full or the writer is closed
+     */
+    public boolean submit(TreasureCollectionData data) {
+        submitted.incrementAndGet();
+        if (!running) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        while (true) {
+            int size = queueSize.get();
+            if (size < capacity) {
+                if (queueSize.compareAndSet(size, size + 1)) {
+                    break;
+                }
+                continue;
+            }
+            // The queue is full
+            if (backpressure == WriteBackpressure.DROP) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            if (backpressure == WriteBackpressure.SPILL_TO_DISK) {
+                return spill(Collections.singletonList(data));
+            }
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            if (!running) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        }
+
+        queue.offer(new Pending(data, System.nanoTime()));
+        int depth = queueSize.get();
+        maxQueueDepth.accumulateAndGet(depth, Math::max);
+        if (depth >= batchSize) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    /**
+     * Asks the writer to write everything queued now instead of waiting for a full batch
+     * or the flush interval. Does not wait for the write.
+     */
+    public void flush() {
+        flushRequested = true;
+        LockSupport.unpark(writer);
+    }
+
+    /**
+     * Writes every queued event and stops the writer thread. Events that still cannot be
+     * written are spilled to disk if the backpressure allows it.
+     */
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            System.err.println("Treasure collection writer did not finish within " + CLOSE_TIMEOUT_MILLIS + " ms");
+            return;
+        }
+        // Only left over if the database failed on the last attempt
+        List<TreasureCollectionData> rest = new ArrayList<>();
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            rest.add(pending.data);
+        }
+        if (!rest.isEmpty() && !spillOrDrop(rest)) {
+            System.err.println("Lost " + rest.size() + " treasure collection events on shutdown");
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        List<TreasureCollectionData> rows = new ArrayList<>(batchSize);
+        while (true) {
+            boolean stopping = !running;
+            Pending oldest = queue.peek();
+            boolean due = oldest != null && (stopping || flushRequested || queueSize.get() >= batchSize
+                || System.nanoTime() - oldest.submittedNanos >= flushIntervalNanos);
+
+            if (due) {
+                batch.clear();
+                Pending pending;
+                while (batch.size() < batchSize && (pending = queue.poll()) != null) {
+                    queueSize.decrementAndGet();
+                    batch.add(pending);
+                }
+                if (queue.isEmpty()) {
+                    flushRequested = false;
+                }
+                rows.clear();
+                for (Pending queued : batch) {
+                    rows.add(queued.data);
+                }
+                if (!write(rows, batch) && backpressure == WriteBackpressure.SPILL_TO_DISK) {
+                    spill(rows);
+                }
+                continue;
+            }
+
+            if (spillPending && System.nanoTime() - replayNotBeforeNanos >= 0) {
+                replaySpill();
+            }
+            if (stopping) {
+                return;
+            }
+            long waitNanos = oldest == null ? flushIntervalNanos
+                : flushIntervalNanos - (System.nanoTime() - oldest.submittedNanos);
+            LockSupport.parkNanos(Math.max(waitNanos, 1));
+        }
+    }
+
+    /**
+     * Writes one transaction and records its statistics.
+     *
+     * @param submittedAt the queued events, for latency; may be {@code null} for replayed rows
+     * @return {@code true} if the rows were committed
+     */
+    private boolean write(List<TreasureCollectionData> rows, List<Pending> submittedAt) {
+        long start = System.nanoTime();
+        try {
+            TrainingDataDAO.saveTreasureCollections(rows);
+        } catch (SQLException e) {
+            System.err.println("Error writing " + rows.size() + " treasure collection events: " + e.getMessage());
+            failed += rows.size();
+            return false;
+        }
+        long end = System.nanoTime();
+        written += rows.size();
+        batches++;
+        maxBatch = Math.max(maxBatch, rows.size());
+        totalCommitNanos += end - start;
+        if (submittedAt != null) {
+            for (Pending pending : submittedAt) {
+                long latency = end - pending.submittedNanos;
+                latencySamples++;
+                totalLatencyNanos += latency;
+                maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+            }
+        }
+        return true;
+    }
+
+    private boolean spillOrDrop(List<TreasureCollectionData> rows) {
+        if (backpressure == WriteBackpressure.SPILL_TO_DISK) {
+            return spill(rows);
+        }
+        dropped.addAndGet(rows.size());
+        return false;
+    }
+
+    /**
+     * Appends events to the spill file, one tab-separated line each.
+     */
+    private boolean spill(List<TreasureCollectionData> rows) {
+        List<String> lines = new ArrayList<>(rows.size());
+        for (TreasureCollectionData data : rows) {
+            lines.add(data.getRoundNumber() + "\t" + data.getMapName()
+                + "\t" + data.getTreasurePosition().x + "\t" + data.getTreasurePosition().y
+                + "\t" + data.getCollectorPosition().x + "\t" + data.getCollectorPosition().y
+                + "\t" + data.isCollectedByPlayer() + "\t" + data.getTimeStamp());
+        }
+        synchronized (spillLock) {
+            try {
+                Files.write(spillFile, lines, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                System.err.println("Error spilling treasure collection events: " + e.getMessage());
+                dropped.addAndGet(rows.size());
+                return false;
+            }
+            spillPending = true;
+        }
+        spilled.addAndGet(rows.size());
+        return true;
+    }
+
+    /**
+     * Moves the spilled events into the database, once the queue has caught up.
+     */
+    private void replaySpill() {
+        List<String> lines;
+        synchronized (spillLock) {
+            spillPending = false;
+            try {
+                if (!Files.exists(spillFile)) {
+                    return;
+                }
+                lines = Files.readAllLines(spillFile, StandardCharsets.UTF_8);
+                Files.delete(spillFile);
+            } catch (IOException e) {
+                System.err.println("Error reading spilled treasure collection events: " + e.getMessage());
+                return;
+            }
+        }
+
+        List<TreasureCollectionData> rows = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            String[] fields = line.split("\t");
+            try {
+                rows.add(new TreasureCollectionData(Integer.parseInt(fields[0]), fields[1],
+                    new Vector2(Float.parseFloat(fields[2]), Float.parseFloat(fields[3])),
+                    new Vector2(Float.parseFloat(fields[4]), Float.parseFloat(fields[5])),
+                    Boolean.parseBoolean(fields[6]), Long.parseLong(fields[7])));
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                System.err.println("Skipping malformed spilled event: " + line);
+            }
+        }
+
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            List<TreasureCollectionData> batch = rows.subList(from, Math.min(from + batchSize, rows.size()));
+            if (!write(batch, null)) {
+                // Keep the rest for a later attempt
+                spill(rows.subList(from, rows.size()));
+                replayNotBeforeNanos = System.nanoTime() + REPLAY_RETRY_NANOS;
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return events waiting in the queue
+     */
+    public int getQueueDepth() {
+        return queueSize.get();
+    }
+
+    /**
+     * @return deepest the queue has been
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * @return events passed to {@link #submit(TreasureCollectionData)}
+     */
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    /**
+     * @return events committed to the database, including replayed ones
+     */
+    public long getWrittenCount() {
+        return written;
+    }
+
+    /**
+     * @return events dropped because the queue was full, the writer was closed or spilling failed
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return events appended to the spill file
+     */
+    public long getSpilledCount() {
+        return spilled.get();
+    }
+
+    /**
+     * @return events in transactions that failed
+     */
+    public long getFailedCount() {
+        return failed;
+    }
+
+    /**
+     * @return committed transactions
+     */
+    public long getBatchCount() {
+        return batches;
+    }
+
+    /**
+     * @return average events per committed transaction
+     */
+    public double getMeanBatchSize() {
+        return batches == 0 ? 0 : (double) written / batches;
+    }
+
+    /**
+     * @return most events in one committed transaction
+     */
+    public int getMaxBatchSize() {
+        return maxBatch;
+    }
+
+    /**
+     * @return average time from submit to commit, in milliseconds, over queued events
+     */
+    public double getMeanLatencyMillis() {
+        return latencySamples == 0 ? 0 : totalLatencyNanos / 1e6 / latencySamples;
+    }
+
+    /**
+     * @return longest time from submit to commit, in milliseconds
+     */
+    public double getMaxLatencyMillis() {
+        return maxLatencyNanos / 1e6;
+    }
+
+    /**
+     * @return average duration of a transaction, in milliseconds
+     */
+    public double getMeanCommitMillis() {
+        return batches == 0 ? 0 : totalCommitNanos / 1e6 / batches;
+    }
+
+    /**
+     * Prints queue depth, batch size and write latency.
+     */
+    public void dump() {
+        System.out.println("Treasure collection writer: submitted " + getSubmittedCount()
+            + ", written " + getWrittenCount() + ", dropped " + getDroppedCount()
+            + ", spilled " + getSpilledCount() + ", failed " + getFailedCount());
+        System.out.println("  queue depth: " + getQueueDepth() + " (max " + getMaxQueueDepth() + ")"
+            + ", batches: " + getBatchCount() + " (mean " + String.format("%.1f", getMeanBatchSize())
+            + ", max " + getMaxBatchSize() + ")");
+        System.out.println("  latency: mean " + String.format("%.1f", getMeanLatencyMillis()) + " ms, max "
+            + String.format("%.1f", getMaxLatencyMillis()) + " ms, commit mean "
+            + String.format("%.2f", getMeanCommitMillis()) + " ms");
+    }
+}
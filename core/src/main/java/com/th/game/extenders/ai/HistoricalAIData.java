@@ -2,13 +2,18 @@ package com.th.game.extenders.ai;
 
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.IntArray;
 import com.th.game.ai.SmartAI;
+import com.th.game.database.HeatmapCells;
 import com.th.game.database.TrainingDataDAO;
-import com.th.game.database.TreasureCollectionData;
 import com.th.game.entities.Landmark;
 
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Manages AI behavior based on historical treasure collection data.
@@ -22,6 +27,15 @@ public class HistoricalAIData {
     private static final float MAX_ROAMING_DURATION = 15f;
     private static final float LOCATION_HOTSPOT_RADIUS = 150f;
     private static final int MAX_CACHED_LOCATIONS = 50;
+    private static final int MIN_CLUSTER_POINTS = 2;
+    private static final long RECENCY_HALF_LIFE_MS = 7L * 24 * 60 * 60 * 1000;
+
+    // One loader thread for all AIs; database reads and clustering never run on the game thread
+    private static final ExecutorService HOTSPOT_LOADER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "hotspot-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     // Movement state tracking
     private String currentMapName;
@@ -31,13 +45,15 @@ public class HistoricalAIData {
     private float currentRoamingDuration = 15f;
     private boolean isRoaming = false;
     private boolean hasProcessedHint = false;
-    private Vector2 lastDatabaseTarget = null;
+    private final Vector2 lastDatabaseTarget = new Vector2();
+    private boolean hasLastDatabaseTarget = false;
 
     // Hint following
     private boolean isFollowingHint = false;
     private float hintFollowDuration = 30f;
     private float hintFollowTimer = 0f;
     private Vector2 hintLandmarkPosition = null;
+    private final Vector2 targetScratch = new Vector2();
     private float hintSearchRadius = 50f;
     private float maxHintSearchRadius = 300f;
     private float hintSearchExpansionRate = 25f;
@@ -45,15 +61,42 @@ public class HistoricalAIData {
 
     // Cached locations from database
     private List<Vector2> treasureHotspots = new ArrayList<>();
-    private List<Vector2> visitedHotspots = new ArrayList<>();
+    // Spatial lookups; point i of hotspotIndex is treasureHotspots.get(i)
+    private final HotspotIndex hotspotIndex = new HotspotIndex(LOCATION_HOTSPOT_RADIUS);
+    private final HotspotIndex visitedHotspots = new HotspotIndex(LOCATION_HOTSPOT_RADIUS);
+    private final IntArray hotspotQuery = new IntArray();
+
+    // Background load; the result is swapped in on the game thread by pollHotspotLoad
+    private CompletableFuture<HotspotLoad> hotspotLoad;
+    private final long loadStartNanos;
+    private long hotspotLoadMillis = -1;
 
     /**
-     * Creates a new database manager for enhancing AI behavior
+     * Hotspots selected by the loader thread, with the time it took.
+     */
+    private static class HotspotLoad {
+        final List<Vector2> hotspots;
+        final long loadMillis;
+
+        HotspotLoad(List<Vector2> hotspots, long loadMillis) {
+            this.hotspots = hotspots;
+            this.loadMillis = loadMillis;
+        }
+    }
+
+    /**
+     * Creates a new database manager for enhancing AI behavior.
+     * Hotspots are loaded in the background; until they arrive the AI explores.
      */
     public HistoricalAIData(SmartAI smartAI, String mapName) {
         this.smartAI = smartAI;
         this.currentMapName = mapName;
-        loadTreasureHotspotsFromDatabase();
+        this.loadStartNanos = System.nanoTime();
+        this.hotspotLoad = CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            List<Vector2> hotspots = loadTreasureHotspotsFromDatabase(mapName);
+            return new HotspotLoad(hotspots, (System.nanoTime() - start) / 1000000);
+        }, HOTSPOT_LOADER);
 
         // Set initial roaming duration
         currentRoamingDuration = MIN_ROAMING_DURATION +
@@ -61,35 +104,35 @@ public class HistoricalAIData {
     }
 
     /**
-     * Loads treasure collection locations from the database
+     * Loads treasure collection locations from the database and selects hotspots.
+     * Runs on the loader thread, so it only touches its own data.
+     *
+     * @return the selected hotspots; empty if there is no data or the database failed
      */
-    private void loadTreasureHotspotsFromDatabase() {
-        treasureHotspots.clear();
-        visitedHotspots.clear();
+    private static List<Vector2> loadTreasureHotspotsFromDatabase(String mapName) {
+        List<Vector2> hotspots = new ArrayList<>();
 
         try {
-            List<TreasureCollectionData> collections =
-                TrainingDataDAO.getCollectionDataByMap(currentMapName);
-
-            if (collections.isEmpty()) {
-                System.out.println("No historical data found for map: " + currentMapName);
-                return;
+            // Pre-aggregated cells; their number does not grow with the history
+            HeatmapCells cells = new HeatmapCells();
+            TrainingDataDAO.readHeatmapByMap(mapName, cells);
+            int count = cells.size();
+            float[] xs = cells.centerX.items;
+            float[] ys = cells.centerY.items;
+
+            if (count == 0) {
+                System.out.println("No historical data found for map: " + mapName);
+                return hotspots;
             }
 
-            System.out.println("Loaded " + collections.size() +
-                " historical treasure locations for map: " + currentMapName);
-
-            // First, collect all potential hotspots
-            List<Vector2> allTreasureLocations = new ArrayList<>();
-            for (TreasureCollectionData data : collections) {
-                allTreasureLocations.add(data.getTreasurePosition());
-            }
+            System.out.println("Loaded " + count +
+                " heatmap cells of historical treasure locations for map: " + mapName);
 
             // Calculate map dimensions
             float maxX = 0, maxY = 0;
-            for (Vector2 pos : allTreasureLocations) {
-                maxX = Math.max(maxX, pos.x);
-                maxY = Math.max(maxY, pos.y);
+            for (int i = 0; i < count; i++) {
+                maxX = Math.max(maxX, xs[i]);
+                maxY = Math.max(maxY, ys[i]);
             }
 
             // Adjust hotspot limit based on map size
@@ -98,187 +141,193 @@ public class HistoricalAIData {
 
             // Ensure minimum distance between hotspots
             float minHotspotDistance = LOCATION_HOTSPOT_RADIUS * 1.5f;
-            // Primary: well‐distributed one per quadrant
-            selectDistributedHotspots(allTreasureLocations, adjustedHotspotLimit, minHotspotDistance);
+            // Primary: centers of the densest areas of past collections
+            selectClusteredHotspots(cells, adjustedHotspotLimit, minHotspotDistance, hotspots);
 
-            // Fallback: if distribution yielded too few, do a greedy pick
-            if (treasureHotspots.size() < Math.min(3, allTreasureLocations.size())) {
-                selectGreedyHotspots(allTreasureLocations, adjustedHotspotLimit, minHotspotDistance);
+            // Fallback: if clustering yielded too few, do a greedy pick
+            if (hotspots.size() < Math.min(3, count)) {
+                selectGreedyHotspots(xs, ys, count, adjustedHotspotLimit, minHotspotDistance, hotspots);
             }
 
-            Collections.shuffle(treasureHotspots, random);
-
-
         } catch (SQLException e) {
             System.err.println("Error loading treasure hotspots from database: " + e.getMessage());
             e.printStackTrace();
         }
+        return hotspots;
     }
 
     /**
-     * Selects hotspots that are well-distributed across the map
+     * Swaps in the background-loaded hotspots once they are ready. Hotspots learned from
+     * collections during the load are kept. Called on the game thread.
+     *
+     * @return {@code true} if the hotspots arrived during this call
      */
-    private void selectDistributedHotspots(List<Vector2> allLocations, int limit, float minDistance) {
-        // If we have very few locations, just use them all
-        if (allLocations.size() <= limit) {
-            treasureHotspots.addAll(allLocations);
-            return;
+    private boolean pollHotspotLoad() {
+        if (hotspotLoad == null || !hotspotLoad.isDone()) {
+            return false;
         }
-
-        // Find the center of all points
-        float sumX = 0, sumY = 0;
-        for (Vector2 pos : allLocations) {
-            sumX += pos.x;
-            sumY += pos.y;
+        HotspotLoad load;
+        try {
+            load = hotspotLoad.join();
+        } catch (CompletionException e) {
+            // Database errors are handled by the loader; anything else leaves the AI exploring
+            System.err.println("Error loading treasure hotspots for map " + currentMapName + ": " + e.getCause());
+            e.getCause().printStackTrace();
+            hotspotLoad = null;
+            return false;
         }
-        float centerX = sumX / allLocations.size();
-        float centerY = sumY / allLocations.size();
-
-        // Divide the map into quadrants
-        List<List<Vector2>> quadrants = new ArrayList<>();
-        for (int i = 0; i < 4; i++) {
-            quadrants.add(new ArrayList<>());
+        hotspotLoad = null;
+
+        List<Vector2> learned = treasureHotspots;
+        List<Vector2> loaded = new ArrayList<>(load.hotspots);
+        Collections.shuffle(loaded, random);
+        treasureHotspots = loaded;
+        hotspotIndex.clear();
+        for (Vector2 hotspot : loaded) {
+            hotspotIndex.add(hotspot.x, hotspot.y);
         }
-
-        // Assign points to quadrants
-        for (Vector2 pos : allLocations) {
-            int quadrantIndex = (pos.x >= centerX ? 1 : 0) + (pos.y >= centerY ? 2 : 0);
-            quadrants.get(quadrantIndex).add(pos);
+        for (Vector2 hotspot : learned) {
+            addHotspotIfNew(hotspot);
         }
 
-        // Calculate hotspots per quadrant based on density
-        int[] hotspotsPerQuadrant = new int[4];
-        int remainingHotspots = limit;
+        hotspotLoadMillis = load.loadMillis;
+        System.out.println("Hotspots for map " + currentMapName + " ready: " + treasureHotspots.size() +
+            " hotspots, loaded in " + load.loadMillis + " ms off the game thread, available " +
+            (System.nanoTime() - loadStartNanos) / 1000000 + " ms after the AI was created");
+        return true;
+    }
 
-        for (int i = 0; i < 4; i++) {
-            if (!quadrants.get(i).isEmpty()) {
-                hotspotsPerQuadrant[i] = Math.max(1,
-                    (int)((float)quadrants.get(i).size() / allLocations.size() * limit));
-                remainingHotspots -= hotspotsPerQuadrant[i];
-            }
+    /**
+     * @return time the background hotspot load took in milliseconds, or -1 while it is still running
+     */
+    public long getHotspotLoadMillis() {
+        return hotspotLoadMillis;
+    }
+
+    /**
+     * Abandons a hotspot load that has not finished yet. A load still queued on the loader
+     * thread is skipped; one already reading the database runs to the end and its result
+     * is dropped, so the next AI's load starts after it.
+     */
+    public void dispose() {
+        if (hotspotLoad != null) {
+            hotspotLoad.cancel(false);
+            hotspotLoad = null;
         }
+    }
 
-        // Redistribute any remaining
-        while (remainingHotspots > 0) {
-            int maxPointsQuadrant = 0;
-            int maxPoints = -1;
+    /**
+     * Selects the centers of the heaviest collection clusters, keeping them apart
+     */
+    private static void selectClusteredHotspots(HeatmapCells cells, int limit,
+                                                float minDistance, List<Vector2> hotspots) {
+        int count = cells.size();
+        float[] xs = cells.centerX.items;
+        float[] ys = cells.centerY.items;
+        int[] collections = new int[count];
+        int totalCollections = 0;
+        for (int i = 0; i < count; i++) {
+            collections[i] = cells.totalCount(i);
+            totalCollections += collections[i];
+        }
 
-            for (int i = 0; i < 4; i++) {
-                if (!quadrants.get(i).isEmpty() && quadrants.get(i).size() > maxPoints) {
-                    maxPoints = quadrants.get(i).size();
-                    maxPointsQuadrant = i;
-                }
+        // If we have very few locations, just use them all
+        if (totalCollections <= limit) {
+            for (int i = 0; i < count; i++) {
+                hotspots.add(new Vector2(xs[i], ys[i]));
             }
-
-            hotspotsPerQuadrant[maxPointsQuadrant]++;
-            remainingHotspots--;
+            return;
         }
-        float minHotspotDistance = LOCATION_HOTSPOT_RADIUS * 2.5f; // Increased from 1.5f
-
-
-        // Select hotspots from each quadrant
-        for (int q = 0; q < 4; q++) {
-            List<Vector2> quadrantLocations = quadrants.get(q);
-            if (quadrantLocations.isEmpty()) continue;
-
-            // Sort points by distance from map center (furthest first)
-            final Vector2 mapCenter = new Vector2(centerX, centerY);
-            quadrantLocations.sort(new Comparator<Vector2>() {
-                @Override
-                public int compare(Vector2 v1, Vector2 v2) {
-                    return Float.compare(v2.dst(mapCenter), v1.dst(mapCenter));
-                }
-            });
 
-            // Take the first point (furthest from center) as our starting point
-            if (!quadrantLocations.isEmpty()) {
-                treasureHotspots.add(new Vector2(quadrantLocations.get(0)));
+        HotspotClusterer clusterer =
+            new HotspotClusterer(LOCATION_HOTSPOT_RADIUS, MIN_CLUSTER_POINTS, RECENCY_HALF_LIFE_MS);
+        HotspotIndex selected = new HotspotIndex(minDistance);
+        for (HotspotClusterer.Cluster cluster :
+            clusterer.cluster(xs, ys, collections, cells.latestTimeStamp.items, count)) {
+            if (hotspots.size() >= limit) {
+                break;
+            }
+            // Clusters are heaviest first, so a nearby heavier one already covers this area
+            if (selected.anyWithin(cluster.x, cluster.y, minDistance)) {
+                continue;
             }
-        }    }
+            selected.add(cluster.x, cluster.y);
+            hotspots.add(new Vector2(cluster.x, cluster.y));
+        }
+    }
 
     /**
-     * Uses a greedy algorithm to select well-spaced hotspots
+     * Uses farthest-point sampling to select well-spaced hotspots.
+     * Each location keeps its distance to the closest selected hotspot, so every pick
+     * is one pass over the locations.
      */
-    private void selectGreedyHotspots(List<Vector2> locations, int limit, float minDistance) {
-        if (locations.isEmpty()) return;
+    private static void selectGreedyHotspots(float[] xs, float[] ys, int count, int limit, float minDistance,
+                                             List<Vector2> hotspots) {
+        if (count == 0) return;
 
         // Start with the most central point
-        Vector2 center = new Vector2();
-        for (Vector2 pos : locations) {
-            center.add(pos);
+        float centerX = 0, centerY = 0;
+        for (int i = 0; i < count; i++) {
+            centerX += xs[i];
+            centerY += ys[i];
         }
-        center.scl(1f / locations.size());
+        centerX /= count;
+        centerY /= count;
 
-        Vector2 firstHotspot = null;
+        int first = 0;
         float minDistToCenter = Float.MAX_VALUE;
-
-        for (Vector2 pos : locations) {
-            float dist = pos.dst(center);
-            if (dist < minDistToCenter) {
-                minDistToCenter = dist;
-                firstHotspot = pos;
+        for (int i = 0; i < count; i++) {
+            float dist2 = Vector2.dst2(xs[i], ys[i], centerX, centerY);
+            if (dist2 < minDistToCenter) {
+                minDistToCenter = dist2;
+                first = i;
             }
         }
 
-        // Add the first hotspot
+        // Squared distance from each location to its closest selected hotspot
+        float[] minDist2 = new float[count];
+        Arrays.fill(minDist2, Float.MAX_VALUE);
         List<Vector2> selectedHotspots = new ArrayList<>();
-        selectedHotspots.add(new Vector2(firstHotspot));
-
-        // Greedily add the remaining hotspots
-        while (selectedHotspots.size() < limit && selectedHotspots.size() < locations.size()) {
-            Vector2 bestCandidate = null;
-            float maxMinDistance = -1;
-
-            for (Vector2 candidate : locations) {
-                boolean alreadySelected = false;
-                for (Vector2 selected : selectedHotspots) {
-                    if (candidate.dst(selected) < 0.1f) {
-                        alreadySelected = true;
-                        break;
-                    }
-                }
-
-                if (alreadySelected) continue;
+        int selected = first;
 
-                // Find minimum distance to any already-selected hotspot
-                float minDistToSelected = Float.MAX_VALUE;
-                for (Vector2 selected : selectedHotspots) {
-                    minDistToSelected = Math.min(minDistToSelected, candidate.dst(selected));
-                }
-
-                // Keep the candidate with the largest minimum distance
-                if (minDistToSelected > maxMinDistance) {
-                    maxMinDistance = minDistToSelected;
-                    bestCandidate = candidate;
-                }
+        while (selected >= 0) {
+            float chosenX = xs[selected], chosenY = ys[selected];
+            selectedHotspots.add(new Vector2(chosenX, chosenY));
+            if (selectedHotspots.size() >= limit) {
+                break;
             }
 
-            // If we found a suitable candidate, add it
-            if (bestCandidate != null) {
-                if (maxMinDistance >= minDistance) {
-                    selectedHotspots.add(new Vector2(bestCandidate));
-                } else if (selectedHotspots.size() < limit) {
-                    // If we can't maintain min distance but still need more hotspots
-                    selectedHotspots.add(new Vector2(bestCandidate));
-                } else {
-                    // We have enough hotspots
-                    break;
+            // Fold the new hotspot in and find the location farthest from all of them
+            int bestCandidate = -1;
+            float maxMinDist2 = -1;
+            for (int i = 0; i < count; i++) {
+                minDist2[i] = Math.min(minDist2[i], Vector2.dst2(xs[i], ys[i], chosenX, chosenY));
+                // Locations on top of a selected hotspot count as already selected
+                if (minDist2[i] >= 0.01f && minDist2[i] > maxMinDist2) {
+                    maxMinDist2 = minDist2[i];
+                    bestCandidate = i;
                 }
-            } else {
-                // No more candidates available
-                break;
             }
+            selected = bestCandidate;
         }
 
         // Add all selected hotspots to the main list
-        treasureHotspots.addAll(selectedHotspots);
+        hotspots.addAll(selectedHotspots);
     }
 
 
     /**
      * Updates the AI target based on hints and historical data
+     *
+     * @param delta       time since the previous call
+     * @param eventDriven whether a game event triggered this call; regular ticks keep the current target
      */
-    public boolean updateAITarget(float delta, String currentHint, List<Landmark> landmarks) {
+    public boolean updateAITarget(float delta, String currentHint, List<Landmark> landmarks, boolean eventDriven) {
+        // Freshly arrived hotspots are worth leaving the current exploration target for
+        if (pollHotspotLoad()) {
+            eventDriven = true;
+        }
+
         if (isFollowingHint && hintLandmarkPosition != null) {
             return updateHintFollowing(delta);
         }
@@ -290,6 +339,11 @@ public class HistoricalAIData {
             return true;
         }
 
+        // Hysteresis: a chosen target is kept until it is reached or an event asks for a new one
+        if (!eventDriven && smartAI.hasTarget) {
+            return false;
+        }
+
         // Priority 3: Use database or roaming as fallback
         if (random.nextFloat() < DATABASE_LOCATION_WEIGHT && !treasureHotspots.isEmpty()) {
             return setDatabaseTarget();
@@ -385,27 +439,35 @@ public class HistoricalAIData {
         // Find the best hotspot target
         Vector2 bestTarget = null;
         float bestScore = Float.MAX_VALUE;
+        Vector2 position = smartAI.getPosition();
+
+        // Direction towards the previous database target, for the heading bonus below
+        float lastDirX = 0, lastDirY = 0;
+        if (hasLastDatabaseTarget) {
+            float lastDist = position.dst(lastDatabaseTarget);
+            if (lastDist > 0) {
+                lastDirX = (lastDatabaseTarget.x - position.x) / lastDist;
+                lastDirY = (lastDatabaseTarget.y - position.y) / lastDist;
+            }
+        }
 
         for (Vector2 hotspot : treasureHotspots) {
-            boolean alreadyVisited = false;
-            for (Vector2 visited : visitedHotspots) {
-                if (hotspot.dst(visited) < LOCATION_HOTSPOT_RADIUS) {
-                    alreadyVisited = true;
-                    break;
-                }
+            // Hotspots in areas the AI cannot walk to are never targeted
+            if (!smartAI.isReachable(hotspot)) {
+                continue;
             }
+            boolean alreadyVisited = visitedHotspots.anyWithin(hotspot.x, hotspot.y, LOCATION_HOTSPOT_RADIUS);
 
             if (!alreadyVisited) {
                 // Score based on distance and randomness
-                float distance = smartAI.getPosition().dst(hotspot);
+                float distance = position.dst(hotspot);
                 float randomFactor = random.nextFloat() * 200;
                 float score = distance + randomFactor;
 
                 // Prefer targets in the general direction we're already moving
-                if (lastDatabaseTarget != null) {
-                    Vector2 currentDirection = new Vector2(hotspot).sub(smartAI.getPosition()).nor();
-                    Vector2 lastDirection = new Vector2(lastDatabaseTarget).sub(smartAI.getPosition()).nor();
-                    float dotProduct = currentDirection.dot(lastDirection);
+                if (hasLastDatabaseTarget && distance > 0) {
+                    float dotProduct = ((hotspot.x - position.x) * lastDirX
+                        + (hotspot.y - position.y) * lastDirY) / distance;
 
                     if (dotProduct > 0.7f) {
                         score *= 0.8f;
@@ -421,16 +483,20 @@ public class HistoricalAIData {
 
         if (bestTarget != null) {
             // Target this hotspot
-            smartAI.setTarget(new Vector2(bestTarget), true);
-            lastDatabaseTarget = new Vector2(bestTarget);
-            visitedHotspots.add(new Vector2(bestTarget));
+            smartAI.setTarget(bestTarget, true);
+            lastDatabaseTarget.set(bestTarget);
+            hasLastDatabaseTarget = true;
+            visitedHotspots.add(bestTarget.x, bestTarget.y);
             return true;
         }
 
         // If we couldn't find an unvisited hotspot, pick one with the best score
         bestScore = Float.MAX_VALUE;
         for (Vector2 hotspot : treasureHotspots) {
-            float distance = smartAI.getPosition().dst(hotspot);
+            if (!smartAI.isReachable(hotspot)) {
+                continue;
+            }
+            float distance = position.dst(hotspot);
             float randomFactor = random.nextFloat() * 100;
             float score = distance + randomFactor;
 
@@ -441,8 +507,9 @@ public class HistoricalAIData {
         }
 
         if (bestTarget != null) {
-            smartAI.setTarget(new Vector2(bestTarget), true);
-            lastDatabaseTarget = new Vector2(bestTarget);
+            smartAI.setTarget(bestTarget, true);
+            lastDatabaseTarget.set(bestTarget);
+            hasLastDatabaseTarget = true;
             return true;
         }
 
@@ -471,29 +538,27 @@ public class HistoricalAIData {
      * Notifies the manager that a treasure was collected
      */
     public void notifyTreasureCollected(Vector2 treasurePosition) {
-        // Check if this is a new hotspot
-        boolean isNewHotspot = true;
-
         // Reset hint following
         isFollowingHint = false;
         hintLandmarkPosition = null;
 
-        for (Vector2 hotspot : treasureHotspots) {
-            if (hotspot.dst(treasurePosition) < LOCATION_HOTSPOT_RADIUS) {
-                isNewHotspot = false;
-                break;
-            }
-        }
-
-        // If it's a new hotspot, add it
-        if (isNewHotspot && treasureHotspots.size() < MAX_CACHED_LOCATIONS) {
-            treasureHotspots.add(new Vector2(treasurePosition));
-        }
+        addHotspotIfNew(treasurePosition);
 
         // Reset to exploration mode
         startRoaming();
     }
 
+    /**
+     * Adds a hotspot unless one is already within LOCATION_HOTSPOT_RADIUS or the cache is full
+     */
+    private void addHotspotIfNew(Vector2 position) {
+        boolean isNewHotspot = !hotspotIndex.anyWithin(position.x, position.y, LOCATION_HOTSPOT_RADIUS);
+        if (isNewHotspot && treasureHotspots.size() < MAX_CACHED_LOCATIONS) {
+            treasureHotspots.add(new Vector2(position));
+            hotspotIndex.add(position.x, position.y);
+        }
+    }
+
     /**
      * Updates the hint exploration behavior
      */
@@ -512,9 +577,9 @@ public class HistoricalAIData {
         // First phase: Get to the landmark location
         if (distToLandmark > 30f) {
             // We're still moving toward the landmark, make sure we have a target
-            if (!smartAI.hasTarget || smartAI.getTargetPosition() == null ||
-                smartAI.getTargetPosition().dst(hintLandmarkPosition) > 10f) {
-                smartAI.setTarget(new Vector2(hintLandmarkPosition), true);
+            if (!smartAI.getTargetPosition(targetScratch) ||
+                targetScratch.dst(hintLandmarkPosition) > 10f) {
+                smartAI.setTarget(hintLandmarkPosition, true);
             }
             return true;
         }
@@ -525,30 +590,25 @@ public class HistoricalAIData {
             Vector2 closestHotspot = null;
             float closestDist = Float.MAX_VALUE;
 
-            for (Vector2 hotspot : treasureHotspots) {
+            // Only consider hotspots within our current search radius
+            hotspotIndex.within(hintLandmarkPosition.x, hintLandmarkPosition.y, hintSearchRadius, hotspotQuery);
+            for (int i = 0; i < hotspotQuery.size; i++) {
+                Vector2 hotspot = treasureHotspots.get(hotspotQuery.get(i));
                 float distToHotspot = hotspot.dst(hintLandmarkPosition);
-                // Only consider hotspots within our current search radius
-                if (distToHotspot <= hintSearchRadius) {
-                    // Check if we've already visited this hotspot
-                    boolean alreadyVisited = false;
-                    for (Vector2 visited : visitedHotspots) {
-                        if (hotspot.dst(visited) < 20f) {
-                            alreadyVisited = true;
-                            break;
-                        }
-                    }
-
-                    if (!alreadyVisited && distToHotspot < closestDist) {
-                        closestDist = distToHotspot;
-                        closestHotspot = hotspot;
-                    }
+                if (distToHotspot >= closestDist || !smartAI.isReachable(hotspot)) {
+                    continue;
+                }
+                // Check if we've already visited this hotspot
+                if (!visitedHotspots.anyWithin(hotspot.x, hotspot.y, 20f)) {
+                    closestDist = distToHotspot;
+                    closestHotspot = hotspot;
                 }
             }
 
             // If we found a valid hotspot, target it
             if (closestHotspot != null) {
-                smartAI.setTarget(new Vector2(closestHotspot), true);
-                visitedHotspots.add(new Vector2(closestHotspot));
+                smartAI.setTarget(closestHotspot, true);
+                visitedHotspots.add(closestHotspot.x, closestHotspot.y);
                 lastHintSearchTime = 0f;
                 return true;
             }
@@ -570,14 +630,13 @@ public class HistoricalAIData {
             float distance = hintSearchRadius * (float)Math.sqrt(random.nextFloat());
 
             // Calculate the new target position
-            Vector2 targetOffset = new Vector2(
+            targetScratch.set(hintLandmarkPosition).add(
                 MathUtils.cos(angle) * distance,
                 MathUtils.sin(angle) * distance
             );
-            Vector2 newTarget = new Vector2(hintLandmarkPosition).add(targetOffset);
 
             // Set the new target
-            smartAI.setTarget(newTarget, true);
+            smartAI.setTarget(targetScratch, true);
         }
 
         // If we've been exploring too long without finding anything, give up
@@ -0,0 +1,396 @@
+package com.th.game.extenders.ai;
+
+import com.badlogic.gdx.utils.IntArray;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Groups historical treasure positions into dense areas.
+ * <p>
+ * Positions are binned into a grid in parallel on the common fork-join pool: each task
+ * counts its slice of the points into its own cell arrays and the partial grids are
+ * summed. Cells holding fewer than {@code minPoints} positions are noise. Every other
+ * cell climbs to its densest neighbour until it reaches a local density peak, and all
+ * cells that reach the same peak form one cluster. Unlike merging all touching dense
+ * cells, this still splits an evenly covered map into separate areas. The cost is one
+ * parallel pass over the points plus a few passes over the cells.
+ */
+public class HotspotClusterer {
+    /** Fewest points per fork-join task; each binning task owns a full set of cell arrays. */
+    private static final int MIN_SLICE = 1 << 15;
+    /** Upper bound on grid cells; the cell size grows for maps with far-apart outliers. */
+    private static final int MAX_CELLS = 1 << 14;
+
+    /**
+     * A dense area of historical collections.
+     */
+    public static class Cluster {
+        /** World x-coordinate of the densest part of the cluster. */
+        public final float x;
+        /** World y-coordinate of the densest part of the cluster. */
+        public final float y;
+        /** Number of positions in the cluster. */
+        public final int count;
+        /** Most recent timestamp in the cluster, in milliseconds since epoch. */
+        public final long latestTimestamp;
+        /** Sum of the recency weights of the positions; equals count when recency is ignored. */
+        public final float weight;
+
+        Cluster(float x, float y, int count, long latestTimestamp, float weight) {
+            this.x = x;
+            this.y = y;
+            this.count = count;
+            this.latestTimestamp = latestTimestamp;
+            this.weight = weight;
+        }
+    }
+
+    private final float cellSize;
+    private final int minPoints;
+    private final long recencyHalfLife;
+
+    /**
+     * @param cellSize        grid cell size in world units, roughly the radius of a hotspot
+     * @param minPoints       fewest positions a cell needs to belong to a cluster
+     * @param recencyHalfLife age in milliseconds at which a position counts half as much as
+     *                        the newest one, or 0 to weigh all positions equally
+     */
+    public HotspotClusterer(float cellSize, int minPoints, long recencyHalfLife) {
+        this.cellSize = cellSize;
+        this.minPoints = Math.max(1, minPoints);
+        this.recencyHalfLife = recencyHalfLife;
+    }
+
+    /**
+     * Clusters the positions, heaviest cluster first.
+     *
+     * @param xs         world x-coordinates
+     * @param ys         world y-coordinates
+     * @param timestamps collection times in milliseconds since epoch
+     * @param count      number of positions to read from the arrays
+     * @return the clusters sorted by descending weight
+     */
+    public List<Cluster> cluster(float[] xs, float[] ys, long[] timestamps, int count) {
+        return cluster(xs, ys, null, timestamps, count);
+    }
+
+    /**
+     * Clusters positions that each stand for several collections, such as the cells of a
+     * pre-aggregated heatmap, heaviest cluster first. A position with multiplicity
+     * {@code n} counts as {@code n} collections at that position and time.
+     *
+     * @param xs             world x-coordinates
+     * @param ys             world y-coordinates
+     * @param multiplicities collections each position stands for, or {@code null} for one each
+     * @param timestamps     collection times in milliseconds since epoch
+     * @param count          number of positions to read from the arrays
+     * @return the clusters sorted by descending weight
+     */
+    public List<Cluster> cluster(float[] xs, float[] ys, int[] multiplicities, long[] timestamps, int count) {
+        List<Cluster> clusters = new ArrayList<>();
+        if (count == 0) {
+            return clusters;
+        }
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int slice = Math.max(MIN_SLICE, count / (pool.getParallelism() * 4));
+        Bounds bounds = pool.invoke(new BoundsTask(xs, ys, timestamps, 0, count, slice));
+
+        // Fit the grid to the data, growing cells if the extent would need too many
+        float size = cellSize;
+        int gridWidth, gridHeight;
+        while (true) {
+            gridWidth = (int) ((bounds.maxX - bounds.minX) / size) + 1;
+            gridHeight = (int) ((bounds.maxY - bounds.minY) / size) + 1;
+            if ((long) gridWidth * gridHeight <= MAX_CELLS) {
+                break;
+            }
+            size *= 2;
+        }
+        Grid grid = new Grid(bounds.minX, bounds.minY, size, gridWidth, gridHeight);
+        CellSums sums = pool.invoke(new BinTask(grid, xs, ys, multiplicities, timestamps, bounds.newest, 0, count, slice));
+
+        int[] peakOf = climbToPeaks(grid, sums.counts);
+
+        // Gather the cells of each peak into one cluster
+        int cellCount = gridWidth * gridHeight;
+        int[] clusterOfPeak = new int[cellCount];
+        Arrays.fill(clusterOfPeak, -1);
+        IntArray peaks = new IntArray();
+        List<double[]> totals = new ArrayList<>();
+        for (int cell = 0; cell < cellCount; cell++) {
+            int peak = peakOf[cell];
+            if (peak < 0) {
+                continue;
+            }
+            if (clusterOfPeak[peak] < 0) {
+                clusterOfPeak[peak] = totals.size();
+                peaks.add(peak);
+                totals.add(new double[3]);
+            }
+            double[] total = totals.get(clusterOfPeak[peak]);
+            total[0] += sums.counts[cell];
+            total[1] += sums.weights[cell];
+            total[2] = Math.max(total[2], sums.latest[cell]);
+        }
+        for (int i = 0; i < peaks.size; i++) {
+            double[] total = totals.get(i);
+            Cluster cluster = centerAround(grid, sums, peaks.get(i), (int) total[0], (long) total[2], (float) total[1]);
+            clusters.add(cluster);
+        }
+        clusters.sort((a, b) -> Float.compare(b.weight, a.weight));
+        return clusters;
+    }
+
+    /**
+     * Places a cluster at the mean of its peak cell and the cells around it. Taking the mean
+     * of the whole cluster would drag the center towards sparse outskirts.
+     */
+    private static Cluster centerAround(Grid grid, CellSums sums, int peak, int count, long latest, float weight) {
+        int peakX = peak % grid.width;
+        int peakY = peak / grid.width;
+        double sumX = 0, sumY = 0;
+        int points = 0;
+        for (int y = Math.max(0, peakY - 1); y <= Math.min(grid.height - 1, peakY + 1); y++) {
+            for (int x = Math.max(0, peakX - 1); x <= Math.min(grid.width - 1, peakX + 1); x++) {
+                int cell = y * grid.width + x;
+                sumX += sums.sumX[cell];
+                sumY += sums.sumY[cell];
+                points += sums.counts[cell];
+            }
+        }
+        return new Cluster((float) (sumX / points), (float) (sumY / points), count, latest, weight);
+    }
+
+    /**
+     * Follows each dense cell uphill to the densest cell in its neighbourhood.
+     *
+     * @return for each cell, the cell index of its peak, or -1 for noise
+     */
+    private int[] climbToPeaks(Grid grid, int[] counts) {
+        int cellCount = counts.length;
+        int[] uphill = new int[cellCount];
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (counts[cell] < minPoints) {
+                uphill[cell] = -1;
+                continue;
+            }
+            int cellX = cell % grid.width;
+            int cellY = cell / grid.width;
+            int best = cell;
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    int nx = cellX + dx, ny = cellY + dy;
+                    if (nx < 0 || ny < 0 || nx >= grid.width || ny >= grid.height) {
+                        continue;
+                    }
+                    int neighbour = ny * grid.width + nx;
+                    // Only strictly denser cells pull; on a flat plateau every cell is a peak
+                    if (counts[neighbour] > counts[best]) {
+                        best = neighbour;
+                    }
+                }
+            }
+            uphill[cell] = best;
+        }
+
+        // Uphill steps strictly increase the count, so every chain ends at a peak
+        int[] peakOf = new int[cellCount];
+        Arrays.fill(peakOf, -2);
+        int[] chain = new int[cellCount];
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (peakOf[cell] != -2) {
+                continue;
+            }
+            if (uphill[cell] < 0) {
+                peakOf[cell] = -1;
+                continue;
+            }
+            int length = 0;
+            int current = cell;
+            while (peakOf[current] == -2 && uphill[current] != current) {
+                chain[length++] = current;
+                current = uphill[current];
+            }
+            int peak = peakOf[current] == -2 ? current : peakOf[current];
+            peakOf[current] = peak;
+            for (int i = 0; i < length; i++) {
+                peakOf[chain[i]] = peak;
+            }
+        }
+        return peakOf;
+    }
+
+    /**
+     * Layout of the cell grid.
+     */
+    private static class Grid {
+        final float originX;
+        final float originY;
+        final float cellSize;
+        final int width;
+        final int height;
+
+        Grid(float originX, float originY, float cellSize, int width, int height) {
+            this.originX = originX;
+            this.originY = originY;
+            this.cellSize = cellSize;
+            this.width = width;
+            this.height = height;
+        }
+
+        int cellOf(float x, float y) {
+            int cellX = Math.min(width - 1, (int) ((x - originX) / cellSize));
+            int cellY = Math.min(height - 1, (int) ((y - originY) / cellSize));
+            return cellY * width + cellX;
+        }
+    }
+
+    /**
+     * Per-cell totals of one slice of the points.
+     */
+    private static class CellSums {
+        final int[] counts;
+        final double[] sumX;
+        final double[] sumY;
+        final float[] weights;
+        final long[] latest;
+
+        CellSums(int cellCount) {
+            counts = new int[cellCount];
+            sumX = new double[cellCount];
+            sumY = new double[cellCount];
+            weights = new float[cellCount];
+            latest = new long[cellCount];
+        }
+
+        void addAll(CellSums other) {
+            for (int cell = 0; cell < counts.length; cell++) {
+                counts[cell] += other.counts[cell];
+                sumX[cell] += other.sumX[cell];
+                sumY[cell] += other.sumY[cell];
+                weights[cell] += other.weights[cell];
+                latest[cell] = Math.max(latest[cell], other.latest[cell]);
+            }
+        }
+    }
+
+    /**
+     * Bounding box and newest timestamp of a slice of the points.
+     */
+    private static class Bounds {
+        float minX = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        long newest = Long.MIN_VALUE;
+
+        void addAll(Bounds other) {
+            minX = Math.min(minX, other.minX);
+            maxX = Math.max(maxX, other.maxX);
+            minY = Math.min(minY, other.minY);
+            maxY = Math.max(maxY, other.maxY);
+            newest = Math.max(newest, other.newest);
+        }
+    }
+
+    private static class BoundsTask extends RecursiveTask<Bounds> {
+        private final float[] xs;
+        private final float[] ys;
+        private final long[] timestamps;
+        private final int from;
+        private final int to;
+        private final int slice;
+
+        BoundsTask(float[] xs, float[] ys, long[] timestamps, int from, int to, int slice) {
+            this.xs = xs;
+            this.ys = ys;
+            this.timestamps = timestamps;
+            this.from = from;
+            this.to = to;
+            this.slice = slice;
+        }
+
+        @Override
+        protected Bounds compute() {
+            if (to - from > slice) {
+                int middle = (from + to) >>> 1;
+                BoundsTask left = new BoundsTask(xs, ys, timestamps, from, middle, slice);
+                left.fork();
+                Bounds bounds = new BoundsTask(xs, ys, timestamps, middle, to, slice).compute();
+                bounds.addAll(left.join());
+                return bounds;
+            }
+            Bounds bounds = new Bounds();
+            for (int i = from; i < to; i++) {
+                bounds.minX = Math.min(bounds.minX, xs[i]);
+                bounds.maxX = Math.max(bounds.maxX, xs[i]);
+                bounds.minY = Math.min(bounds.minY, ys[i]);
+                bounds.maxY = Math.max(bounds.maxY, ys[i]);
+                bounds.newest = Math.max(bounds.newest, timestamps[i]);
+            }
+            return bounds;
+        }
+    }
+
+    /**
+     * Sums a slice of the points into per-cell totals.
+     */
+    private class BinTask extends RecursiveTask<CellSums> {
+        private final Grid grid;
+        private final float[] xs;
+        private final float[] ys;
+        private final int[] multiplicities;
+        private final long[] timestamps;
+        private final long newest;
+        private final int from;
+        private final int to;
+        private final int slice;
+
+        BinTask(Grid grid, float[] xs, float[] ys, int[] multiplicities, long[] timestamps, long newest,
+                int from, int to, int slice) {
+            this.grid = grid;
+            this.xs = xs;
+            this.ys = ys;
+            this.multiplicities = multiplicities;
+            this.timestamps = timestamps;
+            this.newest = newest;
+            this.from = from;
+            this.to = to;
+            this.slice = slice;
+        }
+
+        @Override
+        protected CellSums compute() {
+            if (to - from > slice) {
+                int middle = (from + to) >>> 1;
+                BinTask left = new BinTask(grid, xs, ys, multiplicities, timestamps, newest, from, middle, slice);
+                left.fork();
+                CellSums sums = new BinTask(grid, xs, ys, multiplicities, timestamps, newest, middle, to, slice).compute();
+                sums.addAll(left.join());
+                return sums;
+            }
+            CellSums sums = new CellSums(grid.width * grid.height);
+            for (int i = from; i < to; i++) {
+                int cell = grid.cellOf(xs[i], ys[i]);
+                int n = multiplicities == null ? 1 : multiplicities[i];
+                sums.counts[cell] += n;
+                sums.sumX[cell] += (double) xs[i] * n;
+                sums.sumY[cell] += (double) ys[i] * n;
+                sums.weights[cell] += n * recencyWeight(newest - timestamps[i]);
+                sums.latest[cell] = Math.max(sums.latest[cell], timestamps[i]);
+            }
+            return sums;
+        }
+    }
+
+    private float recencyWeight(long age) {
+        if (recencyHalfLife <= 0 || age <= 0) {
+            return 1f;
+        }
+        return (float) Math.pow(0.5, (double) age / recencyHalfLife);
+    }
+}
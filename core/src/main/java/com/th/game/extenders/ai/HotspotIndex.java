@@ -0,0 +1,229 @@
+package com.th.game.extenders.ai;
+
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongMap;
+
+/**
+ * A set of world positions hashed into square grid cells, for radius and nearest
+ * neighbour queries.
+ * <p>
+ * Points are numbered in the order they are added. A query only looks at the cells
+ * that overlap its search circle, so with a cell size close to the usual query radius
+ * a lookup touches a handful of points no matter how many are stored. Queries do not
+ * allocate.
+ */
+public class HotspotIndex {
+    private final float cellSize;
+    private final FloatArray xs = new FloatArray();
+    private final FloatArray ys = new FloatArray();
+    private final LongMap<IntArray> cells = new LongMap<>();
+
+    /**
+     * @param cellSize side length of a grid cell in world units; best close to the usual query radius
+     */
+    public HotspotIndex(float cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Adds a point.
+     *
+     * @param x world x-coordinate
+     * @param y world y-coordinate
+     * @return the index of the new point
+     */
+    public int add(float x, float y) {
+        int index = xs.size;
+        xs.add(x);
+        ys.add(y);
+        long key = key(cellOf(x), cellOf(y));
+        IntArray cell = cells.get(key);
+        if (cell == null) {
+            cell = new IntArray(4);
+            cells.put(key, cell);
+        }
+        cell.add(index);
+        return index;
+    }
+
+    /**
+     * Removes all points.
+     */
+    public void clear() {
+        xs.clear();
+        ys.clear();
+        cells.clear();
+    }
+
+    /**
+     * @return number of points
+     */
+    public int size() {
+        return xs.size;
+    }
+
+    /**
+     * @param index point index
+     * @return world x-coordinate of the point
+     */
+    public float getX(int index) {
+        return xs.get(index);
+    }
+
+    /**
+     * @param index point index
+     * @return world y-coordinate of the point
+     */
+    public float getY(int index) {
+        return ys.get(index);
+    }
+
+    /**
+     * Determines if any point lies strictly closer than {@code radius} to a position.
+     *
+     * @param x      world x-coordinate
+     * @param y      world y-coordinate
+     * @param radius search radius
+     * @return {@code true} if a point was found
+     */
+    public boolean anyWithin(float x, float y, float radius) {
+        float radius2 = radius * radius;
+        int minCellX = cellOf(x - radius), maxCellX = cellOf(x + radius);
+        int minCellY = cellOf(y - radius), maxCellY = cellOf(y + radius);
+        if (isWideQuery(minCellX, maxCellX, minCellY, maxCellY)) {
+            for (int i = 0; i < xs.size; i++) {
+                if (dst2(i, x, y) < radius2) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+            for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+                IntArray cell = cells.get(key(cellX, cellY));
+                if (cell == null) {
+                    continue;
+                }
+                for (int i = 0; i < cell.size; i++) {
+                    if (dst2(cell.get(i), x, y) < radius2) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Collects every point at most {@code radius} away from a position. The order of the
+     * results is unspecified.
+     *
+     * @param x      world x-coordinate
+     * @param y      world y-coordinate
+     * @param radius search radius
+     * @param out    cleared, then receives the point indices
+     * @return number of points found
+     */
+    public int within(float x, float y, float radius, IntArray out) {
+        out.clear();
+        float radius2 = radius * radius;
+        int minCellX = cellOf(x - radius), maxCellX = cellOf(x + radius);
+        int minCellY = cellOf(y - radius), maxCellY = cellOf(y + radius);
+        if (isWideQuery(minCellX, maxCellX, minCellY, maxCellY)) {
+            for (int i = 0; i < xs.size; i++) {
+                if (dst2(i, x, y) <= radius2) {
+                    out.add(i);
+                }
+            }
+            return out.size;
+        }
+        for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+            for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+                IntArray cell = cells.get(key(cellX, cellY));
+                if (cell == null) {
+                    continue;
+                }
+                for (int i = 0; i < cell.size; i++) {
+                    int index = cell.get(i);
+                    if (dst2(index, x, y) <= radius2) {
+                        out.add(index);
+                    }
+                }
+            }
+        }
+        return out.size;
+    }
+
+    /**
+     * Finds the point closest to a position, searching outward ring by ring of cells.
+     *
+     * @param x         world x-coordinate
+     * @param y         world y-coordinate
+     * @param maxRadius points farther away than this are ignored
+     * @return the index of the closest point, or -1 if none is within {@code maxRadius}
+     */
+    public int nearest(float x, float y, float maxRadius) {
+        if (xs.size == 0) {
+            return -1;
+        }
+        int centerX = cellOf(x), centerY = cellOf(y);
+        int maxRing = (int) Math.min(Integer.MAX_VALUE - 1, Math.ceil(maxRadius / cellSize) + 1);
+        float best2 = maxRadius * maxRadius;
+        int best = -1;
+        int occupied = 0;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Everything in this ring or beyond is at least (ring - 1) cells away
+            float ringDistance = (ring - 1) * cellSize;
+            if (ring > 0 && ringDistance * ringDistance > best2) {
+                break;
+            }
+            for (int cellY = centerY - ring; cellY <= centerY + ring; cellY++) {
+                boolean edgeRow = cellY == centerY - ring || cellY == centerY + ring;
+                int step = edgeRow ? 1 : 2 * ring;
+                for (int cellX = centerX - ring; cellX <= centerX + ring; cellX += step) {
+                    IntArray cell = cells.get(key(cellX, cellY));
+                    if (cell == null) {
+                        continue;
+                    }
+                    occupied++;
+                    for (int i = 0; i < cell.size; i++) {
+                        int index = cell.get(i);
+                        float d2 = dst2(index, x, y);
+                        if (d2 <= best2) {
+                            best2 = d2;
+                            best = index;
+                        }
+                    }
+                }
+            }
+            if (occupied == cells.size) {
+                // Every stored point has been looked at
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * A query spanning more cells than are occupied is cheaper as a plain scan.
+     */
+    private boolean isWideQuery(int minCellX, int maxCellX, int minCellY, int maxCellY) {
+        long span = (long) (maxCellX - minCellX + 1) * (maxCellY - minCellY + 1);
+        return span > cells.size;
+    }
+
+    private float dst2(int index, float x, float y) {
+        float dx = xs.get(index) - x;
+        float dy = ys.get(index) - y;
+        return dx * dx + dy * dy;
+    }
+
+    private int cellOf(float coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static long key(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xffffffffL);
+    }
+}
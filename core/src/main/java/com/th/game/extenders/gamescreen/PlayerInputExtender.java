@@ -5,13 +5,11 @@ import com.badlogic.gdx.Input;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
 import com.th.game.entities.TreasureChest;
-import com.th.game.database.TrainingDataDAO;
 import com.th.game.database.TreasureCollectionData;
 import com.th.game.screens.GameScreen;
 import com.th.game.entities.Landmark;
 import com.th.game.util.Direction;
 
-import java.sql.SQLException;
 import java.util.Iterator;
 
 /**
@@ -98,21 +96,18 @@ public class PlayerInputExtender {
                     // Play collection sound and open chest
                     gameScreen.collectSound.play(0.8f);
                     chest.open();
+                    gameScreen.getTreasureFlowField().onChestOpened(chest);
                     gameScreen.player.score++;
 
-                    // Store the treasure collection data with map name
-                    try {
-                        TreasureCollectionData collectionData = new TreasureCollectionData(
-                            gameScreen.currentRound,
-                            gameScreen.currentMapName,
-                            new Vector2(chest.position),
-                            new Vector2(gameScreen.player.position),
-                            true  // collected by player
-                        );
-                        TrainingDataDAO.saveTreasureCollection(collectionData);
-                    } catch (SQLException e) {
-                        e.printStackTrace();
-                    }
+                    // Store the treasure collection data with map name; written in the background
+                    TreasureCollectionData collectionData = new TreasureCollectionData(
+                        gameScreen.currentRound,
+                        gameScreen.currentMapName,
+                        new Vector2(chest.position),
+                        new Vector2(gameScreen.player.position),
+                        true  // collected by player
+                    );
+                    gameScreen.getCollectionWriter().submit(collectionData);
 
                     // Notify AI that player collected a treasure
                     gameScreen.ai.notifyTreasureCollected(chest.position, true);
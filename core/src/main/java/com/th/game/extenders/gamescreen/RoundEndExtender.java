@@ -1,5 +1,7 @@
 package com.th.game.extenders.gamescreen;
 import com.badlogic.gdx.math.Vector2;
+import com.th.game.ai.AIDecisionScheduler;
+import com.th.game.ai.pathfinder.PathCache;
 import com.th.game.entities.TreasureChest;
 import com.th.game.screens.GameScreen;
 
@@ -26,14 +28,34 @@ public class RoundEndExtender {
             gameScreen.settings.playerRoundsWon++;
         }
 
+        // Report where the AI's path finding time went this round
+        gameScreen.ai.getPathfindingStats().dump("AI, round " + gameScreen.settings.aiRoundScores.size());
+        PathCache pathCache = gameScreen.ai.getPathCache();
+        System.out.println("  path cache: " + pathCache.getHits() + " hits, " + pathCache.getSuffixHits()
+            + " suffix hits, " + pathCache.getMisses() + " misses");
+        AIDecisionScheduler scheduler = gameScreen.ai.getDecisionScheduler();
+        System.out.println("  decisions: " + scheduler.getDecisionCount() + " (" + scheduler.getDecisionsPerSecond()
+            + "/s), replans: " + scheduler.getReplanCount() + " (" + scheduler.getReplansPerSecond() + "/s)");
+
+        // Write this round's collections now, before the next round loads hotspots
+        gameScreen.getCollectionWriter().flush();
+        gameScreen.getCollectionWriter().dump();
+
+        // Nearest by walking distance; straight-line distance if the player is off the grid
         Vector2 nearest = null;
-        float minDist = Float.MAX_VALUE;
-        for (TreasureChest chest : gameScreen.treasureChests) {
-            if (chest.state == TreasureChest.ChestState.CLOSED) {
-                float dist = gameScreen.player.position.dst(chest.position);
-                if (dist < minDist) {
-                    minDist = dist;
-                    nearest = chest.position;
+        TreasureChest nearestChest = gameScreen.getTreasureFlowField().getNearestChest(
+            gameScreen.player.position.x, gameScreen.player.position.y);
+        if (nearestChest != null) {
+            nearest = nearestChest.position;
+        } else {
+            float minDist = Float.MAX_VALUE;
+            for (TreasureChest chest : gameScreen.treasureChests) {
+                if (chest.state == TreasureChest.ChestState.CLOSED) {
+                    float dist = gameScreen.player.position.dst(chest.position);
+                    if (dist < minDist) {
+                        minDist = dist;
+                        nearest = chest.position;
+                    }
                 }
             }
         }
@@ -102,7 +124,6 @@ public class RoundEndExtender {
         gameScreen.gameStarted = false;
         gameScreen.createSpawnPositions();
         gameScreen.loadAllLandmarksFromObjectGroups();
-        gameScreen.ai.scanWalkableAreas(gameScreen, gameScreen.getTiledMap());
         gameScreen.placeTreasuresScattered();
         gameScreen.resetTimer();
         gameScreen.showingRoundPopup = true;
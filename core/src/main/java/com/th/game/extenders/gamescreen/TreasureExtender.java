@@ -2,6 +2,8 @@ package com.th.game.extenders.gamescreen;
 
 import com.badlogic.gdx.maps.tiled.TiledMap;
 import com.badlogic.gdx.math.Vector2;
+import com.th.game.ai.pathfinder.TiledMapGraph;
+import com.th.game.ai.pathfinder.TiledNode;
 import com.th.game.entities.TreasureChest;
 import com.th.game.screens.GameScreen;
 
@@ -13,6 +15,8 @@ import java.util.Random;
  * Distributes and places treasure chests across the map each round for GameScreen.
  */
 public class TreasureExtender {
+    private static final int MAX_RANDOM_PLACEMENT_ATTEMPTS = 100000;
+
     private final GameScreen gameScreen;
     private final Random random;
 
@@ -46,6 +50,11 @@ public class TreasureExtender {
         int cellWidth = (mapPixelWidth - 2 * treasureEdgeBuffer) / gridSize;
         int cellHeight = (mapPixelHeight - 2 * treasureEdgeBuffer) / gridSize;
 
+        // Only the area the player spawned in counts; chests in enclosed pockets could never be opened
+        TiledMapGraph graph = gameScreen.getNavigationData().getGraph();
+        TiledNode playerNode = graph.getNearestNode(gameScreen.player.position.x, gameScreen.player.position.y);
+        int playerComponent = playerNode != null ? graph.getComponent(playerNode.index) : -1;
+
         // Keep track of placed treasures
         int placedTreasures = 0;
 
@@ -70,6 +79,7 @@ public class TreasureExtender {
 
                 // Make sure it's walkable and not too close to player or other treasures
                 if (gameScreen.isWalkable(pos) &&
+                    isInComponent(graph, pos, playerComponent) &&
                     pos.dst(gameScreen.player.position) > 100 &&
                     !tooCloseToOtherTreasures(pos, 100)) {
                     gameScreen.treasureChests.add(new TreasureChest(pos, 8, 0.1f));
@@ -80,13 +90,19 @@ public class TreasureExtender {
         }
 
         // If we still need more treasures, place them randomly across the map
+        int attempts = 0;
         while (placedTreasures < gameScreen.settings.treasureCount) {
+            if (++attempts > MAX_RANDOM_PLACEMENT_ATTEMPTS) {
+                System.out.println("Only " + placedTreasures + " treasures fit in the player's reachable area");
+                break;
+            }
             Vector2 pos = new Vector2(
                 random.nextInt(mapPixelWidth - 2 * treasureEdgeBuffer) + treasureEdgeBuffer,
                 random.nextInt(mapPixelHeight - 2 * treasureEdgeBuffer) + treasureEdgeBuffer
             );
 
             if (gameScreen.isWalkable(pos) &&
+                isInComponent(graph, pos, playerComponent) &&
                 pos.dst(gameScreen.player.position) > 75 &&
                 !tooCloseToOtherTreasures(pos, 75)) {
                 gameScreen.treasureChests.add(new TreasureChest(pos, 8, 0.1f));
@@ -95,6 +111,21 @@ public class TreasureExtender {
         }
     }
 
+    /**
+     * Helper method to check if a position is in the given connected area of the map
+     * @param graph The navigation graph of the map
+     * @param pos The position to check
+     * @param component The component id from the graph, or -1 to accept any position
+     * @return true if the nearest walkable tile to the position is in that component
+     */
+    private boolean isInComponent(TiledMapGraph graph, Vector2 pos, int component) {
+        if (component == -1) {
+            return true;
+        }
+        TiledNode node = graph.getNearestNode(pos.x, pos.y);
+        return node != null && graph.getComponent(node.index) == component;
+    }
+
     /**
      * Helper method to check if a position is too close to existing treasures
      * @param pos The position to check
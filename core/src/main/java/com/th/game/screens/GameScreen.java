@@ -15,17 +15,22 @@ import java.sql.SQLException;
 // project packages
 import com.th.game.*;
 import com.th.game.ai.*;
+import com.th.game.ai.pathfinder.NavigationCache;
+import com.th.game.ai.pathfinder.NavigationData;
+import com.th.game.ai.pathfinder.PathRequestService;
 import com.th.game.database.*;
 import com.th.game.entities.*;
 import com.th.game.util.*;
 import com.th.game.util.map.MapManager;
+import com.th.game.util.map.TreasureFlowField;
+import com.th.game.util.map.WalkabilityGrid;
 import com.th.game.util.settings.GameSettings;
 import com.th.game.extenders.gamescreen.*;
 
 /**
  * Main gameplay screen: loads resources, runs the game loop (input, AI, treasures), renders frames, and manages lifecycle.
  */
-public class GameScreen implements Screen {
+public class GameScreen implements Screen, AIWorld {
 
     /**
      * Core game dependencies and basic settings.
@@ -65,6 +70,11 @@ public class GameScreen implements Screen {
     public ShapeRenderer shapeRenderer;
     private int tileWidth;
     private int tileHeight;
+    private NavigationData navigationData;
+    private PathRequestService pathRequests;
+    private WalkabilityGrid walkabilityGrid;
+    private TreasureFlowField treasureFlowField;
+    private TreasureCollectionWriter collectionWriter;
 
     /**
      * Countdown and hint system state and timing.
@@ -184,6 +194,7 @@ public class GameScreen implements Screen {
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        collectionWriter = new TreasureCollectionWriter(settings.collectionBackpressure);
 
         // Select the map based on settings (random or specific)
         MapManager.MapInfo selectedMap = null;
@@ -219,6 +230,18 @@ public class GameScreen implements Screen {
         mapPixelWidth = mapTileWidth * tilePixelWidth;
         mapPixelHeight = mapTileHeight * tilePixelHeight;
 
+        // Walkability, graph and heuristic tables are built once per map and shared
+        List<Vector2> pivots = new ArrayList<>();
+        for (Landmark landmark : landmarks) {
+            pivots.add(landmark.position);
+        }
+        navigationData = NavigationCache.get(selectedMap.getPath(), tiledMap, pivots);
+        walkabilityGrid = navigationData.getWalkabilityGrid();
+        // One path request service runs the searches of every AI on this screen
+        pathRequests = new PathRequestService(navigationData.getGraph(), settings.pathfinderType,
+            settings.pathRequestMode, navigationData.getHeuristic());
+        treasureFlowField = new TreasureFlowField(walkabilityGrid);
+
         // Initialize player input handling
         playerInputExtender = new PlayerInputExtender(this);
 
@@ -247,9 +270,6 @@ public class GameScreen implements Screen {
         spawnPoints = new ArrayList<>();
         createSpawnPositions();
 
-        // Perform AI scan of walkable areas for pathfinding
-        ai.scanWalkableAreas(this, tiledMap);
-
         // Place treasure chests randomly on the map
         treasureChests = new ArrayList<>();
         placeTreasuresScattered();
@@ -295,6 +315,48 @@ public class GameScreen implements Screen {
         return tiledMap;
     }
 
+    /**
+     * Returns the precomputed walkability of the current map
+     * @return The walkability grid built when the map was loaded
+     */
+    public WalkabilityGrid getWalkabilityGrid() {
+        return walkabilityGrid;
+    }
+
+    /**
+     * Returns the background writer for treasure collection events
+     * @return The writer that saves collections to the training database
+     */
+    public TreasureCollectionWriter getCollectionWriter() {
+        return collectionWriter;
+    }
+
+    /**
+     * Returns the shared navigation graph and tables of the current map
+     * @return The cached navigation data for this map
+     */
+    @Override
+    public NavigationData getNavigationData() {
+        return navigationData;
+    }
+
+    /**
+     * Returns the path request service shared by every AI on this screen
+     * @return The service that queues path searches and runs them once per frame
+     */
+    @Override
+    public PathRequestService getPathRequests() {
+        return pathRequests;
+    }
+
+    /**
+     * Returns the walking distances to the nearest closed treasure chest
+     * @return The flow field rebuilt whenever treasures are placed
+     */
+    public TreasureFlowField getTreasureFlowField() {
+        return treasureFlowField;
+    }
+
     /**
      * Returns a random spawn point from the list
      * @return A randomly selected spawn point
@@ -333,7 +395,12 @@ public class GameScreen implements Screen {
 
         // Create AI spawn based on selected position
         Vector2 aiSpawn = createPositionVector(aiPosition, mapTileWidth, mapTileHeight, bufferX, bufferY);
+        if (ai != null) {
+            ai.dispose();
+        }
         ai = new SmartAI(aiSpawn.cpy(), currentMapName);
+        ai.setPathSmoothing(settings.pathSmoothing);
+        ai.getDecisionScheduler().setTickInterval(settings.aiDecisionInterval);
         ai.scanWalkableAreas(this, tiledMap);
 
     }
@@ -390,10 +457,12 @@ public class GameScreen implements Screen {
     }
 
     /**
-     * Places treasures scattered randomly across the current map by delegating to TreasureExtender.
+     * Places treasures scattered randomly across the current map by delegating to TreasureExtender,
+     * then rebuilds the treasure flow field for the new chests.
      */
     public void placeTreasuresScattered() {
         treasureExtender.placeTreasuresScattered();
+        treasureFlowField.build(treasureChests);
     }
 
     /**
@@ -407,6 +476,7 @@ public class GameScreen implements Screen {
      * Returns the current hint text
      * @return The current hint text
      */
+    @Override
     public String getCurrentHint() {
         return currentHint;
     }
@@ -415,6 +485,7 @@ public class GameScreen implements Screen {
      * Returns the list of landmarks in the map
      * @return The list of landmarks
      */
+    @Override
     public List<Landmark> getLandmarks() {
         return landmarks;
     }
@@ -500,6 +571,9 @@ public class GameScreen implements Screen {
      * @param delta seconds since the last frame
      */
     public void update(float delta) {
+        // Path searches of every AI advance once per frame, also while the AI is paused
+        pathRequests.update(PathRequestService.DEFAULT_BUDGET_NANOS);
+
         // Only allow player input and AI movement if countdown is not active
         if (!countdownActive) {
             playerStateTime += delta;
@@ -591,24 +665,21 @@ public class GameScreen implements Screen {
                 ai.position.dst(chest.position) < 32) {
                 collectSound.play(0.8f);
                 chest.open();
+                treasureFlowField.onChestOpened(chest);
                 ai.score++;
 
                 // Notify the AI that a treasure was collected by AI
                 ai.notifyTreasureCollected(chest.position, false);
 
-                // Store the treasure collection data
-                try {
-                    TreasureCollectionData collectionData = new TreasureCollectionData(
-                        currentRound,
-                        currentMapName,
-                        new Vector2(chest.position),
-                        new Vector2(ai.position),
-                        false  // collected by AI
-                    );
-                    TrainingDataDAO.saveTreasureCollection(collectionData);
-                } catch (SQLException e) {
-                    e.printStackTrace();
-                }
+                // Store the treasure collection data; written in the background
+                TreasureCollectionData collectionData = new TreasureCollectionData(
+                    currentRound,
+                    currentMapName,
+                    new Vector2(chest.position),
+                    new Vector2(ai.position),
+                    false  // collected by AI
+                );
+                collectionWriter.submit(collectionData);
 
                 // Remove associated landmark hints
                 Iterator<Landmark> iter = landmarks.iterator();
@@ -665,95 +736,48 @@ public class GameScreen implements Screen {
     /**
      * Determines if the given world position is free for movement.
      *
-     * <p>Checks, in order:</p>
+     * <p>Looks the position up in the precomputed {@link WalkabilityGrid}, which applies
+     * the same rules as {@link #isWalkableReference(Vector2)}: map bounds, walkable tile
+     * layers, collidable tile layers and the "Collision" object group.</p>
+     *
+     * @param pos the position in world pixels to test
+     * @return {@code true} if it’s within bounds, on a walkable tile, and not blocked
+     */
+    public boolean isWalkable(Vector2 pos) {
+        return walkabilityGrid.isWalkable(pos.x, pos.y);
+    }
+
+    /**
+     * Determines if the given world position is free for movement.
+     *
+     * @param x world x-coordinate in pixels
+     * @param y world y-coordinate in pixels
+     * @return {@code true} if it’s within bounds, on a walkable tile, and not blocked
+     */
+    @Override
+    public boolean isWalkable(float x, float y) {
+        return walkabilityGrid.isWalkable(x, y);
+    }
+
+    /**
+     * Reference walkability check that scans the map layers and collision objects directly.
+     *
+     * <p>Kept as the ground truth for {@link WalkabilityGrid}; gameplay code should call
+     * {@link #isWalkable(Vector2)} instead. Checks, in order:</p>
      * <ol>
      *   <li>Map bounds</li>
      *   <li>Presence on at least one “walkable” tile layer</li>
      *   <li>Absence from any collidable tile layer</li>
      *   <li>Absence from any collision‐object in the “Collision” layer</li>
      * </ol>
+     * <p>The scan itself is {@link WalkabilityGrid#isWalkableReference(TiledMap, float, float)},
+     * so tests can run it without a screen.</p>
      *
      * @param pos the position in world pixels to test
      * @return {@code true} if it’s within bounds, on a walkable tile, and not blocked
      */
-    public boolean isWalkable(Vector2 pos) {
-        // --- 1. Check if position is within map bounds ---
-        int mapTileWidth = tiledMap.getProperties().get("width", Integer.class);
-        int mapTileHeight = tiledMap.getProperties().get("height", Integer.class);
-        int mapPixelWidth = mapTileWidth * tileWidth;
-        int mapPixelHeight = mapTileHeight * tileHeight;
-
-        if (pos.x < 0 || pos.y < 0 || pos.x >= mapPixelWidth || pos.y >= mapPixelHeight) {
-            return false; // Out of map bounds
-        }
-
-        // --- 2. Check if we're on at least one walkable layer ---
-        String[] walkableLayers = {"Green Patch", "Grass", "Path"};
-        boolean onWalkableLayer = false;
-
-        for (String layerName : walkableLayers) {
-            MapLayer layerRaw = tiledMap.getLayers().get(layerName);
-            if (layerRaw instanceof TiledMapTileLayer) {
-                TiledMapTileLayer layer = (TiledMapTileLayer) layerRaw;
-                int tileX = (int)(pos.x / tileWidth);
-                int tileY = (int)(pos.y / tileHeight);
-                TiledMapTileLayer.Cell cell = layer.getCell(tileX, tileY);
-
-                if (cell != null && cell.getTile() != null && cell.getTile().getId() != 0) {
-                    onWalkableLayer = true;
-                    break;
-                }
-            }
-        }
-
-        if (!onWalkableLayer) {
-            return false; // Not on any walkable layer
-        }
-
-        // --- 3. Check if we're on any collidable layer ---
-        for (int i = 0; i < tiledMap.getLayers().size(); i++) {
-            MapLayer layer = tiledMap.getLayers().get(i);
-            if (layer instanceof TiledMapTileLayer &&
-                Boolean.TRUE.equals(layer.getProperties().get("collidable"))) {
-
-                TiledMapTileLayer tileLayer = (TiledMapTileLayer) layer;
-                int tileX = (int)(pos.x / tileWidth);
-                int tileY = (int)(pos.y / tileHeight);
-                TiledMapTileLayer.Cell cell = tileLayer.getCell(tileX, tileY);
-
-                if (cell != null && cell.getTile() != null && cell.getTile().getId() != 0) {
-                    return false; // On a collidable tile
-                }
-            }
-        }
-
-        // --- 4. Check collision objects ---
-        MapLayer collisionLayer = tiledMap.getLayers().get("Collision");
-        if (collisionLayer != null) {
-            MapObjects objects = collisionLayer.getObjects();
-            for (MapObject object : objects) {
-                if (object instanceof RectangleMapObject) {
-                    Rectangle rect = ((RectangleMapObject) object).getRectangle();
-                    if (rect.contains(pos.x, pos.y)) {
-                        return false;
-                    }
-                } else if (object instanceof PolygonMapObject) {
-                    Polygon polygon = ((PolygonMapObject) object).getPolygon();
-                    if (polygon.contains(pos.x, pos.y)) {
-                        return false;
-                    }
-                } else if (object instanceof EllipseMapObject) {
-                    Ellipse ellipse = ((EllipseMapObject) object).getEllipse();
-                    if (ellipse.contains(pos.x, pos.y)) {
-                        return false;
-                    }
-                }
-            }
-        }
-
-
-        // All checks passed
-        return true;
+    public boolean isWalkableReference(Vector2 pos) {
+        return WalkabilityGrid.isWalkableReference(tiledMap, pos.x, pos.y);
     }
 
     /**
@@ -814,7 +838,8 @@ public class GameScreen implements Screen {
     }
 
     /**
-     * Cleans up all resources: map, renderers, batch, fonts, shapes, chests, and audio.
+     * Cleans up all resources: map, renderers, batch, fonts, shapes, chests, audio, the shared path searches,
+     * pending collection writes and the database connections.
      */
     @Override
     public void dispose() {
@@ -832,6 +857,15 @@ public class GameScreen implements Screen {
         if (speedBoostTexture != null) {
             speedBoostTexture.dispose();
         }
-
+        if (ai != null) {
+            ai.dispose();
+        }
+        if (pathRequests != null) {
+            pathRequests.dispose();
+        }
+        if (collectionWriter != null) {
+            collectionWriter.close();
+        }
+        TrainingDataDAO.shutdown();
     }
 }
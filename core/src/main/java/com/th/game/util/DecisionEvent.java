@@ -0,0 +1,11 @@
+package com.th.game.util;
+
+/**
+ * Represents the game events that make the AI re-evaluate its high-level target.
+ */
+public enum DecisionEvent {
+    TREASURE_COLLECTED,
+    HINT_ISSUED,
+    TARGET_REACHED,
+    STUCK
+}
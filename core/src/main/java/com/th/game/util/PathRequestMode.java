@@ -0,0 +1,9 @@
+package com.th.game.util;
+
+/**
+ * Represents where the AI's path searches run.
+ */
+public enum PathRequestMode {
+    TIME_SLICED,
+    WORKER_THREAD
+}
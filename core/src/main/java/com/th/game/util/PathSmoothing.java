@@ -0,0 +1,10 @@
+package com.th.game.util;
+
+/**
+ * Represents how the AI post-processes tile-by-tile paths before following them.
+ */
+public enum PathSmoothing {
+    NONE,
+    COLLINEAR,
+    ANY_ANGLE
+}
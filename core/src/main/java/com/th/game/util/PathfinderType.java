@@ -0,0 +1,11 @@
+package com.th.game.util;
+
+/**
+ * Represents the path search engines the AI can use.
+ */
+public enum PathfinderType {
+    ASTAR,
+    JUMP_POINT,
+    HIERARCHICAL,
+    INCREMENTAL
+}
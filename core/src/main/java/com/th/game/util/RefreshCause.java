@@ -0,0 +1,10 @@
+package com.th.game.util;
+
+/**
+ * Represents why the AI asked for a new path.
+ */
+public enum RefreshCause {
+    NEW_TARGET,
+    INTERVAL,
+    STUCK
+}
@@ -0,0 +1,10 @@
+package com.th.game.util;
+
+/**
+ * Represents what happens to a treasure collection event when the write-behind queue is full.
+ */
+public enum WriteBackpressure {
+    BLOCK,
+    DROP,
+    SPILL_TO_DISK
+}
@@ -0,0 +1,313 @@
+package com.th.game.util.map;
+
+import com.badlogic.gdx.math.Vector2;
+import com.th.game.entities.TreasureChest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Walking distance from every tile to the nearest closed treasure chest.
+ * <p>
+ * One breadth-first search from all closed chests at once fills a distance array and
+ * records which chest each tile is closest to. Any agent can then read the number of
+ * steps to the nearest chest, the chest itself, or the next tile toward it with a
+ * single array lookup. When a chest opens, only the tiles that belonged to it are
+ * recomputed, from the edge of the region they share with the other chests.
+ */
+public class TreasureFlowField {
+    /** Distance of tiles that cannot reach any closed chest. */
+    public static final int UNREACHABLE = -1;
+
+    private static final int NO_CHEST = -1;
+
+    private final WalkabilityGrid walkabilityGrid;
+    private final int width;
+    private final int height;
+
+    private final int[] distance;
+    private final int[] owner;
+    private final int[] queue;
+    private final boolean[] invalid;
+    private final List<TreasureChest> chests = new ArrayList<>();
+
+    /**
+     * Creates an empty flow field over the tiles of the given grid.
+     *
+     * @param walkabilityGrid the map's walkability
+     */
+    public TreasureFlowField(WalkabilityGrid walkabilityGrid) {
+        this.walkabilityGrid = walkabilityGrid;
+        this.width = walkabilityGrid.getWidth();
+        this.height = walkabilityGrid.getHeight();
+        int cells = width * height;
+        this.distance = new int[cells];
+        this.owner = new int[cells];
+        this.queue = new int[cells];
+        this.invalid = new boolean[cells];
+        Arrays.fill(distance, UNREACHABLE);
+        Arrays.fill(owner, NO_CHEST);
+    }
+
+    /**
+     * Recomputes the whole field from the closed chests of a new round.
+     *
+     * @param treasureChests the chests placed this round
+     */
+    public void build(List<TreasureChest> treasureChests) {
+        chests.clear();
+        chests.addAll(treasureChests);
+        Arrays.fill(distance, UNREACHABLE);
+        Arrays.fill(owner, NO_CHEST);
+
+        int tail = 0;
+        for (int i = 0; i < chests.size(); i++) {
+            TreasureChest chest = chests.get(i);
+            if (chest.state != TreasureChest.ChestState.CLOSED) {
+                continue;
+            }
+            int cell = chestCell(chest);
+            if (cell != UNREACHABLE && distance[cell] == UNREACHABLE) {
+                distance[cell] = 0;
+                owner[cell] = i;
+                queue[tail++] = cell;
+            }
+        }
+        flood(0, tail);
+    }
+
+    /**
+     * Removes an opened chest from the field. Tiles that were closest to it take the
+     * distance to the next nearest closed chest; all other tiles keep their values.
+     *
+     * @param chest the chest that was just opened
+     */
+    public void onChestOpened(TreasureChest chest) {
+        int removed = indexOf(chest);
+        if (removed == NO_CHEST) {
+            return;
+        }
+
+        // Collect the tiles that belonged to the opened chest
+        int count = 0;
+        for (int cell = 0; cell < owner.length; cell++) {
+            if (owner[cell] == removed) {
+                invalid[cell] = true;
+                queue[count++] = cell;
+            }
+        }
+
+        // Seed from their still-valid neighbors, nearest first, so the flood stays a BFS
+        int seeds = 0;
+        int[] seedCells = new int[count * 4];
+        for (int i = 0; i < count; i++) {
+            int cell = queue[i];
+            distance[cell] = UNREACHABLE;
+            owner[cell] = NO_CHEST;
+            int x = cell % width;
+            int y = cell / width;
+            seeds = addSeed(seedCells, seeds, x + 1, y);
+            seeds = addSeed(seedCells, seeds, x - 1, y);
+            seeds = addSeed(seedCells, seeds, x, y + 1);
+            seeds = addSeed(seedCells, seeds, x, y - 1);
+        }
+        // Another closed chest inside the region is a source of its own
+        for (int i = 0; i < chests.size(); i++) {
+            TreasureChest other = chests.get(i);
+            int cell = other.state == TreasureChest.ChestState.CLOSED ? chestCell(other) : UNREACHABLE;
+            if (cell != UNREACHABLE && invalid[cell]) {
+                distance[cell] = 0;
+                owner[cell] = i;
+                invalid[cell] = false;
+                seedCells = ensureCapacity(seedCells, seeds + 1);
+                seedCells[seeds++] = cell;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            invalid[queue[i]] = false;
+        }
+        if (seeds == 0) {
+            return;
+        }
+        seedCells = Arrays.copyOf(seedCells, seeds);
+        sortByDistance(seedCells);
+
+        // Merge the sorted seeds into the BFS as their distance level comes up
+        int head = 0;
+        int tail = 0;
+        int nextSeed = 0;
+        while (nextSeed < seeds || head < tail) {
+            if (head == tail || (nextSeed < seeds && distance[seedCells[nextSeed]] <= distance[queue[head]])) {
+                int seed = seedCells[nextSeed++];
+                tail = expand(seed, tail);
+            } else {
+                tail = expand(queue[head++], tail);
+            }
+        }
+    }
+
+    private static int[] ensureCapacity(int[] array, int size) {
+        return size <= array.length ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+    }
+
+    private int addSeed(int[] seedCells, int seeds, int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return seeds;
+        }
+        int cell = y * width + x;
+        if (invalid[cell] || distance[cell] == UNREACHABLE) {
+            return seeds;
+        }
+        seedCells[seeds] = cell;
+        return seeds + 1;
+    }
+
+    /**
+     * Breadth-first flood over walkable tiles, starting from the queued sources.
+     */
+    private void flood(int head, int tail) {
+        while (head < tail) {
+            tail = expand(queue[head++], tail);
+        }
+    }
+
+    private int expand(int cell, int tail) {
+        int x = cell % width;
+        int y = cell / width;
+        tail = relax(cell, x + 1, y, tail);
+        tail = relax(cell, x - 1, y, tail);
+        tail = relax(cell, x, y + 1, tail);
+        tail = relax(cell, x, y - 1, tail);
+        return tail;
+    }
+
+    private int relax(int from, int x, int y, int tail) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return tail;
+        }
+        int cell = y * width + x;
+        int next = distance[from] + 1;
+        if ((distance[cell] != UNREACHABLE && distance[cell] <= next) || !walkabilityGrid.isTileWalkable(x, y)) {
+            return tail;
+        }
+        distance[cell] = next;
+        owner[cell] = owner[from];
+        queue[tail] = cell;
+        return tail + 1;
+    }
+
+    private void sortByDistance(int[] cells) {
+        long[] keyed = new long[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            keyed[i] = ((long) distance[cells[i]] << 32) | cells[i];
+        }
+        Arrays.sort(keyed);
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = (int) keyed[i];
+        }
+    }
+
+    /**
+     * Returns the number of steps from the tile under a world position to the nearest
+     * closed chest.
+     *
+     * @param x world x-coordinate in pixels
+     * @param y world y-coordinate in pixels
+     * @return the step count, or {@link #UNREACHABLE}
+     */
+    public int getDistance(float x, float y) {
+        int cell = cellAt(x, y);
+        return cell == UNREACHABLE ? UNREACHABLE : distance[cell];
+    }
+
+    /**
+     * Returns the closed chest nearest to a world position by walking distance.
+     *
+     * @param x world x-coordinate in pixels
+     * @param y world y-coordinate in pixels
+     * @return the nearest closed chest, or {@code null} if none is reachable
+     */
+    public TreasureChest getNearestChest(float x, float y) {
+        int cell = cellAt(x, y);
+        if (cell == UNREACHABLE || owner[cell] == NO_CHEST) {
+            return null;
+        }
+        return chests.get(owner[cell]);
+    }
+
+    /**
+     * Writes the centre of the next tile toward the nearest closed chest.
+     *
+     * @param x   world x-coordinate in pixels
+     * @param y   world y-coordinate in pixels
+     * @param out receives the world position of the next tile
+     * @return {@code false} if the position is already on a chest tile or cannot reach one
+     */
+    public boolean getNextStep(float x, float y, Vector2 out) {
+        int cell = cellAt(x, y);
+        if (cell == UNREACHABLE || distance[cell] <= 0) {
+            return false;
+        }
+        int tx = cell % width;
+        int ty = cell / width;
+        int target = distance[cell] - 1;
+        int next;
+        if (isAt(tx + 1, ty, target)) next = cell + 1;
+        else if (isAt(tx - 1, ty, target)) next = cell - 1;
+        else if (isAt(tx, ty + 1, target)) next = cell + width;
+        else if (isAt(tx, ty - 1, target)) next = cell - width;
+        else return false;
+
+        int tileWidth = walkabilityGrid.getTileWidth();
+        int tileHeight = walkabilityGrid.getTileHeight();
+        out.set((next % width) * tileWidth + tileWidth / 2f, (next / width) * tileHeight + tileHeight / 2f);
+        return true;
+    }
+
+    private boolean isAt(int x, int y, int value) {
+        return x >= 0 && y >= 0 && x < width && y < height && distance[y * width + x] == value;
+    }
+
+    private int cellAt(float x, float y) {
+        int tx = (int) (x / walkabilityGrid.getTileWidth());
+        int ty = (int) (y / walkabilityGrid.getTileHeight());
+        if (x < 0 || y < 0 || tx >= width || ty >= height) {
+            return UNREACHABLE;
+        }
+        return ty * width + tx;
+    }
+
+    /**
+     * Returns the tile a chest sits on, or a walkable neighbor if the chest's position
+     * falls on a tile whose centre is blocked.
+     */
+    private int chestCell(TreasureChest chest) {
+        int cell = cellAt(chest.position.x, chest.position.y);
+        if (cell == UNREACHABLE) {
+            return UNREACHABLE;
+        }
+        int tx = cell % width;
+        int ty = cell / width;
+        if (walkabilityGrid.isTileWalkable(tx, ty)) {
+            return cell;
+        }
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                if (walkabilityGrid.isTileWalkable(tx + dx, ty + dy)) {
+                    return (ty + dy) * width + tx + dx;
+                }
+            }
+        }
+        return UNREACHABLE;
+    }
+
+    private int indexOf(TreasureChest chest) {
+        for (int i = 0; i < chests.size(); i++) {
+            if (chests.get(i) == chest) {
+                return i;
+            }
+        }
+        return NO_CHEST;
+    }
+}
@@ -0,0 +1,459 @@
+package com.th.game.util.map;
+
+import com.badlogic.gdx.maps.MapLayer;
+import com.badlogic.gdx.maps.MapObject;
+import com.badlogic.gdx.maps.objects.EllipseMapObject;
+import com.badlogic.gdx.maps.objects.PolygonMapObject;
+import com.badlogic.gdx.maps.objects.RectangleMapObject;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.math.Ellipse;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Shape2D;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Precomputed walkability of a TiledMap, stored as a compact bitset.
+ * <p>
+ * The map is rasterized once: every tile is split into {@code subdivisions × subdivisions}
+ * sub-cells, tile layers decide whether a tile is open at all, and the shapes in the
+ * "Collision" object group are sampled at the centre of each sub-cell. After that, every
+ * walkability query is a couple of integer divisions and a single array lookup.
+ * <p>
+ * Tile layers are exact. Collision shapes are approximated: a position gets the answer
+ * {@link #isWalkableReference(TiledMap, float, float)} gives for the centre of its
+ * sub-cell, so the two agree exactly at every sub-cell centre (every tile centre
+ * included) and can only differ inside sub-cells that a shape edge crosses, that is
+ * within one sub-cell ({@code tileWidth / subdivisions}, 6.4 px for 32 px tiles) of a
+ * collision shape's edge.
+ */
+public class WalkabilityGrid {
+
+    /** Tile layers that make a tile walkable when they have a tile in that cell. */
+    public static final String[] WALKABLE_LAYERS = {"Green Patch", "Grass", "Path"};
+
+    /** Object group holding the collision shapes. */
+    public static final String COLLISION_LAYER = "Collision";
+
+    /**
+     * Default sub-tile resolution. Odd, so the centre sub-cell samples exactly the
+     * tile centre that the navigation graph tests.
+     */
+    public static final int DEFAULT_SUBDIVISIONS = 5;
+
+    private final int mapWidth;
+    private final int mapHeight;
+    private final int tileWidth;
+    private final int tileHeight;
+    private final int subdivisions;
+    private final int cellsX;
+    private final int cellsY;
+    private final float mapPixelWidth;
+    private final float mapPixelHeight;
+
+    /** One bit per sub-cell, set when the sub-cell is walkable. */
+    private final long[] bits;
+
+    /**
+     * Rasterizes the given map using {@link #DEFAULT_SUBDIVISIONS}.
+     *
+     * @param tiledMap the map to rasterize
+     */
+    public WalkabilityGrid(TiledMap tiledMap) {
+        this(tiledMap, DEFAULT_SUBDIVISIONS);
+    }
+
+    /**
+     * Rasterizes the given map.
+     *
+     * @param tiledMap     the map to rasterize
+     * @param subdivisions sub-cells per tile along each axis (1 = tile resolution)
+     */
+    public WalkabilityGrid(TiledMap tiledMap, int subdivisions) {
+        this(tiledMap.getProperties().get("width", Integer.class),
+            tiledMap.getProperties().get("height", Integer.class),
+            tiledMap.getProperties().get("tilewidth", Integer.class),
+            tiledMap.getProperties().get("tileheight", Integer.class),
+            subdivisions);
+        rasterizeTileLayers(tiledMap);
+        rasterizeCollisionObjects(tiledMap);
+    }
+
+    /**
+     * Creates a grid where every cell is blocked. Useful for generated maps; open tiles
+     * with {@link #setTileWalkable(int, int, boolean)}.
+     *
+     * @param mapWidth     map width in tiles
+     * @param mapHeight    map height in tiles
+     * @param tileWidth    tile width in pixels
+     * @param tileHeight   tile height in pixels
+     * @param subdivisions sub-cells per tile along each axis
+     */
+    public WalkabilityGrid(int mapWidth, int mapHeight, int tileWidth, int tileHeight, int subdivisions) {
+        if (subdivisions < 1) {
+            throw new IllegalArgumentException("subdivisions must be >= 1, got " + subdivisions);
+        }
+        this.mapWidth = mapWidth;
+        this.mapHeight = mapHeight;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.subdivisions = subdivisions;
+        this.cellsX = mapWidth * subdivisions;
+        this.cellsY = mapHeight * subdivisions;
+        this.mapPixelWidth = mapWidth * tileWidth;
+        this.mapPixelHeight = mapHeight * tileHeight;
+        this.bits = new long[(cellsX * cellsY + 63) >>> 6];
+    }
+
+    /**
+     * Creates an independent copy of another grid.
+     *
+     * @param other the grid to copy
+     */
+    public WalkabilityGrid(WalkabilityGrid other) {
+        this(other.mapWidth, other.mapHeight, other.tileWidth, other.tileHeight, other.subdivisions);
+        System.arraycopy(other.bits, 0, bits, 0, bits.length);
+    }
+
+    /**
+     * Marks every tile that is on a walkable layer and not on a collidable layer as open.
+     */
+    private void rasterizeTileLayers(TiledMap tiledMap) {
+        Array<TiledMapTileLayer> walkable = new Array<>();
+        for (String layerName : WALKABLE_LAYERS) {
+            MapLayer layer = tiledMap.getLayers().get(layerName);
+            if (layer instanceof TiledMapTileLayer) {
+                walkable.add((TiledMapTileLayer) layer);
+            }
+        }
+
+        Array<TiledMapTileLayer> collidable = new Array<>();
+        for (int i = 0; i < tiledMap.getLayers().size(); i++) {
+            MapLayer layer = tiledMap.getLayers().get(i);
+            if (layer instanceof TiledMapTileLayer &&
+                Boolean.TRUE.equals(layer.getProperties().get("collidable"))) {
+                collidable.add((TiledMapTileLayer) layer);
+            }
+        }
+
+        for (int ty = 0; ty < mapHeight; ty++) {
+            for (int tx = 0; tx < mapWidth; tx++) {
+                setTileWalkable(tx, ty, hasTile(walkable, tx, ty) && !hasTile(collidable, tx, ty));
+            }
+        }
+    }
+
+    /**
+     * Clears every sub-cell whose centre lies inside a shape of the collision object group.
+     */
+    private void rasterizeCollisionObjects(TiledMap tiledMap) {
+        MapLayer collisionLayer = tiledMap.getLayers().get(COLLISION_LAYER);
+        if (collisionLayer == null) {
+            return;
+        }
+
+        float cellWidth = tileWidth / (float) subdivisions;
+        float cellHeight = tileHeight / (float) subdivisions;
+
+        for (MapObject object : collisionLayer.getObjects()) {
+            Shape2D shape;
+            float minX, minY, maxX, maxY;
+            if (object instanceof RectangleMapObject) {
+                Rectangle rect = ((RectangleMapObject) object).getRectangle();
+                shape = rect;
+                minX = rect.x;
+                minY = rect.y;
+                maxX = rect.x + rect.width;
+                maxY = rect.y + rect.height;
+            } else if (object instanceof PolygonMapObject) {
+                shape = ((PolygonMapObject) object).getPolygon();
+                Rectangle bounds = ((PolygonMapObject) object).getPolygon().getBoundingRectangle();
+                minX = bounds.x;
+                minY = bounds.y;
+                maxX = bounds.x + bounds.width;
+                maxY = bounds.y + bounds.height;
+            } else if (object instanceof EllipseMapObject) {
+                Ellipse ellipse = ((EllipseMapObject) object).getEllipse();
+                shape = ellipse;
+                // Generous bounds: covers the ellipse whether x/y is its centre or corner
+                minX = ellipse.x - ellipse.width;
+                minY = ellipse.y - ellipse.height;
+                maxX = ellipse.x + ellipse.width;
+                maxY = ellipse.y + ellipse.height;
+            } else {
+                continue;
+            }
+
+            int fromX = Math.max(0, (int) Math.floor(minX / cellWidth));
+            int fromY = Math.max(0, (int) Math.floor(minY / cellHeight));
+            int toX = Math.min(cellsX - 1, (int) Math.floor(maxX / cellWidth));
+            int toY = Math.min(cellsY - 1, (int) Math.floor(maxY / cellHeight));
+
+            for (int cy = fromY; cy <= toY; cy++) {
+                float sampleY = sampleCoordinate(cy, tileHeight);
+                for (int cx = fromX; cx <= toX; cx++) {
+                    int index = cy * cellsX + cx;
+                    if (isSet(index) && shape.contains(sampleCoordinate(cx, tileWidth), sampleY)) {
+                        clear(index);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the world coordinate of the centre of a sub-cell along one axis. Computed
+     * from the tile origin so the centre sub-cell of an odd subdivision hits the exact
+     * tile centre.
+     */
+    private float sampleCoordinate(int cell, int tileSize) {
+        int tile = cell / subdivisions;
+        int sub = cell - tile * subdivisions;
+        return tile * tileSize + (2 * sub + 1) * tileSize / (2f * subdivisions);
+    }
+
+    private static boolean hasTile(Array<TiledMapTileLayer> layers, int tx, int ty) {
+        for (TiledMapTileLayer layer : layers) {
+            if (hasTile(layer, tx, ty)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reference walkability check that scans the map layers and collision objects directly.
+     * Slow; it is the ground truth the grid is rasterized from and tested against. Checks,
+     * in order: map bounds, presence on at least one walkable tile layer, absence from any
+     * collidable tile layer and absence from every shape in the collision object group.
+     *
+     * @param tiledMap the map to test
+     * @param x        world x-coordinate in pixels
+     * @param y        world y-coordinate in pixels
+     * @return {@code true} if it is within bounds, on a walkable tile, and not blocked
+     */
+    public static boolean isWalkableReference(TiledMap tiledMap, float x, float y) {
+        int tileWidth = tiledMap.getProperties().get("tilewidth", Integer.class);
+        int tileHeight = tiledMap.getProperties().get("tileheight", Integer.class);
+        int mapPixelWidth = tiledMap.getProperties().get("width", Integer.class) * tileWidth;
+        int mapPixelHeight = tiledMap.getProperties().get("height", Integer.class) * tileHeight;
+        if (x < 0 || y < 0 || x >= mapPixelWidth || y >= mapPixelHeight) {
+            return false;
+        }
+
+        int tileX = (int) (x / tileWidth);
+        int tileY = (int) (y / tileHeight);
+        boolean onWalkableLayer = false;
+        for (String layerName : WALKABLE_LAYERS) {
+            MapLayer layer = tiledMap.getLayers().get(layerName);
+            if (layer instanceof TiledMapTileLayer && hasTile((TiledMapTileLayer) layer, tileX, tileY)) {
+                onWalkableLayer = true;
+                break;
+            }
+        }
+        if (!onWalkableLayer) {
+            return false;
+        }
+
+        for (int i = 0; i < tiledMap.getLayers().size(); i++) {
+            MapLayer layer = tiledMap.getLayers().get(i);
+            if (layer instanceof TiledMapTileLayer
+                && Boolean.TRUE.equals(layer.getProperties().get("collidable"))
+                && hasTile((TiledMapTileLayer) layer, tileX, tileY)) {
+                return false;
+            }
+        }
+
+        MapLayer collisionLayer = tiledMap.getLayers().get(COLLISION_LAYER);
+        if (collisionLayer != null) {
+            for (MapObject object : collisionLayer.getObjects()) {
+                if (object instanceof RectangleMapObject) {
+                    if (((RectangleMapObject) object).getRectangle().contains(x, y)) {
+                        return false;
+                    }
+                } else if (object instanceof PolygonMapObject) {
+                    if (((PolygonMapObject) object).getPolygon().contains(x, y)) {
+                        return false;
+                    }
+                } else if (object instanceof EllipseMapObject) {
+                    if (((EllipseMapObject) object).getEllipse().contains(x, y)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasTile(TiledMapTileLayer layer, int tx, int ty) {
+        TiledMapTileLayer.Cell cell = layer.getCell(tx, ty);
+        return cell != null && cell.getTile() != null && cell.getTile().getId() != 0;
+    }
+
+    /**
+     * Determines if the given world position is free for movement.
+     *
+     * @param x world x-coordinate in pixels
+     * @param y world y-coordinate in pixels
+     * @return {@code true} if the position is inside the map and its sub-cell is walkable
+     */
+    public boolean isWalkable(float x, float y) {
+        if (x < 0 || y < 0 || x >= mapPixelWidth || y >= mapPixelHeight) {
+            return false;
+        }
+        // Resolve the tile first so tile boundaries match the per-layer lookups exactly
+        int tx = (int) (x / tileWidth);
+        int ty = (int) (y / tileHeight);
+        int sx = Math.min(subdivisions - 1, (int) ((x - tx * tileWidth) * subdivisions / tileWidth));
+        int sy = Math.min(subdivisions - 1, (int) ((y - ty * tileHeight) * subdivisions / tileHeight));
+        return isSet((ty * subdivisions + sy) * cellsX + tx * subdivisions + sx);
+    }
+
+    /**
+     * Determines if a straight segment stays on walkable ground.
+     * <p>
+     * Walks every sub-cell the segment touches. Where it passes exactly through a
+     * sub-cell corner, both cells beside the corner must be open, so the segment never
+     * squeezes diagonally between two blocked cells.
+     *
+     * @param x0 start x-coordinate in pixels
+     * @param y0 start y-coordinate in pixels
+     * @param x1 end x-coordinate in pixels
+     * @param y1 end y-coordinate in pixels
+     * @return {@code true} if every sub-cell under the segment is walkable
+     */
+    public boolean isSegmentWalkable(float x0, float y0, float x1, float y1) {
+        if (!isWalkable(x0, y0) || !isWalkable(x1, y1)) {
+            return false;
+        }
+        // Work in sub-cell units
+        double u0 = x0 * subdivisions / (double) tileWidth;
+        double v0 = y0 * subdivisions / (double) tileHeight;
+        double u1 = x1 * subdivisions / (double) tileWidth;
+        double v1 = y1 * subdivisions / (double) tileHeight;
+        int cx = (int) u0;
+        int cy = (int) v0;
+        int endX = (int) u1;
+        int endY = (int) v1;
+        int stepX = Double.compare(u1, u0);
+        int stepY = Double.compare(v1, v0);
+        double du = Math.abs(u1 - u0);
+        double dv = Math.abs(v1 - v0);
+        double deltaX = stepX != 0 ? 1.0 / du : Double.POSITIVE_INFINITY;
+        double deltaY = stepY != 0 ? 1.0 / dv : Double.POSITIVE_INFINITY;
+        double nextX = stepX > 0 ? (cx + 1 - u0) / du : stepX < 0 ? (u0 - cx) / du : Double.POSITIVE_INFINITY;
+        double nextY = stepY > 0 ? (cy + 1 - v0) / dv : stepY < 0 ? (v0 - cy) / dv : Double.POSITIVE_INFINITY;
+
+        // Never more steps than the cells between the end points, even with rounding
+        int steps = Math.abs(endX - cx) + Math.abs(endY - cy);
+        while ((cx != endX || cy != endY) && steps-- > 0) {
+            if (Math.abs(nextX - nextY) < 1e-9) {
+                if (!isCellWalkable(cx + stepX, cy) || !isCellWalkable(cx, cy + stepY)) {
+                    return false;
+                }
+                cx += stepX;
+                cy += stepY;
+                nextX += deltaX;
+                nextY += deltaY;
+                steps--;
+            } else if (nextX < nextY) {
+                cx += stepX;
+                nextX += deltaX;
+            } else {
+                cy += stepY;
+                nextY += deltaY;
+            }
+            if (!isCellWalkable(cx, cy)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isCellWalkable(int cellX, int cellY) {
+        return cellX >= 0 && cellY >= 0 && cellX < cellsX && cellY < cellsY && isSet(cellY * cellsX + cellX);
+    }
+
+    /**
+     * Returns whether the centre of a tile is walkable. This is the sample the
+     * navigation graph uses to decide whether a tile becomes a node.
+     *
+     * @param tileX grid x-coordinate
+     * @param tileY grid y-coordinate
+     * @return {@code true} if the tile centre is walkable
+     */
+    public boolean isTileWalkable(int tileX, int tileY) {
+        if (tileX < 0 || tileY < 0 || tileX >= mapWidth || tileY >= mapHeight) {
+            return false;
+        }
+        int centre = subdivisions / 2;
+        return isSet((tileY * subdivisions + centre) * cellsX + tileX * subdivisions + centre);
+    }
+
+    /**
+     * Opens or blocks every sub-cell of a tile.
+     *
+     * @param tileX    grid x-coordinate
+     * @param tileY    grid y-coordinate
+     * @param walkable the new state of the tile
+     */
+    public void setTileWalkable(int tileX, int tileY, boolean walkable) {
+        for (int sy = 0; sy < subdivisions; sy++) {
+            int row = (tileY * subdivisions + sy) * cellsX + tileX * subdivisions;
+            for (int sx = 0; sx < subdivisions; sx++) {
+                if (walkable) {
+                    set(row + sx);
+                } else {
+                    clear(row + sx);
+                }
+            }
+        }
+    }
+
+    private boolean isSet(int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private void set(int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private void clear(int index) {
+        bits[index >>> 6] &= ~(1L << index);
+    }
+
+    /**
+     * @return number of tiles horizontally in the map
+     */
+    public int getWidth() {
+        return mapWidth;
+    }
+
+    /**
+     * @return number of tiles vertically in the map
+     */
+    public int getHeight() {
+        return mapHeight;
+    }
+
+    /**
+     * @return width of a single tile in pixels
+     */
+    public int getTileWidth() {
+        return tileWidth;
+    }
+
+    /**
+     * @return height of a single tile in pixels
+     */
+    public int getTileHeight() {
+        return tileHeight;
+    }
+
+    /**
+     * @return sub-cells per tile along each axis
+     */
+    public int getSubdivisions() {
+        return subdivisions;
+    }
+}
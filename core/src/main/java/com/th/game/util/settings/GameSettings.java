@@ -1,5 +1,11 @@
 package com.th.game.util.settings;
 
+import com.th.game.ai.AIDecisionScheduler;
+import com.th.game.util.PathRequestMode;
+import com.th.game.util.PathSmoothing;
+import com.th.game.util.PathfinderType;
+import com.th.game.util.WriteBackpressure;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -37,6 +43,17 @@ public class GameSettings {
     /** Total number of rounds to play. */
     public int totalRounds;
 
+    /** Path search engine used by the AI. */
+    public PathfinderType pathfinderType;
+    /** Where the AI's path searches run. */
+    public PathRequestMode pathRequestMode;
+    /** How the AI reduces found paths to waypoints. */
+    public PathSmoothing pathSmoothing;
+    /** Seconds between the AI's target decisions when no game event asks for one sooner. */
+    public float aiDecisionInterval;
+    /** What happens to collection events when the database writer falls behind. */
+    public WriteBackpressure collectionBackpressure;
+
     /** Rounds won by the player so far. */
     public int playerRoundsWon;
     /** Rounds won by the AI so far. */
@@ -55,5 +72,10 @@ public class GameSettings {
         aiRoundScores     = new ArrayList<>();
         // default hints on
         hintsEnabled      = true;
+        pathfinderType    = PathfinderType.ASTAR;
+        pathRequestMode   = PathRequestMode.TIME_SLICED;
+        pathSmoothing     = PathSmoothing.NONE;
+        aiDecisionInterval = AIDecisionScheduler.DEFAULT_TICK_INTERVAL;
+        collectionBackpressure = WriteBackpressure.SPILL_TO_DISK;
     }
 }
@@ -0,0 +1,52 @@
+package com.th.game;
+
+import com.th.game.database.TrainingDataDAO;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Scratch SQLite databases for tests, so they never read or write the game's own
+ * training data.
+ */
+public final class TestDatabase {
+    private TestDatabase() {
+    }
+
+    /**
+     * Creates an empty database file and points {@link TrainingDataDAO} at it.
+     *
+     * @return the database file, deleted when the JVM exits
+     */
+    public static File useTemporaryDatabase() {
+        File file = createFile();
+        TrainingDataDAO.useDatabase(url(file));
+        return file;
+    }
+
+    /**
+     * Creates an empty database file. The file and its WAL files are deleted when the JVM exits.
+     *
+     * @return the database file
+     */
+    public static File createFile() {
+        try {
+            File file = File.createTempFile("training-data", ".db");
+            file.deleteOnExit();
+            new File(file.getPath() + "-wal").deleteOnExit();
+            new File(file.getPath() + "-shm").deleteOnExit();
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param file a database file
+     * @return the JDBC URL of the file
+     */
+    public static String url(File file) {
+        return "jdbc:sqlite:" + file.getAbsolutePath();
+    }
+}
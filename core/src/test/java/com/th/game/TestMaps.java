@@ -0,0 +1,125 @@
+package com.th.game;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TmxMapLoader;
+import com.th.game.ai.pathfinder.TiledMapGraph;
+import com.th.game.util.map.MapManager;
+import com.th.game.util.map.WalkabilityGrid;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Map fixtures for tests: the maps bundled with the game, loaded through a headless
+ * libGDX application, and randomly generated grids.
+ */
+public final class TestMaps {
+    private static boolean started;
+
+    private TestMaps() {
+    }
+
+    /**
+     * @return internal paths of every map listed by {@link MapManager}
+     */
+    public static List<String> bundledMapPaths() {
+        List<String> paths = new ArrayList<>();
+        for (String name : MapManager.getMapNames()) {
+            paths.add(MapManager.getMapByName(name).getPath());
+        }
+        return paths;
+    }
+
+    /**
+     * Loads a bundled map the same way {@code GameScreen} does.
+     *
+     * @param path internal path of the .tmx file
+     * @return the loaded map
+     */
+    public static synchronized TiledMap load(String path) {
+        start();
+        return new TmxMapLoader().load(path);
+    }
+
+    /**
+     * Rasterizes a map and builds its navigation graph.
+     *
+     * @param tiledMap the loaded map
+     * @return the built graph
+     */
+    public static TiledMapGraph graph(TiledMap tiledMap) {
+        TiledMapGraph graph = new TiledMapGraph(new WalkabilityGrid(tiledMap));
+        graph.buildGraph();
+        return graph;
+    }
+
+    /**
+     * Generates a map of 32 px tiles where every tile is blocked with the given probability.
+     *
+     * @param width       map width in tiles
+     * @param height      map height in tiles
+     * @param wallDensity chance of a tile being blocked
+     * @param seed        random seed
+     * @return the generated grid
+     */
+    public static WalkabilityGrid randomGrid(int width, int height, float wallDensity, long seed) {
+        Random random = new Random(seed);
+        WalkabilityGrid grid = new WalkabilityGrid(width, height, 32, 32, WalkabilityGrid.DEFAULT_SUBDIVISIONS);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                grid.setTileWalkable(x, y, random.nextFloat() >= wallDensity);
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Builds a graph over {@link #randomGrid(int, int, float, long)}.
+     *
+     * @param width       map width in tiles
+     * @param height      map height in tiles
+     * @param wallDensity chance of a tile being blocked
+     * @param seed        random seed
+     * @return the built graph
+     */
+    public static TiledMapGraph randomGraph(int width, int height, float wallDensity, long seed) {
+        TiledMapGraph graph = new TiledMapGraph(randomGrid(width, height, wallDensity, seed));
+        graph.buildGraph();
+        return graph;
+    }
+
+    private static void start() {
+        if (started) {
+            return;
+        }
+        new HeadlessApplication(new ApplicationAdapter() {
+        });
+        // The headless backend has no GL; loading tileset textures only needs calls that succeed
+        GL20 gl = (GL20) Proxy.newProxyInstance(GL20.class.getClassLoader(),
+            new Class<?>[]{GL20.class}, TestMaps::defaultResult);
+        Gdx.gl = gl;
+        Gdx.gl20 = gl;
+        started = true;
+    }
+
+    private static Object defaultResult(Object proxy, Method method, Object[] args) {
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == float.class) {
+            return 0f;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,203 @@
+package com.th.game.ai;
+
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.math.Vector2;
+import com.th.game.TestDatabase;
+import com.th.game.TestMaps;
+import com.th.game.ai.pathfinder.NavigationData;
+import com.th.game.ai.pathfinder.PathRequestService;
+import com.th.game.ai.pathfinder.TiledMapGraph;
+import com.th.game.ai.pathfinder.TiledNode;
+import com.th.game.database.TrainingDataDAO;
+import com.th.game.entities.Landmark;
+import com.th.game.util.PathRequestMode;
+import com.th.game.util.PathSmoothing;
+import com.th.game.util.PathfinderType;
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+public class SmartAIAllocationTest {
+    private static final float FRAME_TIME = 1f / 60f;
+    private static final int WARM_UP_FRAMES = 20000;
+    private static final int FRAMES = 10000;
+    /** Gives up waiting for the hotspot load after this many warm-up frames. */
+    private static final int MAX_WARM_UP_FRAMES = 1000000;
+    /**
+     * With the JIT on, the allocation counter now and then reports a few hundred bytes for a
+     * frame that allocates nothing; it happens around an empty measured loop too and never
+     * under {@code -Xint}. A few such frames are tolerated, an allocation per frame is not.
+     */
+    private static final int MAX_ALLOCATING_QUIET_FRAMES = FRAMES / 1000;
+    /**
+     * Mean allocation of a frame with path work: a result path and the search records it
+     * was built from. Measured at about 450 bytes.
+     */
+    private static final long MAX_PATH_FRAME_BYTES = 4096;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @After
+    public void closeDatabase() {
+        TrainingDataDAO.shutdown();
+    }
+
+    /**
+     * Runs the AI on a bundled map for thousands of frames and measures what each
+     * {@link SmartAI#update} call allocates on the game thread. Movement, facing and stuck
+     * detection must not allocate at all. Frames that look up, request or receive a path
+     * are counted separately: a search allocates per request, so only their mean is bounded.
+     */
+    @Test
+    public void framesWithoutPathSearchesDoNotAllocate() throws SQLException {
+        TestDatabase.useTemporaryDatabase();
+        TrainingDataDAO.initializeDatabase();
+        String path = TestMaps.bundledMapPaths().get(0);
+        TiledMap map = TestMaps.load(path);
+        NavigationData navigationData = new NavigationData(map, Collections.<Vector2>emptyList());
+        TiledMapGraph graph = navigationData.getGraph();
+        PathRequestService pathRequests = new PathRequestService(graph, PathfinderType.ASTAR,
+            PathRequestMode.TIME_SLICED, navigationData.getHeuristic());
+        World world = new World(navigationData, pathRequests);
+        long overhead = measurementOverhead();
+
+        for (PathSmoothing smoothing : PathSmoothing.values()) {
+            // Start in the middle of the map, where there is room to walk
+            TiledNode spawn = graph.getNearestNode(graph.getWidth() * graph.getTileWidth() / 2f,
+                graph.getHeight() * graph.getTileHeight() / 2f);
+            SmartAI ai = new SmartAI(new Vector2(spawn.x, spawn.y), "Map 1");
+            ai.setPathSmoothing(smoothing);
+            ai.scanWalkableAreas(world, map);
+
+            // Lets the JIT settle, buffers grow to size and the (empty) hotspot load arrive
+            for (int frame = 0; frame < WARM_UP_FRAMES || ai.getHotspotLoadMillis() < 0; frame++) {
+                assertTrue("hotspot load did not finish", frame < MAX_WARM_UP_FRAMES);
+                frame(ai, world);
+            }
+
+            int quietFrames = 0;
+            int allocatingQuietFrames = 0;
+            long quietBytes = 0;
+            int pathFrames = 0;
+            long pathBytes = 0;
+            for (int frame = 0; frame < FRAMES; frame++) {
+                long pathWork = pathWork(ai);
+                boolean pending = isSearchPending(ai);
+                long before = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+                frame(ai, world);
+                long allocated = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - before - overhead;
+
+                if (pending || isSearchPending(ai) || pathWork != pathWork(ai)) {
+                    pathFrames++;
+                    pathBytes += allocated;
+                } else {
+                    quietFrames++;
+                    quietBytes += allocated;
+                    if (allocated != 0) {
+                        allocatingQuietFrames++;
+                    }
+                }
+            }
+            ai.dispose();
+
+            long pathFrameBytes = pathFrames == 0 ? 0 : pathBytes / pathFrames;
+            System.out.println(path + " " + smoothing + ": " + quietFrames + " frames without path work, "
+                + quietBytes + " bytes in " + allocatingQuietFrames + " of them; " + pathFrames
+                + " frames with path work, " + pathFrameBytes + " bytes per frame");
+            // Searches are short and refreshes are seconds apart, so most frames only move the AI
+            assertTrue(smoothing + ": only " + quietFrames + " frames without path work", quietFrames > FRAMES / 4);
+            assertTrue(smoothing + ": " + allocatingQuietFrames + " of " + quietFrames
+                    + " frames without path work allocated, " + quietBytes + " bytes",
+                allocatingQuietFrames <= MAX_ALLOCATING_QUIET_FRAMES);
+            assertTrue(smoothing + ": no frames with path work", pathFrames > 0);
+            assertTrue(smoothing + ": " + pathFrameBytes + " bytes per frame with path work",
+                pathFrameBytes <= MAX_PATH_FRAME_BYTES);
+        }
+        pathRequests.dispose();
+    }
+
+    /**
+     * What the game screen does for the AI each frame: advance the shared searches, then the AI.
+     */
+    private static void frame(SmartAI ai, World world) {
+        world.getPathRequests().update(PathRequestService.DEFAULT_BUDGET_NANOS);
+        ai.update(FRAME_TIME, world);
+    }
+
+    /**
+     * @return a running total of path cache lookups, requested searches and delivered
+     * results; it changes in every frame that does path work
+     */
+    private static long pathWork(SmartAI ai) {
+        return ai.getPathCache().getHits() + ai.getPathCache().getMisses()
+            + ai.getDecisionScheduler().getReplanCount() + ai.getPathfindingStats().getSearchCount();
+    }
+
+    /**
+     * Every requested search is delivered exactly once, so more requests than results
+     * means a search is still running.
+     */
+    private static boolean isSearchPending(SmartAI ai) {
+        return ai.getDecisionScheduler().getReplanCount() > ai.getPathfindingStats().getSearchCount();
+    }
+
+    /**
+     * Allocation of reading the counter itself, subtracted from every measurement.
+     */
+    private static long measurementOverhead() {
+        long thread = Thread.currentThread().getId();
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            long before = THREADS.getThreadAllocatedBytes(thread);
+            overhead = Math.min(overhead, THREADS.getThreadAllocatedBytes(thread) - before);
+        }
+        return overhead;
+    }
+
+    /**
+     * A map with its navigation data and path request service, no hint and no landmarks.
+     */
+    private static class World implements AIWorld {
+        private final NavigationData navigationData;
+        private final PathRequestService pathRequests;
+        private final List<Landmark> landmarks = new ArrayList<>();
+
+        World(NavigationData navigationData, PathRequestService pathRequests) {
+            this.navigationData = navigationData;
+            this.pathRequests = pathRequests;
+        }
+
+        @Override
+        public NavigationData getNavigationData() {
+            return navigationData;
+        }
+
+        @Override
+        public PathRequestService getPathRequests() {
+            return pathRequests;
+        }
+
+        @Override
+        public String getCurrentHint() {
+            return "";
+        }
+
+        @Override
+        public List<Landmark> getLandmarks() {
+            return landmarks;
+        }
+
+        @Override
+        public boolean isWalkable(float x, float y) {
+            return navigationData.getWalkabilityGrid().isWalkable(x, y);
+        }
+    }
+}
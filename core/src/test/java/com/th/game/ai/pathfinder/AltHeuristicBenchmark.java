@@ -0,0 +1,87 @@
+package com.th.game.ai.pathfinder;
+
+import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
+import com.badlogic.gdx.math.Vector2;
+import com.th.game.TestMaps;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Times A* with {@link MapHeuristic} against A* with {@link AltHeuristic} on the same random
+ * queries, and counts the nodes each expands. The pivots are picked by farthest-point
+ * selection alone, without the maps' landmarks. Run with {@code ./gradlew core:benchmark};
+ * the numbers are printed, nothing is asserted.
+ */
+public class AltHeuristicBenchmark {
+    private static final int QUERIES = 5000;
+    private static final int ROUNDS = 5;
+
+    @Test
+    public void bundledMaps() {
+        for (String path : TestMaps.bundledMapPaths()) {
+            compare(path, TestMaps.graph(TestMaps.load(path)));
+        }
+    }
+
+    @Test
+    public void generatedMaps() {
+        compare("generated 64x64, 20% walls", TestMaps.randomGraph(64, 64, 0.2f, 1L));
+        compare("generated 256x256, 20% walls", TestMaps.randomGraph(256, 256, 0.2f, 1L));
+    }
+
+    private static void compare(String map, TiledMapGraph graph) {
+        int[] starts = new int[QUERIES];
+        int[] ends = new int[QUERIES];
+        Random random = new Random(7L);
+        for (int i = 0; i < QUERIES; i++) {
+            starts[i] = random.nextInt(graph.getNodeCount());
+            ends[i] = random.nextInt(graph.getNodeCount());
+        }
+
+        MapHeuristic manhattan = new MapHeuristic();
+        AltHeuristic alt = new AltHeuristic(graph, Collections.<Vector2>emptyList());
+        IndexedAStarPathFinder<TiledNode> aStar = new IndexedAStarPathFinder<>(graph, true);
+        // The first rounds warm up the JIT; the best round is reported
+        long manhattanNanos = Long.MAX_VALUE;
+        long altNanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            manhattanNanos = Math.min(manhattanNanos, run(aStar, manhattan, graph, starts, ends));
+            altNanos = Math.min(altNanos, run(aStar, alt, graph, starts, ends));
+        }
+
+        long manhattanVisited = 0;
+        long altVisited = 0;
+        DefaultGraphPath<TiledNode> path = new DefaultGraphPath<>();
+        for (int i = 0; i < QUERIES; i++) {
+            path.clear();
+            aStar.searchNodePath(graph.getNode(starts[i]), graph.getNode(ends[i]), manhattan, path);
+            manhattanVisited += aStar.metrics.visitedNodes;
+            path.clear();
+            aStar.searchNodePath(graph.getNode(starts[i]), graph.getNode(ends[i]), alt, path);
+            altVisited += aStar.metrics.visitedNodes;
+        }
+
+        System.out.printf("%s (%d nodes, %d queries)%n", map, graph.getNodeCount(), QUERIES);
+        System.out.printf("  Manhattan: %8.2f us/query, %8.1f expanded/query%n",
+            manhattanNanos / 1000.0 / QUERIES, manhattanVisited / (double) QUERIES);
+        System.out.printf("  ALT:       %8.2f us/query, %8.1f expanded/query (%d pivots, %d KB, %d ms to build)%n",
+            altNanos / 1000.0 / QUERIES, altVisited / (double) QUERIES, alt.getPivotCount(),
+            alt.getMemoryBytes() / 1024, alt.getPrecomputeNanos() / 1000000);
+        alt.dispose();
+    }
+
+    private static long run(IndexedAStarPathFinder<TiledNode> aStar, Heuristic<TiledNode> heuristic,
+                            TiledMapGraph graph, int[] starts, int[] ends) {
+        DefaultGraphPath<TiledNode> path = new DefaultGraphPath<>();
+        long startTime = System.nanoTime();
+        for (int i = 0; i < starts.length; i++) {
+            path.clear();
+            aStar.searchNodePath(graph.getNode(starts[i]), graph.getNode(ends[i]), heuristic, path);
+        }
+        return System.nanoTime() - startTime;
+    }
+}
@@ -0,0 +1,83 @@
+package com.th.game.ai.pathfinder;
+
+import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
+import com.badlogic.gdx.math.Vector2;
+import com.th.game.TestMaps;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class AltHeuristicTest {
+    private static final int QUERIES = 2000;
+
+    @Test
+    public void matchesMapHeuristicOnBundledMaps() {
+        for (String path : TestMaps.bundledMapPaths()) {
+            assertSameLengths(path, TestMaps.graph(TestMaps.load(path)), 1L);
+        }
+    }
+
+    @Test
+    public void matchesMapHeuristicOnGeneratedMaps() {
+        for (long seed = 1; seed <= 5; seed++) {
+            TiledMapGraph graph = TestMaps.randomGraph(45, 37, 0.3f, seed);
+            assertSameLengths("generated map " + seed, graph, seed);
+        }
+    }
+
+    /**
+     * Blocking tiles rebuilds the tables; stale distances could overestimate and make A*
+     * return longer paths.
+     */
+    @Test
+    public void matchesMapHeuristicAfterTilesChange() {
+        TiledMapGraph graph = TestMaps.randomGraph(45, 37, 0.2f, 1L);
+        AltHeuristic alt = new AltHeuristic(graph, Collections.<Vector2>emptyList());
+        Random random = new Random(2L);
+        for (int change = 0; change < 5; change++) {
+            for (int i = 0; i < 20; i++) {
+                graph.setTileWalkable(random.nextInt(graph.getWidth()), random.nextInt(graph.getHeight()),
+                    random.nextBoolean());
+            }
+            assertSameLengths("after change " + change, graph, alt, change);
+        }
+        alt.dispose();
+    }
+
+    private static void assertSameLengths(String map, TiledMapGraph graph, long seed) {
+        AltHeuristic alt = new AltHeuristic(graph, Collections.<Vector2>emptyList());
+        assertSameLengths(map, graph, alt, seed);
+        alt.dispose();
+    }
+
+    /**
+     * Runs random queries through A* with both heuristics. An admissible heuristic never
+     * makes A* miss the shortest path, so both must agree on whether a path exists and on
+     * its length.
+     */
+    private static void assertSameLengths(String map, TiledMapGraph graph, AltHeuristic alt, long seed) {
+        Random random = new Random(seed);
+        MapHeuristic manhattan = new MapHeuristic();
+        IndexedAStarPathFinder<TiledNode> aStar = new IndexedAStarPathFinder<>(graph);
+        DefaultGraphPath<TiledNode> expected = new DefaultGraphPath<>();
+        DefaultGraphPath<TiledNode> actual = new DefaultGraphPath<>();
+
+        for (int i = 0; i < QUERIES; i++) {
+            TiledNode start = graph.getNode(random.nextInt(graph.getNodeCount()));
+            TiledNode end = graph.getNode(random.nextInt(graph.getNodeCount()));
+            expected.clear();
+            actual.clear();
+            boolean found = aStar.searchNodePath(start, end, manhattan, expected);
+            String query = map + ": " + start + " -> " + end;
+
+            assertEquals(query, found, aStar.searchNodePath(start, end, alt, actual));
+            if (found) {
+                assertEquals(query, expected.getCount(), actual.getCount());
+            }
+        }
+    }
+}
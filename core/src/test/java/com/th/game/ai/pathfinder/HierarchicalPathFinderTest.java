@@ -0,0 +1,146 @@
+package com.th.game.ai.pathfinder;
+
+import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
+import com.th.game.TestMaps;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HierarchicalPathFinderTest {
+    private static final int QUERIES = 2000;
+    /** The bound stated on {@link HierarchicalPathFinder}: 1.5 times the shortest path plus two clusters. */
+    private static final float MAX_STRETCH = 1.5f;
+    private static final int MAX_DETOUR = 2 * HierarchicalPathFinder.DEFAULT_CLUSTER_SIZE;
+
+    @Test
+    public void staysNearAStarOnBundledMaps() {
+        for (String path : TestMaps.bundledMapPaths()) {
+            TiledMapGraph graph = TestMaps.graph(TestMaps.load(path));
+            HierarchicalPathFinder finder = new HierarchicalPathFinder(graph);
+            assertNearAStar(path, graph, finder, 1L);
+            finder.dispose();
+        }
+    }
+
+    /**
+     * Sizes that are not multiples of the cluster size leave partial clusters along the
+     * right and top edges.
+     */
+    @Test
+    public void staysNearAStarOnGeneratedMaps() {
+        int[][] sizes = {{45, 37}, {30, 20}, {64, 64}, {101, 53}};
+        for (int[] size : sizes) {
+            for (long seed = 1; seed <= 3; seed++) {
+                for (float density : new float[]{0.1f, 0.3f}) {
+                    TiledMapGraph graph = TestMaps.randomGraph(size[0], size[1], density, seed);
+                    HierarchicalPathFinder finder = new HierarchicalPathFinder(graph);
+                    assertNearAStar("generated " + size[0] + "x" + size[1] + ", " + density + " walls, seed " + seed,
+                        graph, finder, seed);
+                    finder.dispose();
+                }
+            }
+        }
+    }
+
+    /**
+     * Toggles tiles, border tiles included, and checks that rebuilding only the dirty
+     * clusters gives the same paths as a finder built from scratch on the changed map.
+     */
+    @Test
+    public void matchesAFreshFinderAfterTilesChange() {
+        for (long seed = 1; seed <= 3; seed++) {
+            TiledMapGraph graph = TestMaps.randomGraph(45, 37, 0.2f, seed);
+            HierarchicalPathFinder finder = new HierarchicalPathFinder(graph);
+            Random random = new Random(seed);
+            for (int change = 0; change < 10; change++) {
+                for (int i = 0; i < 10; i++) {
+                    graph.setTileWalkable(random.nextInt(graph.getWidth()), random.nextInt(graph.getHeight()),
+                        random.nextBoolean());
+                }
+                // A whole cluster border column, so neighbouring clusters lose and regain entrances
+                int borderX = HierarchicalPathFinder.DEFAULT_CLUSTER_SIZE * (1 + random.nextInt(3)) - random.nextInt(2);
+                boolean open = random.nextBoolean();
+                for (int y = 0; y < graph.getHeight(); y++) {
+                    graph.setTileWalkable(borderX, y, open);
+                }
+                String map = "seed " + seed + " change " + change;
+                assertNearAStar(map, graph, finder, change);
+
+                HierarchicalPathFinder fresh = new HierarchicalPathFinder(graph);
+                assertSameLengths(map, graph, finder, fresh, change);
+                fresh.dispose();
+            }
+            finder.dispose();
+        }
+    }
+
+    /**
+     * Runs random queries through A* and the hierarchical finder. Both must agree on
+     * whether a path exists; the hierarchical path must be a walk of adjacent walkable
+     * tiles from start to goal, no shorter than the A* path and within {@link #MAX_STRETCH}
+     * times its length plus {@link #MAX_DETOUR} steps.
+     */
+    private static void assertNearAStar(String map, TiledMapGraph graph, HierarchicalPathFinder finder, long seed) {
+        Random random = new Random(seed);
+        // A* sizes its records to the node count, which changes when tiles are toggled
+        IndexedAStarPathFinder<TiledNode> aStar = new IndexedAStarPathFinder<>(graph);
+        MapHeuristic heuristic = new MapHeuristic();
+        DefaultGraphPath<TiledNode> expected = new DefaultGraphPath<>();
+        DefaultGraphPath<TiledNode> actual = new DefaultGraphPath<>();
+
+        for (int i = 0; i < QUERIES; i++) {
+            TiledNode start = graph.getNode(random.nextInt(graph.getNodeCount()));
+            TiledNode end = graph.getNode(random.nextInt(graph.getNodeCount()));
+            expected.clear();
+            actual.clear();
+            boolean found = aStar.searchNodePath(start, end, JumpPointPathFinderTest.MANHATTAN, expected);
+            String query = map + ": " + start + " -> " + end;
+
+            assertEquals(query, found, finder.searchNodePath(start, end, heuristic, actual));
+            if (!found) {
+                continue;
+            }
+            assertEquals(query, start.gridX, actual.get(0).gridX);
+            assertEquals(query, start.gridY, actual.get(0).gridY);
+            assertEquals(query, end.gridX, actual.get(actual.getCount() - 1).gridX);
+            assertEquals(query, end.gridY, actual.get(actual.getCount() - 1).gridY);
+            for (int n = 0; n < actual.getCount(); n++) {
+                TiledNode node = actual.get(n);
+                assertNotEquals(query, TiledMapGraph.NO_NODE, graph.getNodeIndex(node.gridX, node.gridY));
+                if (n > 0) {
+                    TiledNode previous = actual.get(n - 1);
+                    assertEquals(query, 1, Math.abs(previous.gridX - node.gridX) + Math.abs(previous.gridY - node.gridY));
+                }
+            }
+
+            int shortest = expected.getCount() - 1;
+            int steps = actual.getCount() - 1;
+            assertTrue(query + ": " + steps + " steps, shortest is " + shortest, steps >= shortest);
+            assertTrue(query + ": " + steps + " steps, shortest is " + shortest,
+                steps <= shortest * MAX_STRETCH + MAX_DETOUR);
+        }
+    }
+
+    private static void assertSameLengths(String map, TiledMapGraph graph, HierarchicalPathFinder finder,
+                                          HierarchicalPathFinder fresh, long seed) {
+        Random random = new Random(seed);
+        MapHeuristic heuristic = new MapHeuristic();
+        DefaultGraphPath<TiledNode> expected = new DefaultGraphPath<>();
+        DefaultGraphPath<TiledNode> actual = new DefaultGraphPath<>();
+        for (int i = 0; i < QUERIES; i++) {
+            TiledNode start = graph.getNode(random.nextInt(graph.getNodeCount()));
+            TiledNode end = graph.getNode(random.nextInt(graph.getNodeCount()));
+            expected.clear();
+            actual.clear();
+            String query = map + ": " + start + " -> " + end;
+            assertEquals(query, fresh.searchNodePath(start, end, heuristic, expected),
+                finder.searchNodePath(start, end, heuristic, actual));
+            assertEquals(query, expected.getCount(), actual.getCount());
+        }
+    }
+}
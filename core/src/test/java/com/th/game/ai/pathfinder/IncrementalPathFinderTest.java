@@ -0,0 +1,225 @@
+package com.th.game.ai.pathfinder;
+
+import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
+import com.th.game.TestMaps;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalPathFinderTest {
+    private static final int GOALS = 100;
+    private static final int STARTS_PER_GOAL = 20;
+    private static final int MIN_QUERY_COUNT = 20;
+
+    @Test
+    public void matchesAStarOnBundledMaps() {
+        for (String path : TestMaps.bundledMapPaths()) {
+            assertSameLengths(path, TestMaps.graph(TestMaps.load(path)), 1L);
+        }
+    }
+
+    @Test
+    public void matchesAStarOnGeneratedMaps() {
+        for (long seed = 1; seed <= 5; seed++) {
+            TiledMapGraph graph = TestMaps.randomGraph(45, 37, 0.3f, seed);
+            assertSameLengths("generated map " + seed, graph, seed);
+        }
+    }
+
+    /**
+     * An agent walking its path asks again from every tile it reaches; each answer must
+     * be the rest of a shortest path.
+     */
+    @Test
+    public void followsTheStartAlongThePath() {
+        for (long seed = 1; seed <= 5; seed++) {
+            TiledMapGraph graph = TestMaps.randomGraph(45, 37, 0.2f, seed);
+            IncrementalPathFinder finder = new IncrementalPathFinder(graph);
+            Random random = new Random(seed);
+            TiledNode[] ends = longQuery(graph, random);
+            TiledNode start = ends[0];
+            TiledNode goal = ends[1];
+
+            DefaultGraphPath<TiledNode> route = new DefaultGraphPath<>();
+            assertTrue(finder.searchNodePath(start, goal, null, route));
+            DefaultGraphPath<TiledNode> path = new DefaultGraphPath<>();
+            for (int step = 0; step < route.getCount(); step++) {
+                TiledNode current = route.get(step);
+                String query = "seed " + seed + ": " + current + " -> " + goal;
+                path.clear();
+                assertTrue(query, finder.searchNodePath(current, goal, null, path));
+                assertPath(query, graph, current, goal, path);
+                assertEquals(query, route.getCount() - step, path.getCount());
+                assertEquals(query, shortestCount(graph, current, goal), path.getCount());
+            }
+            finder.dispose();
+        }
+    }
+
+    /**
+     * Blocks a tile in the middle of the current path, then opens it again, searching
+     * toward the same goal after each change.
+     */
+    @Test
+    public void repairsAfterBlockingAndReopeningATileOnThePath() {
+        for (long seed = 1; seed <= 10; seed++) {
+            TiledMapGraph graph = TestMaps.randomGraph(45, 37, 0.2f, seed);
+            IncrementalPathFinder finder = new IncrementalPathFinder(graph);
+            Random random = new Random(seed);
+            TiledNode[] ends = longQuery(graph, random);
+            TiledNode start = ends[0];
+            TiledNode goal = ends[1];
+            int startX = start.gridX;
+            int startY = start.gridY;
+            int goalX = goal.gridX;
+            int goalY = goal.gridY;
+
+            DefaultGraphPath<TiledNode> path = new DefaultGraphPath<>();
+            assertTrue(finder.searchNodePath(start, goal, null, path));
+            int originalCount = path.getCount();
+            TiledNode blocked = path.get(path.getCount() / 2);
+            int blockedX = blocked.gridX;
+            int blockedY = blocked.gridY;
+            String query = "seed " + seed + ": blocking " + blocked;
+
+            graph.setTileWalkable(blockedX, blockedY, false);
+            // Rebuilding the graph replaces its nodes
+            start = nodeAt(graph, startX, startY);
+            goal = nodeAt(graph, goalX, goalY);
+            path.clear();
+            int expected = shortestCount(graph, start, goal);
+            assertEquals(query, expected != -1, finder.searchNodePath(start, goal, null, path));
+            if (expected != -1) {
+                assertPath(query, graph, start, goal, path);
+                assertEquals(query, expected, path.getCount());
+                for (int n = 0; n < path.getCount(); n++) {
+                    assertFalse(query, path.get(n).gridX == blockedX && path.get(n).gridY == blockedY);
+                }
+            }
+
+            graph.setTileWalkable(blockedX, blockedY, true);
+            start = nodeAt(graph, startX, startY);
+            goal = nodeAt(graph, goalX, goalY);
+            path.clear();
+            assertTrue(query, finder.searchNodePath(start, goal, null, path));
+            assertPath(query, graph, start, goal, path);
+            assertEquals(query, originalCount, path.getCount());
+            finder.dispose();
+        }
+    }
+
+    /**
+     * Toggles random tiles between searches toward the same goal, from changing starts.
+     */
+    @Test
+    public void matchesAStarWhileTilesToggle() {
+        for (long seed = 1; seed <= 5; seed++) {
+            TiledMapGraph graph = TestMaps.randomGraph(45, 37, 0.25f, seed);
+            IncrementalPathFinder finder = new IncrementalPathFinder(graph);
+            Random random = new Random(seed);
+            TiledNode goal = graph.getNode(random.nextInt(graph.getNodeCount()));
+            int goalX = goal.gridX;
+            int goalY = goal.gridY;
+            DefaultGraphPath<TiledNode> path = new DefaultGraphPath<>();
+
+            for (int round = 0; round < 200; round++) {
+                int x = random.nextInt(graph.getWidth());
+                int y = random.nextInt(graph.getHeight());
+                if (x != goalX || y != goalY) {
+                    graph.setTileWalkable(x, y, random.nextBoolean());
+                }
+                goal = nodeAt(graph, goalX, goalY);
+                TiledNode start = graph.getNode(random.nextInt(graph.getNodeCount()));
+                String query = "seed " + seed + " round " + round + ": " + start + " -> " + goal;
+
+                path.clear();
+                int expected = shortestCount(graph, start, goal);
+                assertEquals(query, expected != -1, finder.searchNodePath(start, goal, null, path));
+                if (expected != -1) {
+                    assertPath(query, graph, start, goal, path);
+                    assertEquals(query, expected, path.getCount());
+                }
+            }
+            finder.dispose();
+        }
+    }
+
+    /**
+     * Runs random queries, several starts per goal so the later ones reuse the estimates,
+     * and checks them against A*.
+     */
+    private static void assertSameLengths(String map, TiledMapGraph graph, long seed) {
+        Random random = new Random(seed);
+        IncrementalPathFinder finder = new IncrementalPathFinder(graph);
+        DefaultGraphPath<TiledNode> path = new DefaultGraphPath<>();
+
+        for (int i = 0; i < GOALS; i++) {
+            TiledNode goal = graph.getNode(random.nextInt(graph.getNodeCount()));
+            for (int j = 0; j < STARTS_PER_GOAL; j++) {
+                TiledNode start = graph.getNode(random.nextInt(graph.getNodeCount()));
+                String query = map + ": " + start + " -> " + goal;
+                path.clear();
+                int expected = shortestCount(graph, start, goal);
+                assertEquals(query, expected != -1, finder.searchNodePath(start, goal, null, path));
+                assertEquals(query, graph.isConnected(start, goal), expected != -1);
+                if (expected != -1) {
+                    assertPath(query, graph, start, goal, path);
+                    assertEquals(query, expected, path.getCount());
+                }
+            }
+        }
+        finder.dispose();
+    }
+
+    /**
+     * @return node count of a shortest path found by A*, or -1 if there is none
+     */
+    private static int shortestCount(TiledMapGraph graph, TiledNode start, TiledNode goal) {
+        // A* sizes its records to the node count, which changes when tiles are toggled
+        IndexedAStarPathFinder<TiledNode> aStar = new IndexedAStarPathFinder<>(graph);
+        DefaultGraphPath<TiledNode> path = new DefaultGraphPath<>();
+        return aStar.searchNodePath(start, goal, JumpPointPathFinderTest.MANHATTAN, path) ? path.getCount() : -1;
+    }
+
+    /**
+     * Checks that the path runs from start to goal over adjacent walkable tiles.
+     */
+    private static void assertPath(String query, TiledMapGraph graph, TiledNode start, TiledNode goal,
+                                   DefaultGraphPath<TiledNode> path) {
+        assertEquals(query, start.gridX, path.get(0).gridX);
+        assertEquals(query, start.gridY, path.get(0).gridY);
+        assertEquals(query, goal.gridX, path.get(path.getCount() - 1).gridX);
+        assertEquals(query, goal.gridY, path.get(path.getCount() - 1).gridY);
+        for (int n = 0; n < path.getCount(); n++) {
+            TiledNode node = path.get(n);
+            assertNotEquals(query, TiledMapGraph.NO_NODE, graph.getNodeIndex(node.gridX, node.gridY));
+            if (n > 0) {
+                TiledNode previous = path.get(n - 1);
+                assertEquals(query, 1, Math.abs(previous.gridX - node.gridX) + Math.abs(previous.gridY - node.gridY));
+            }
+        }
+    }
+
+    /**
+     * @return a start and a goal with a path of at least {@link #MIN_QUERY_COUNT} nodes between them
+     */
+    private static TiledNode[] longQuery(TiledMapGraph graph, Random random) {
+        while (true) {
+            TiledNode start = graph.getNode(random.nextInt(graph.getNodeCount()));
+            TiledNode goal = graph.getNode(random.nextInt(graph.getNodeCount()));
+            if (shortestCount(graph, start, goal) >= MIN_QUERY_COUNT) {
+                return new TiledNode[]{start, goal};
+            }
+        }
+    }
+
+    private static TiledNode nodeAt(TiledMapGraph graph, int gridX, int gridY) {
+        return graph.getNode(graph.getNodeIndex(gridX, gridY));
+    }
+}
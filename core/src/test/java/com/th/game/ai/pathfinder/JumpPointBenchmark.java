@@ -0,0 +1,82 @@
+package com.th.game.ai.pathfinder;
+
+import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
+import com.badlogic.gdx.ai.pfa.PathFinder;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
+import com.th.game.TestMaps;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Times A* against Jump Point Search on the same random queries. Run with
+ * {@code ./gradlew core:benchmark}; the numbers are printed, nothing is asserted.
+ */
+public class JumpPointBenchmark {
+    private static final int QUERIES = 5000;
+    private static final int ROUNDS = 5;
+
+    @Test
+    public void bundledMaps() {
+        for (String path : TestMaps.bundledMapPaths()) {
+            compare(path, TestMaps.graph(TestMaps.load(path)));
+        }
+    }
+
+    @Test
+    public void generatedMaps() {
+        compare("generated 64x64, 20% walls", TestMaps.randomGraph(64, 64, 0.2f, 1L));
+        compare("generated 256x256, 20% walls", TestMaps.randomGraph(256, 256, 0.2f, 1L));
+    }
+
+    private static void compare(String map, TiledMapGraph graph) {
+        int[] starts = new int[QUERIES];
+        int[] ends = new int[QUERIES];
+        Random random = new Random(7L);
+        for (int i = 0; i < QUERIES; i++) {
+            starts[i] = random.nextInt(graph.getNodeCount());
+            ends[i] = random.nextInt(graph.getNodeCount());
+        }
+
+        IndexedAStarPathFinder<TiledNode> aStar = new IndexedAStarPathFinder<>(graph, true);
+        JumpPointPathFinder jps = new JumpPointPathFinder(graph);
+        // The first rounds warm up the JIT; the best round is reported
+        long aStarNanos = Long.MAX_VALUE;
+        long jpsNanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            aStarNanos = Math.min(aStarNanos, run(aStar, graph, starts, ends));
+            jpsNanos = Math.min(jpsNanos, run(jps, graph, starts, ends));
+        }
+
+        long aStarVisited = 0;
+        long jpsVisited = 0;
+        DefaultGraphPath<TiledNode> path = new DefaultGraphPath<>();
+        for (int i = 0; i < QUERIES; i++) {
+            path.clear();
+            aStar.searchNodePath(graph.getNode(starts[i]), graph.getNode(ends[i]),
+                JumpPointPathFinderTest.MANHATTAN, path);
+            aStarVisited += aStar.metrics.visitedNodes;
+            path.clear();
+            jps.searchNodePath(graph.getNode(starts[i]), graph.getNode(ends[i]),
+                JumpPointPathFinderTest.MANHATTAN, path);
+            jpsVisited += jps.getVisitedNodes();
+        }
+
+        System.out.printf("%s (%d nodes, %d queries)%n", map, graph.getNodeCount(), QUERIES);
+        System.out.printf("  A*:  %8.2f us/query, %8.1f expanded/query%n",
+            aStarNanos / 1000.0 / QUERIES, aStarVisited / (double) QUERIES);
+        System.out.printf("  JPS: %8.2f us/query, %8.1f expanded/query%n",
+            jpsNanos / 1000.0 / QUERIES, jpsVisited / (double) QUERIES);
+    }
+
+    private static long run(PathFinder<TiledNode> pathFinder, TiledMapGraph graph, int[] starts, int[] ends) {
+        DefaultGraphPath<TiledNode> path = new DefaultGraphPath<>();
+        long startTime = System.nanoTime();
+        for (int i = 0; i < starts.length; i++) {
+            path.clear();
+            pathFinder.searchNodePath(graph.getNode(starts[i]), graph.getNode(ends[i]),
+                JumpPointPathFinderTest.MANHATTAN, path);
+        }
+        return System.nanoTime() - startTime;
+    }
+}
@@ -0,0 +1,81 @@
+package com.th.game.ai.pathfinder;
+
+import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
+import com.badlogic.gdx.ai.pfa.Heuristic;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
+import com.th.game.TestMaps;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class JumpPointPathFinderTest {
+    private static final int QUERIES = 2000;
+
+    /** Plain Manhattan distance; admissible, so A* returns shortest paths to compare against. */
+    static final Heuristic<TiledNode> MANHATTAN =
+        (node, end) -> Math.abs(node.gridX - end.gridX) + Math.abs(node.gridY - end.gridY);
+
+    @Test
+    public void matchesAStarOnBundledMaps() {
+        for (String path : TestMaps.bundledMapPaths()) {
+            assertSameLengths(path, TestMaps.graph(TestMaps.load(path)), 1L);
+        }
+    }
+
+    @Test
+    public void matchesAStarOnGeneratedMaps() {
+        for (long seed = 1; seed <= 5; seed++) {
+            TiledMapGraph graph = TestMaps.randomGraph(45, 45, 0.3f, seed);
+            assertSameLengths("generated map " + seed, graph, seed);
+        }
+    }
+
+    @Test
+    public void returnsOnlyTheStartWhenStartIsGoal() {
+        TiledMapGraph graph = TestMaps.randomGraph(10, 10, 0f, 1L);
+        TiledNode node = graph.getNode(0);
+        DefaultGraphPath<TiledNode> path = new DefaultGraphPath<>();
+        assertTrue(new JumpPointPathFinder(graph).searchNodePath(node, node, MANHATTAN, path));
+        assertEquals(1, path.getCount());
+        assertSame(node, path.get(0));
+    }
+
+    /**
+     * Runs random queries through both engines and checks that they agree on whether a
+     * path exists and on its length, and that every JPS path is a walk of adjacent tiles.
+     */
+    private static void assertSameLengths(String map, TiledMapGraph graph, long seed) {
+        Random random = new Random(seed);
+        IndexedAStarPathFinder<TiledNode> aStar = new IndexedAStarPathFinder<>(graph);
+        JumpPointPathFinder jps = new JumpPointPathFinder(graph);
+        DefaultGraphPath<TiledNode> expected = new DefaultGraphPath<>();
+        DefaultGraphPath<TiledNode> actual = new DefaultGraphPath<>();
+
+        for (int i = 0; i < QUERIES; i++) {
+            TiledNode start = graph.getNode(random.nextInt(graph.getNodeCount()));
+            TiledNode end = graph.getNode(random.nextInt(graph.getNodeCount()));
+            expected.clear();
+            actual.clear();
+            boolean found = aStar.searchNodePath(start, end, MANHATTAN, expected);
+            String query = map + ": " + start + " -> " + end;
+
+            assertEquals(query, found, jps.searchNodePath(start, end, MANHATTAN, actual));
+            assertEquals(query, graph.isConnected(start, end), found);
+            if (!found) {
+                continue;
+            }
+            assertEquals(query, expected.getCount(), actual.getCount());
+            assertSame(query, start, actual.get(0));
+            assertSame(query, end, actual.get(actual.getCount() - 1));
+            for (int n = 1; n < actual.getCount(); n++) {
+                TiledNode a = actual.get(n - 1);
+                TiledNode b = actual.get(n);
+                assertEquals(query, 1, Math.abs(a.gridX - b.gridX) + Math.abs(a.gridY - b.gridY));
+            }
+        }
+    }
+}
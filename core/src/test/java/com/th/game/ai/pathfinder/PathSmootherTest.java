@@ -0,0 +1,187 @@
+package com.th.game.ai.pathfinder;
+
+import com.badlogic.gdx.ai.pfa.DefaultGraphPath;
+import com.badlogic.gdx.ai.pfa.indexed.IndexedAStarPathFinder;
+import com.th.game.TestMaps;
+import com.th.game.util.PathSmoothing;
+import com.th.game.util.map.WalkabilityGrid;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PathSmootherTest {
+    private static final int QUERIES = 500;
+
+    @Test
+    public void smoothedPathsStayOnWalkableGroundOnBundledMaps() {
+        for (String path : TestMaps.bundledMapPaths()) {
+            WalkabilityGrid grid = new WalkabilityGrid(TestMaps.load(path));
+            assertSmoothedPathsWalkable(path, grid, 1L);
+        }
+    }
+
+    @Test
+    public void smoothedPathsStayOnWalkableGroundOnGeneratedMaps() {
+        for (long seed = 1; seed <= 5; seed++) {
+            assertSmoothedPathsWalkable("generated map " + seed, TestMaps.randomGrid(40, 40, 0.3f, seed), seed);
+        }
+    }
+
+    /**
+     * A segment that passes exactly through the corner between two tiles must not squeeze
+     * between them when one is blocked.
+     */
+    @Test
+    public void anyAngleDoesNotCutBlockedCorners() {
+        WalkabilityGrid grid = new WalkabilityGrid(2, 2, 32, 32, WalkabilityGrid.DEFAULT_SUBDIVISIONS);
+        grid.setTileWalkable(0, 0, true);
+        grid.setTileWalkable(1, 0, true);
+        grid.setTileWalkable(1, 1, true);
+        TiledMapGraph graph = new TiledMapGraph(grid);
+        graph.buildGraph();
+
+        DefaultGraphPath<TiledNode> path = new DefaultGraphPath<>();
+        path.add(graph.getNode(graph.getNodeIndex(0, 0)));
+        path.add(graph.getNode(graph.getNodeIndex(1, 0)));
+        path.add(graph.getNode(graph.getNodeIndex(1, 1)));
+        DefaultGraphPath<TiledNode> out = new DefaultGraphPath<>();
+        new PathSmoother(grid).smooth(path, PathSmoothing.ANY_ANGLE, out);
+
+        assertEquals(3, out.getCount());
+    }
+
+    @Test
+    public void collinearKeepsOnlyTurns() {
+        WalkabilityGrid grid = new WalkabilityGrid(4, 4, 32, 32, WalkabilityGrid.DEFAULT_SUBDIVISIONS);
+        for (int i = 0; i < 4; i++) {
+            grid.setTileWalkable(i, 0, true);
+            grid.setTileWalkable(3, i, true);
+        }
+        TiledMapGraph graph = new TiledMapGraph(grid);
+        graph.buildGraph();
+
+        DefaultGraphPath<TiledNode> path = new DefaultGraphPath<>();
+        for (int x = 0; x < 4; x++) {
+            path.add(graph.getNode(graph.getNodeIndex(x, 0)));
+        }
+        for (int y = 1; y < 4; y++) {
+            path.add(graph.getNode(graph.getNodeIndex(3, y)));
+        }
+        DefaultGraphPath<TiledNode> out = new DefaultGraphPath<>();
+        new PathSmoother(grid).smooth(path, PathSmoothing.COLLINEAR, out);
+
+        assertEquals(3, out.getCount());
+        assertSame(path.get(0), out.get(0));
+        assertSame(path.get(3), out.get(1));
+        assertSame(path.get(6), out.get(2));
+    }
+
+    /**
+     * Smooths random A* paths in every mode and checks that the waypoints are tiles of
+     * the original path, in order, with the ends kept, and that no segment between them
+     * crosses blocked ground: straight runs must stay on walkable tiles, and line-of-sight
+     * shortcuts must stay on walkable sub-cells.
+     */
+    private static void assertSmoothedPathsWalkable(String map, WalkabilityGrid grid, long seed) {
+        TiledMapGraph graph = new TiledMapGraph(grid);
+        graph.buildGraph();
+        IndexedAStarPathFinder<TiledNode> aStar = new IndexedAStarPathFinder<>(graph);
+        PathSmoother smoother = new PathSmoother(grid);
+        DefaultGraphPath<TiledNode> path = new DefaultGraphPath<>();
+        DefaultGraphPath<TiledNode> out = new DefaultGraphPath<>();
+        Random random = new Random(seed);
+
+        for (int i = 0; i < QUERIES; i++) {
+            TiledNode start = graph.getNode(random.nextInt(graph.getNodeCount()));
+            TiledNode end = graph.getNode(random.nextInt(graph.getNodeCount()));
+            path.clear();
+            if (!aStar.searchNodePath(start, end, JumpPointPathFinderTest.MANHATTAN, path)) {
+                continue;
+            }
+            for (PathSmoothing mode : PathSmoothing.values()) {
+                smoother.smooth(path, mode, out);
+                String query = map + " " + mode + ": " + start + " -> " + end;
+                assertSame(query, start, out.get(0));
+                assertSame(query, end, out.get(out.getCount() - 1));
+
+                int index = 0;
+                for (int w = 1; w < out.getCount(); w++) {
+                    TiledNode from = out.get(w - 1);
+                    TiledNode to = out.get(w);
+                    int fromIndex = index;
+                    while (index < path.getCount() && path.get(index) != to) {
+                        index++;
+                    }
+                    assertTrue(query + ": " + to + " is not on the path in order", index < path.getCount());
+                    // Shortcuts are checked at the resolution movement uses; they may clip the
+                    // open corner of a tile whose centre is blocked, so they are not checked per tile
+                    String segment = query + ": segment " + from + " -> " + to;
+                    boolean shortcut = mode == PathSmoothing.ANY_ANGLE && index - fromIndex > 1;
+                    assertCrossesOnlyOpenCells(segment, grid, from, to, shortcut ? grid.getSubdivisions() : 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks every cell whose interior the segment passes through, at the given number of
+     * cells per tile. Touching a cell only at a corner or along an edge does not count,
+     * so the check does not depend on float rounding at cell boundaries.
+     */
+    private static void assertCrossesOnlyOpenCells(String segment, WalkabilityGrid grid,
+                                                   TiledNode from, TiledNode to, int cellsPerTile) {
+        float cellWidth = grid.getTileWidth() / (float) cellsPerTile;
+        float cellHeight = grid.getTileHeight() / (float) cellsPerTile;
+        int minX = (int) (Math.min(from.x, to.x) / cellWidth);
+        int maxX = (int) (Math.max(from.x, to.x) / cellWidth);
+        int minY = (int) (Math.min(from.y, to.y) / cellHeight);
+        int maxY = (int) (Math.max(from.y, to.y) / cellHeight);
+        for (int cy = minY; cy <= maxY; cy++) {
+            for (int cx = minX; cx <= maxX; cx++) {
+                if (!crossesInterior(from, to, cx * cellWidth, cy * cellHeight,
+                    (cx + 1) * cellWidth, (cy + 1) * cellHeight)) {
+                    continue;
+                }
+                float centreX = (cx + 0.5f) * cellWidth;
+                float centreY = (cy + 0.5f) * cellHeight;
+                assertTrue(segment + " crosses blocked cell " + cx + "," + cy + " (" + cellsPerTile + " per tile)",
+                    cellsPerTile == 1
+                        ? grid.isTileWalkable(cx, cy)
+                        : grid.isWalkable(centreX, centreY));
+            }
+        }
+    }
+
+    /**
+     * Liang-Barsky clip of the segment against a box; true if a piece of positive length
+     * lies inside it.
+     */
+    private static boolean crossesInterior(TiledNode from, TiledNode to,
+                                           float minX, float minY, float maxX, float maxY) {
+        double dx = to.x - from.x;
+        double dy = to.y - from.y;
+        double[] p = {-dx, dx, -dy, dy};
+        double[] q = {from.x - minX, maxX - from.x, from.y - minY, maxY - from.y};
+        double enter = 0;
+        double exit = 1;
+        for (int i = 0; i < 4; i++) {
+            if (p[i] == 0) {
+                if (q[i] <= 0) {
+                    return false;
+                }
+            } else {
+                double t = q[i] / p[i];
+                if (p[i] < 0) {
+                    enter = Math.max(enter, t);
+                } else {
+                    exit = Math.min(exit, t);
+                }
+            }
+        }
+        return (exit - enter) * Math.sqrt(dx * dx + dy * dy) > 1e-3;
+    }
+}
@@ -0,0 +1,264 @@
+package com.th.game.database;
+
+import com.badlogic.gdx.math.Vector2;
+import com.th.game.TestDatabase;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Times the training database: inserts with a connection per call against the pooled
+ * connections, radius queries with and without the spatial indexes, and reading a map's
+ * history as objects, as columns and as heatmap cells. Run with
+ * {@code ./gradlew core:benchmark}; the history sizes can be changed with
+ * {@code -PbenchmarkRows=10000,1000000,10000000}. The numbers are printed, nothing is asserted.
+ */
+public class TrainingDataDAOBenchmark {
+    private static final String[] MAPS = {"Map 1", "Map 2", "Map 3", "Map 4", "Map 5"};
+    private static final float MAP_SIZE = 3200f;
+    private static final float RADIUS = 150f;
+    private static final int INSERTS = 2000;
+    private static final int QUERIES = 50;
+    /** Full scans get slow at millions of rows, so fewer of them are averaged. */
+    private static final int SCAN_QUERIES = 5;
+    private static final int ROUNDS = 5;
+    private static final int BATCH_SIZE = 10000;
+
+    /** The table and insert as the DAO wrote them before connections were pooled. */
+    private static final String SQL_CREATE_TABLE = "CREATE TABLE IF NOT EXISTS treasure_collections (" +
+        "id INTEGER PRIMARY KEY AUTOINCREMENT, round_number INTEGER, map_name TEXT, " +
+        "treasure_x REAL, treasure_y REAL, collector_x REAL, collector_y REAL, " +
+        "collected_by_player BOOLEAN, timestamp INTEGER)";
+    private static final String SQL_INSERT = "INSERT INTO treasure_collections(" +
+        "round_number, map_name, treasure_x, treasure_y, collector_x, collector_y, " +
+        "collected_by_player, timestamp) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @After
+    public void closeDatabase() {
+        TrainingDataDAO.shutdown();
+    }
+
+    @Test
+    public void inserts() throws SQLException {
+        List<TreasureCollectionData> rows = generate(INSERTS, new Random(1L));
+
+        // Before pooling: a connection and a statement per insert, with the default rollback journal
+        String url = TestDatabase.url(TestDatabase.createFile());
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            statement.execute(SQL_CREATE_TABLE);
+        }
+        long start = System.nanoTime();
+        for (TreasureCollectionData data : rows) {
+            try (Connection connection = DriverManager.getConnection(url);
+                 PreparedStatement statement = connection.prepareStatement(SQL_INSERT)) {
+                bind(statement, data);
+                statement.executeUpdate();
+            }
+        }
+        long perConnectionNanos = System.nanoTime() - start;
+
+        TestDatabase.useTemporaryDatabase();
+        TrainingDataDAO.initializeDatabase();
+        // The DAO logs every save; printing would dominate the timing
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        long pooledNanos;
+        try {
+            start = System.nanoTime();
+            for (TreasureCollectionData data : rows) {
+                TrainingDataDAO.saveTreasureCollection(data);
+            }
+            pooledNanos = System.nanoTime() - start;
+        } finally {
+            System.setOut(out);
+        }
+
+        start = System.nanoTime();
+        TrainingDataDAO.saveTreasureCollections(rows);
+        long batchNanos = System.nanoTime() - start;
+
+        System.out.printf("%d single-row inserts%n", INSERTS);
+        System.out.printf("  connection per insert, rollback journal: %10.0f inserts/s%n",
+            perSecond(INSERTS, perConnectionNanos));
+        System.out.printf("  pooled connection, WAL, heatmap trigger: %10.0f inserts/s%n",
+            perSecond(INSERTS, pooledNanos));
+        System.out.printf("  one batch in one transaction:            %10.0f inserts/s%n",
+            perSecond(INSERTS, batchNanos));
+    }
+
+    @Test
+    public void radiusQueries() throws SQLException {
+        for (int rows : rowCounts()) {
+            File file = TestDatabase.useTemporaryDatabase();
+            TrainingDataDAO.initializeDatabase();
+            populate(rows);
+            float[] centres = randomPositions(QUERIES, new Random(3L));
+
+            execute(file, "DROP INDEX idx_treasure_collections_map_xy");
+            double scanMillis = timeRadiusQueries(centres, SCAN_QUERIES);
+            // Recreates the composite index
+            TrainingDataDAO.initializeDatabase();
+            double indexMillis = timeRadiusQueries(centres, QUERIES);
+            TrainingDataDAO.initializeDatabase(true);
+            double rtreeMillis = timeRadiusQueries(centres, QUERIES);
+
+            System.out.printf("radius %.0f around a landmark, %d rows over %d maps%n", RADIUS, rows, MAPS.length);
+            System.out.printf("  no index:          %10.3f ms/query%n", scanMillis);
+            System.out.printf("  composite B-tree:  %10.3f ms/query%n", indexMillis);
+            System.out.printf("  R*Tree:            %10.3f ms/query%n", rtreeMillis);
+        }
+    }
+
+    @Test
+    public void historyReads() throws SQLException {
+        for (int rows : rowCounts()) {
+            TestDatabase.useTemporaryDatabase();
+            TrainingDataDAO.initializeDatabase();
+            populate(rows);
+            String map = MAPS[0];
+            CollectionColumns columns = new CollectionColumns();
+            HeatmapCells cells = new HeatmapCells();
+
+            // The best round is reported; allocations are taken from the last one, after the columns have grown
+            long objectsNanos = Long.MAX_VALUE;
+            long columnsNanos = Long.MAX_VALUE;
+            long cellsNanos = Long.MAX_VALUE;
+            long objectsBytes = 0;
+            long columnsBytes = 0;
+            long cellsBytes = 0;
+            int objectRows = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                long bytes = allocatedBytes();
+                long start = System.nanoTime();
+                objectRows = TrainingDataDAO.getCollectionDataByMap(map).size();
+                objectsNanos = Math.min(objectsNanos, System.nanoTime() - start);
+                objectsBytes = allocatedBytes() - bytes;
+
+                columns.clear();
+                bytes = allocatedBytes();
+                start = System.nanoTime();
+                TrainingDataDAO.readCollectionColumnsByMap(map, columns);
+                columnsNanos = Math.min(columnsNanos, System.nanoTime() - start);
+                columnsBytes = allocatedBytes() - bytes;
+
+                cells.clear();
+                bytes = allocatedBytes();
+                start = System.nanoTime();
+                TrainingDataDAO.readHeatmapByMap(map, cells);
+                cellsNanos = Math.min(cellsNanos, System.nanoTime() - start);
+                cellsBytes = allocatedBytes() - bytes;
+            }
+
+            System.out.printf("history of %s: %d of %d rows, %d heatmap cells%n", map, objectRows, rows, cells.size());
+            System.out.printf("  rows as objects:    %10.2f ms, %10.1f KB allocated%n",
+                objectsNanos / 1e6, objectsBytes / 1024.0);
+            System.out.printf("  rows as columns:    %10.2f ms, %10.1f KB allocated%n",
+                columnsNanos / 1e6, columnsBytes / 1024.0);
+            System.out.printf("  heatmap cells:      %10.2f ms, %10.1f KB allocated%n",
+                cellsNanos / 1e6, cellsBytes / 1024.0);
+        }
+    }
+
+    /**
+     * @return mean time of the radius query over the first {@code count} centres, in milliseconds
+     */
+    private static double timeRadiusQueries(float[] centres, int count) throws SQLException {
+        // One query first so statement preparation is not timed
+        TrainingDataDAO.getCollectionsNearLandmark(MAPS[0], centres[0], centres[1], RADIUS);
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            TrainingDataDAO.getCollectionsNearLandmark(MAPS[i % MAPS.length],
+                centres[2 * i], centres[2 * i + 1], RADIUS);
+        }
+        return (System.nanoTime() - start) / 1e6 / count;
+    }
+
+    /**
+     * Stores rows spread evenly over the maps, in batches through the DAO so the heatmap
+     * and indexes are maintained the same way as in the game.
+     */
+    private static void populate(int rows) throws SQLException {
+        Random random = new Random(2L);
+        long start = System.nanoTime();
+        for (int stored = 0; stored < rows; stored += BATCH_SIZE) {
+            TrainingDataDAO.saveTreasureCollections(generate(Math.min(BATCH_SIZE, rows - stored), random));
+        }
+        System.out.printf("stored %d rows in %.1f s%n", rows, (System.nanoTime() - start) / 1e9);
+    }
+
+    private static List<TreasureCollectionData> generate(int count, Random random) {
+        List<TreasureCollectionData> rows = new ArrayList<>(count);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            Vector2 treasure = new Vector2(random.nextFloat() * MAP_SIZE, random.nextFloat() * MAP_SIZE);
+            Vector2 collector = new Vector2(treasure).add(random.nextFloat() * 32f, random.nextFloat() * 32f);
+            rows.add(new TreasureCollectionData(1 + random.nextInt(5), MAPS[random.nextInt(MAPS.length)],
+                treasure, collector, random.nextBoolean(), now - random.nextInt(30 * 24 * 60 * 60) * 1000L));
+        }
+        return rows;
+    }
+
+    /**
+     * @return x, y pairs of random positions on the map
+     */
+    private static float[] randomPositions(int count, Random random) {
+        float[] positions = new float[2 * count];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = random.nextFloat() * MAP_SIZE;
+        }
+        return positions;
+    }
+
+    private static void bind(PreparedStatement statement, TreasureCollectionData data) throws SQLException {
+        statement.setInt(1, data.getRoundNumber());
+        statement.setString(2, data.getMapName());
+        statement.setFloat(3, data.getTreasurePosition().x);
+        statement.setFloat(4, data.getTreasurePosition().y);
+        statement.setFloat(5, data.getCollectorPosition().x);
+        statement.setFloat(6, data.getCollectorPosition().y);
+        statement.setBoolean(7, data.isCollectedByPlayer());
+        statement.setLong(8, data.getTimeStamp());
+    }
+
+    private static void execute(File file, String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(TestDatabase.url(file));
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static int[] rowCounts() {
+        String[] values = System.getProperty("benchmark.rows", "10000,100000,1000000").split(",");
+        int[] counts = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            counts[i] = Integer.parseInt(values[i].trim());
+        }
+        return counts;
+    }
+
+    private static double perSecond(int count, long nanos) {
+        return count * 1e9 / nanos;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+            .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,180 @@
+package com.th.game.database;
+
+import com.badlogic.gdx.math.Vector2;
+import com.th.game.TestDatabase;
+import com.th.game.util.WriteBackpressure;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TreasureCollectionWriterTest {
+    private static final String MAP = "Map 1";
+    private static final int CAPACITY = 4;
+    private static final int EVENTS = 10;
+    /**
+     * Larger than the capacity and with an hour-long flush interval, so the writer leaves
+     * the queue alone until {@link TreasureCollectionWriter#flush()} or close.
+     */
+    private static final int BATCH_SIZE = 100;
+    private static final long FLUSH_INTERVAL_MILLIS = 60 * 60 * 1000;
+
+    private Path spillFile;
+
+    @Before
+    public void useTemporaryFiles() throws Exception {
+        TestDatabase.useTemporaryDatabase();
+        TrainingDataDAO.initializeDatabase();
+        spillFile = Files.createTempFile("treasure-collections", ".spill");
+        Files.delete(spillFile);
+        spillFile.toFile().deleteOnExit();
+    }
+
+    @After
+    public void closeDatabase() {
+        TrainingDataDAO.shutdown();
+    }
+
+    @Test
+    public void dropRejectsEventsThatDoNotFit() throws SQLException {
+        TreasureCollectionWriter writer = writer(WriteBackpressure.DROP);
+        int accepted = 0;
+        for (int i = 0; i < EVENTS; i++) {
+            if (writer.submit(event(i))) {
+                accepted++;
+            }
+        }
+        assertEquals(CAPACITY, accepted);
+        assertEquals(EVENTS - CAPACITY, writer.getDroppedCount());
+
+        writer.close();
+        assertEquals(CAPACITY, storedRows());
+        assertFalse(Files.exists(spillFile));
+    }
+
+    @Test
+    public void spillToDiskKeepsEventsThatDoNotFit() throws SQLException {
+        TreasureCollectionWriter writer = writer(WriteBackpressure.SPILL_TO_DISK);
+        for (int i = 0; i < EVENTS; i++) {
+            assertTrue(writer.submit(event(i)));
+        }
+        assertEquals(EVENTS - CAPACITY, writer.getSpilledCount());
+        assertEquals(0, writer.getDroppedCount());
+
+        // The writer replays the spill file once the queue has been written
+        writer.close();
+        assertEquals(EVENTS, storedRows());
+        assertEquals(EVENTS, writer.getWrittenCount());
+        assertFalse(Files.exists(spillFile));
+    }
+
+    @Test
+    public void blockWaitsForRoomInTheQueue() throws Exception {
+        TreasureCollectionWriter writer = writer(WriteBackpressure.BLOCK);
+        boolean[] accepted = new boolean[EVENTS];
+        Thread submitter = new Thread(() -> {
+            for (int i = 0; i < EVENTS; i++) {
+                accepted[i] = writer.submit(event(i));
+            }
+        });
+        submitter.start();
+
+        // The writer does not drain on its own, so the submitter stalls on the first event that does not fit
+        long deadline = System.currentTimeMillis() + 5000;
+        while (writer.getSubmittedCount() < CAPACITY + 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(200);
+        assertTrue(submitter.isAlive());
+        assertEquals(CAPACITY + 1, writer.getSubmittedCount());
+        assertEquals(CAPACITY, writer.getQueueDepth());
+
+        // Each flush makes room for the next few events
+        while (submitter.isAlive() && System.currentTimeMillis() < deadline) {
+            writer.flush();
+            submitter.join(10);
+        }
+        assertFalse(submitter.isAlive());
+        writer.close();
+
+        for (int i = 0; i < EVENTS; i++) {
+            assertTrue("event " + i, accepted[i]);
+        }
+        assertEquals(0, writer.getDroppedCount());
+        assertEquals(EVENTS, storedRows());
+    }
+
+    /**
+     * Events spilled by an earlier session are written once a new writer starts on the
+     * same file; malformed lines are skipped.
+     */
+    @Test
+    public void replaysTheSpillFileOfAnEarlierSession() throws IOException, SQLException {
+        List<String> lines = Arrays.asList(
+            "1\t" + MAP + "\t10.0\t20.0\t11.0\t21.0\ttrue\t1700000000000",
+            "2\t" + MAP + "\t30.5\t40.5\t31.0\t41.0\tfalse\t1700000001000",
+            "not an event");
+        Files.write(spillFile, lines, StandardCharsets.UTF_8);
+
+        TreasureCollectionWriter writer = writer(WriteBackpressure.SPILL_TO_DISK);
+        writer.close();
+
+        List<TreasureCollectionData> rows = TrainingDataDAO.getCollectionDataByMap(MAP);
+        assertEquals(2, rows.size());
+        assertEquals(2, writer.getWrittenCount());
+        assertFalse(Files.exists(spillFile));
+        TreasureCollectionData first = rows.get(0).getRoundNumber() == 1 ? rows.get(0) : rows.get(1);
+        TreasureCollectionData second = first == rows.get(0) ? rows.get(1) : rows.get(0);
+        assertEquals(new Vector2(10f, 20f), first.getTreasurePosition());
+        assertEquals(new Vector2(11f, 21f), first.getCollectorPosition());
+        assertTrue(first.isCollectedByPlayer());
+        assertEquals(1700000000000L, first.getTimeStamp());
+        assertEquals(2, second.getRoundNumber());
+        assertEquals(new Vector2(30.5f, 40.5f), second.getTreasurePosition());
+        assertFalse(second.isCollectedByPlayer());
+        assertEquals(1700000001000L, second.getTimeStamp());
+    }
+
+    @Test
+    public void closeWritesEverythingQueued() throws SQLException {
+        int events = 50;
+        TreasureCollectionWriter writer = new TreasureCollectionWriter(events, BATCH_SIZE, FLUSH_INTERVAL_MILLIS,
+            WriteBackpressure.BLOCK, spillFile);
+        for (int i = 0; i < events; i++) {
+            assertTrue(writer.submit(event(i)));
+        }
+        assertEquals(events, writer.getQueueDepth());
+        assertEquals(0, storedRows());
+
+        writer.close();
+        assertEquals(events, storedRows());
+        assertEquals(0, writer.getQueueDepth());
+        // A closed writer takes nothing more
+        assertFalse(writer.submit(event(events)));
+        assertEquals(1, writer.getDroppedCount());
+    }
+
+    private TreasureCollectionWriter writer(WriteBackpressure backpressure) {
+        return new TreasureCollectionWriter(CAPACITY, BATCH_SIZE, FLUSH_INTERVAL_MILLIS, backpressure, spillFile);
+    }
+
+    private static TreasureCollectionData event(int i) {
+        return new TreasureCollectionData(1, MAP, new Vector2(32f * i, 64f), new Vector2(32f * i + 8f, 64f),
+            i % 2 == 0, 1700000000000L + i);
+    }
+
+    private static int storedRows() throws SQLException {
+        return TrainingDataDAO.getCollectionDataByMap(MAP).size();
+    }
+}
@@ -0,0 +1,122 @@
+package com.th.game.extenders.ai;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Times {@link HotspotClusterer} on synthetic collection histories: positions drawn around
+ * a dozen Gaussian blobs with a fifth of them spread uniformly over the map as noise, the
+ * way treasure keeps turning up in a few areas of a map. For each size it reports the best
+ * time and how many blob centres lie near one of the heaviest clusters. Run with
+ * {@code ./gradlew core:benchmark}; the sizes can be changed with
+ * {@code -PbenchmarkRows=10000,100000,1000000}. The numbers are printed, nothing is asserted.
+ */
+public class HotspotClustererBenchmark {
+    private static final float MAP_SIZE = 3200f;
+    private static final int BLOBS = 12;
+    private static final float BLOB_SIGMA = 100f;
+    /** Blob centres are at least this far apart, so each one can be told apart. */
+    private static final float BLOB_SPACING = 400f;
+    private static final float NOISE_FRACTION = 0.2f;
+    private static final int ROUNDS = 7;
+
+    /** The settings {@link HistoricalAIData} clusters with. */
+    private static final float CELL_SIZE = 150f;
+    private static final int MIN_POINTS = 2;
+    private static final long HALF_LIFE = 7L * 24 * 60 * 60 * 1000;
+
+    @Test
+    public void blobsWithNoise() {
+        HotspotClusterer clusterer = new HotspotClusterer(CELL_SIZE, MIN_POINTS, HALF_LIFE);
+        for (int count : pointCounts()) {
+            Random random = new Random(1L);
+            float[] centres = blobCentres(random);
+            float[] xs = new float[count];
+            float[] ys = new float[count];
+            long[] timestamps = new long[count];
+            generate(centres, xs, ys, timestamps, random);
+
+            long best = Long.MAX_VALUE;
+            List<HotspotClusterer.Cluster> clusters = null;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                clusters = clusterer.cluster(xs, ys, timestamps, count);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+
+            System.out.printf("%d points, %d blobs, %.0f%% noise: %.1f ms, %d clusters, %d/%d blobs in the top %d%n",
+                count, BLOBS, NOISE_FRACTION * 100, best / 1e6, clusters.size(),
+                recovered(centres, clusters), BLOBS, BLOBS);
+        }
+    }
+
+    /**
+     * @return x, y pairs of blob centres, kept away from the map edges and from each other
+     */
+    private static float[] blobCentres(Random random) {
+        float[] centres = new float[2 * BLOBS];
+        float margin = 3 * BLOB_SIGMA;
+        for (int blob = 0; blob < BLOBS; ) {
+            float x = margin + random.nextFloat() * (MAP_SIZE - 2 * margin);
+            float y = margin + random.nextFloat() * (MAP_SIZE - 2 * margin);
+            boolean clear = true;
+            for (int other = 0; other < blob && clear; other++) {
+                clear = Math.hypot(x - centres[2 * other], y - centres[2 * other + 1]) >= BLOB_SPACING;
+            }
+            if (clear) {
+                centres[2 * blob] = x;
+                centres[2 * blob + 1] = y;
+                blob++;
+            }
+        }
+        return centres;
+    }
+
+    /**
+     * Fills the arrays with blob and noise positions collected over the last 30 days.
+     */
+    private static void generate(float[] centres, float[] xs, float[] ys, long[] timestamps, Random random) {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < xs.length; i++) {
+            if (random.nextFloat() < NOISE_FRACTION) {
+                xs[i] = random.nextFloat() * MAP_SIZE;
+                ys[i] = random.nextFloat() * MAP_SIZE;
+            } else {
+                int blob = random.nextInt(BLOBS);
+                xs[i] = centres[2 * blob] + (float) random.nextGaussian() * BLOB_SIGMA;
+                ys[i] = centres[2 * blob + 1] + (float) random.nextGaussian() * BLOB_SIGMA;
+            }
+            timestamps[i] = now - random.nextInt(30 * 24 * 60 * 60) * 1000L;
+        }
+    }
+
+    /**
+     * @return how many blob centres lie within a cell size of one of the heaviest
+     * {@link #BLOBS} clusters
+     */
+    private static int recovered(float[] centres, List<HotspotClusterer.Cluster> clusters) {
+        int top = Math.min(BLOBS, clusters.size());
+        int found = 0;
+        for (int blob = 0; blob < BLOBS; blob++) {
+            for (int c = 0; c < top; c++) {
+                HotspotClusterer.Cluster cluster = clusters.get(c);
+                if (Math.hypot(cluster.x - centres[2 * blob], cluster.y - centres[2 * blob + 1]) <= CELL_SIZE) {
+                    found++;
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+
+    private static int[] pointCounts() {
+        String[] values = System.getProperty("benchmark.rows", "10000,100000,1000000").split(",");
+        int[] counts = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            counts[i] = Integer.parseInt(values[i].trim());
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,182 @@
+package com.th.game.extenders.ai;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class HotspotClustererTest {
+    private static final float CELL_SIZE = 10f;
+    private static final Comparator<HotspotClusterer.Cluster> BY_POSITION = (a, b) ->
+        a.x != b.x ? Float.compare(a.x, b.x) : Float.compare(a.y, b.y);
+
+    /**
+     * Cells next to a denser cell join its cluster, and the cluster is centred on the mean
+     * of its peak and the cells around it.
+     */
+    @Test
+    public void neighbouringCellsClimbToTheSamePeak() {
+        Points points = new Points();
+        // A lone point in the first cell pins the grid origin near 0,0 and is noise
+        points.add(1f, 1f, 1);
+        // Peak cell 5,5 with two lighter neighbours
+        points.add(55f, 55f, 10);
+        points.add(45f, 55f, 3);
+        points.add(65f, 55f, 3);
+        // A second, lighter area far away: peak cell 15,15 and its neighbour above
+        points.add(155f, 155f, 6);
+        points.add(155f, 165f, 2);
+
+        List<HotspotClusterer.Cluster> clusters = new HotspotClusterer(CELL_SIZE, 2, 0).cluster(
+            points.xs(), points.ys(), points.timestamps(), points.size());
+
+        assertEquals(2, clusters.size());
+        assertCluster(clusters.get(0), 55f, 55f, 16);
+        assertCluster(clusters.get(1), 155f, 157.5f, 8);
+    }
+
+    /**
+     * Only strictly denser neighbours pull, so evenly covered neighbouring cells stay
+     * separate clusters instead of merging into one blob.
+     */
+    @Test
+    public void flatPlateauKeepsEveryCellAsItsOwnPeak() {
+        Points points = new Points();
+        points.add(1f, 1f, 1);
+        points.add(55f, 55f, 4);
+        points.add(65f, 55f, 4);
+
+        List<HotspotClusterer.Cluster> clusters = new HotspotClusterer(CELL_SIZE, 2, 0).cluster(
+            points.xs(), points.ys(), points.timestamps(), points.size());
+
+        assertEquals(2, clusters.size());
+        assertEquals(4, clusters.get(0).count);
+        assertEquals(4, clusters.get(1).count);
+    }
+
+    @Test
+    public void cellsBelowMinPointsAreNoise() {
+        Points points = new Points();
+        points.add(1f, 1f, 1);
+        points.add(55f, 55f, 2);
+        points.add(155f, 155f, 3);
+
+        List<HotspotClusterer.Cluster> clusters = new HotspotClusterer(CELL_SIZE, 3, 0).cluster(
+            points.xs(), points.ys(), points.timestamps(), points.size());
+
+        assertEquals(1, clusters.size());
+        assertCluster(clusters.get(0), 155f, 155f, 3);
+    }
+
+    @Test
+    public void noPointsGiveNoClusters() {
+        assertEquals(0, new HotspotClusterer(CELL_SIZE, 2, 0).cluster(
+            new float[0], new float[0], new long[0], 0).size());
+    }
+
+    /**
+     * A position with multiplicity n, as the heatmap cells are loaded, must cluster exactly
+     * like n copies of that position, recency weights included.
+     */
+    @Test
+    public void multiplicityMatchesRepeatedPoints() {
+        Random random = new Random(1L);
+        long now = 1700000000000L;
+        long day = 24L * 60 * 60 * 1000;
+        HotspotClusterer clusterer = new HotspotClusterer(150f, 2, 7 * day);
+        for (int round = 0; round < 20; round++) {
+            int positions = 50 + random.nextInt(300);
+            float[] xs = new float[positions];
+            float[] ys = new float[positions];
+            int[] multiplicities = new int[positions];
+            long[] timestamps = new long[positions];
+            Points repeated = new Points();
+            for (int i = 0; i < positions; i++) {
+                // Integer coordinates keep the coordinate sums exact in both forms
+                xs[i] = random.nextInt(3000) - 500;
+                ys[i] = random.nextInt(3000) - 500;
+                multiplicities[i] = 1 + random.nextInt(5);
+                timestamps[i] = now - random.nextInt(30) * day;
+                repeated.add(xs[i], ys[i], multiplicities[i], timestamps[i]);
+            }
+
+            List<HotspotClusterer.Cluster> expected = clusterer.cluster(
+                repeated.xs(), repeated.ys(), repeated.timestamps(), repeated.size());
+            List<HotspotClusterer.Cluster> actual = clusterer.cluster(
+                xs, ys, multiplicities, timestamps, positions);
+
+            assertEquals("round " + round, expected.size(), actual.size());
+            // Clusters of equal weight may come back in either order
+            expected.sort(BY_POSITION);
+            actual.sort(BY_POSITION);
+            for (int c = 0; c < expected.size(); c++) {
+                HotspotClusterer.Cluster e = expected.get(c);
+                HotspotClusterer.Cluster a = actual.get(c);
+                String cluster = "round " + round + " cluster " + c;
+                assertEquals(cluster, e.count, a.count);
+                assertEquals(cluster, e.latestTimestamp, a.latestTimestamp);
+                assertEquals(cluster, e.x, a.x, 1e-3f);
+                assertEquals(cluster, e.y, a.y, 1e-3f);
+                // Float weights are summed in a different order
+                assertEquals(cluster, e.weight, a.weight, e.weight * 1e-4f);
+            }
+        }
+    }
+
+    private static void assertCluster(HotspotClusterer.Cluster cluster, float x, float y, int count) {
+        assertEquals(x, cluster.x, 1e-3f);
+        assertEquals(y, cluster.y, 1e-3f);
+        assertEquals(count, cluster.count);
+    }
+
+    /**
+     * Positions written out one per collection, all collected at the same time unless given.
+     */
+    private static class Points {
+        private final List<float[]> points = new ArrayList<>();
+        private final List<Long> times = new ArrayList<>();
+
+        void add(float x, float y, int copies) {
+            add(x, y, copies, 0L);
+        }
+
+        void add(float x, float y, int copies, long timestamp) {
+            for (int i = 0; i < copies; i++) {
+                points.add(new float[]{x, y});
+                times.add(timestamp);
+            }
+        }
+
+        int size() {
+            return points.size();
+        }
+
+        float[] xs() {
+            float[] xs = new float[size()];
+            for (int i = 0; i < xs.length; i++) {
+                xs[i] = points.get(i)[0];
+            }
+            return xs;
+        }
+
+        float[] ys() {
+            float[] ys = new float[size()];
+            for (int i = 0; i < ys.length; i++) {
+                ys[i] = points.get(i)[1];
+            }
+            return ys;
+        }
+
+        long[] timestamps() {
+            long[] timestamps = new long[size()];
+            for (int i = 0; i < timestamps.length; i++) {
+                timestamps[i] = times.get(i);
+            }
+            return timestamps;
+        }
+    }
+}
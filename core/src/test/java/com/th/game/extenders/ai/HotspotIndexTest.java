@@ -0,0 +1,121 @@
+package com.th.game.extenders.ai;
+
+import com.badlogic.gdx.utils.IntArray;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class HotspotIndexTest {
+    private static final float CELL_SIZE = 150f;
+    private static final int QUERIES = 2000;
+    /** From a point lookup to radii that cover the whole area and fall back to a scan. */
+    private static final float[] RADII = {0f, 10f, 149.5f, 150f, 400f, 1500f, 10000f};
+
+    @Test
+    public void matchesLinearScanOnRandomPoints() {
+        for (int count : new int[]{0, 1, 5, 100, 2000}) {
+            Random random = new Random(count);
+            HotspotIndex index = new HotspotIndex(CELL_SIZE);
+            for (int i = 0; i < count; i++) {
+                // Negative coordinates land in negative cells
+                index.add(coordinate(random), coordinate(random));
+            }
+            for (int q = 0; q < QUERIES; q++) {
+                float radius = RADII[random.nextInt(RADII.length)];
+                assertMatchesScan(index, coordinate(random), coordinate(random), radius);
+            }
+        }
+    }
+
+    /**
+     * Points placed on the search circle, using 3-4-5 triangles so the distances are
+     * exact: {@code within} and {@code nearest} include them, {@code anyWithin} does not.
+     */
+    @Test
+    public void pointsExactlyOnTheRadius() {
+        Random random = new Random(1L);
+        for (int q = 0; q < QUERIES; q++) {
+            HotspotIndex index = new HotspotIndex(CELL_SIZE);
+            float x = random.nextInt(4000) - 2000;
+            float y = random.nextInt(4000) - 2000;
+            int scale = 1 + random.nextInt(100);
+            float radius = 5 * scale;
+            index.add(x + 3 * scale, y - 4 * scale);
+            index.add(x - 4 * scale, y + 3 * scale);
+            // Some points well outside the circle
+            for (int i = 0; i < 10; i++) {
+                index.add(x + radius + 1 + random.nextInt(500), y - radius - 1 - random.nextInt(500));
+            }
+
+            String query = "radius " + radius + " around " + x + ", " + y;
+            assertFalse(query, index.anyWithin(x, y, radius));
+            IntArray out = new IntArray();
+            assertEquals(query, 2, index.within(x, y, radius, out));
+            assertEquals(query, radius * radius, distance2(index, index.nearest(x, y, radius), x, y), 0f);
+            assertMatchesScan(index, x, y, radius);
+        }
+    }
+
+    @Test
+    public void clearRemovesEveryPoint() {
+        HotspotIndex index = new HotspotIndex(CELL_SIZE);
+        index.add(10f, 10f);
+        index.add(-500f, 300f);
+        index.clear();
+        assertEquals(0, index.size());
+        assertFalse(index.anyWithin(10f, 10f, 1000f));
+        assertEquals(-1, index.nearest(10f, 10f, 1000f));
+        assertEquals(0, index.add(20f, 20f));
+        assertMatchesScan(index, 0f, 0f, 50f);
+    }
+
+    /**
+     * Runs all three queries and checks them against a scan over every point, using the
+     * same float arithmetic as the index.
+     */
+    private static void assertMatchesScan(HotspotIndex index, float x, float y, float radius) {
+        String query = "radius " + radius + " around " + x + ", " + y + ", " + index.size() + " points";
+        float radius2 = radius * radius;
+        boolean any = false;
+        IntArray expected = new IntArray();
+        float nearest2 = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < index.size(); i++) {
+            float d2 = distance2(index, i, x, y);
+            any |= d2 < radius2;
+            if (d2 <= radius2) {
+                expected.add(i);
+                nearest2 = Math.min(nearest2, d2);
+            }
+        }
+
+        assertEquals(query, any, index.anyWithin(x, y, radius));
+
+        IntArray actual = new IntArray();
+        assertEquals(query, expected.size, index.within(x, y, radius, actual));
+        actual.sort();
+        assertArrayEquals(query, expected.toArray(), actual.toArray());
+
+        int nearest = index.nearest(x, y, radius);
+        if (expected.size == 0) {
+            assertEquals(query, -1, nearest);
+        } else {
+            // Ties may return any of the closest points
+            assertEquals(query, nearest2, distance2(index, nearest, x, y), 0f);
+        }
+    }
+
+    private static float distance2(HotspotIndex index, int i, float x, float y) {
+        float dx = index.getX(i) - x;
+        float dy = index.getY(i) - y;
+        return dx * dx + dy * dy;
+    }
+
+    private static float coordinate(Random random) {
+        // Half of them on whole numbers, so points also share cell borders and positions
+        return random.nextBoolean() ? random.nextInt(4000) - 2000 : random.nextFloat() * 4000f - 2000f;
+    }
+}
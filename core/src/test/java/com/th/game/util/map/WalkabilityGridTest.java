@@ -0,0 +1,115 @@
+package com.th.game.util.map;
+
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.th.game.TestMaps;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WalkabilityGridTest {
+    /** Probes per sub-cell along each axis when measuring the approximation. */
+    private static final int PROBES = 4;
+
+    @Test
+    public void matchesReferenceAtEveryTileCentre() {
+        for (String path : TestMaps.bundledMapPaths()) {
+            TiledMap map = TestMaps.load(path);
+            WalkabilityGrid grid = new WalkabilityGrid(map);
+            for (int ty = 0; ty < grid.getHeight(); ty++) {
+                for (int tx = 0; tx < grid.getWidth(); tx++) {
+                    float x = tx * grid.getTileWidth() + grid.getTileWidth() / 2f;
+                    float y = ty * grid.getTileHeight() + grid.getTileHeight() / 2f;
+                    boolean expected = WalkabilityGrid.isWalkableReference(map, x, y);
+                    String tile = path + " tile " + tx + "," + ty;
+                    assertEquals(tile, expected, grid.isWalkable(x, y));
+                    assertEquals(tile, expected, grid.isTileWalkable(tx, ty));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void matchesReferenceAtEverySubCellCentre() {
+        for (String path : TestMaps.bundledMapPaths()) {
+            TiledMap map = TestMaps.load(path);
+            WalkabilityGrid grid = new WalkabilityGrid(map);
+            int subdivisions = grid.getSubdivisions();
+            for (int cy = 0; cy < grid.getHeight() * subdivisions; cy++) {
+                float y = centre(cy, subdivisions, grid.getTileHeight());
+                for (int cx = 0; cx < grid.getWidth() * subdivisions; cx++) {
+                    float x = centre(cx, subdivisions, grid.getTileWidth());
+                    assertEquals(path + " at " + x + "," + y,
+                        WalkabilityGrid.isWalkableReference(map, x, y), grid.isWalkable(x, y));
+                }
+            }
+        }
+    }
+
+    /**
+     * Between sub-cell centres the grid may differ from the reference, but only within
+     * one sub-cell of a collision shape edge: wherever the two disagree, the reference
+     * itself changes between the probe and its sub-cell centre.
+     */
+    @Test
+    public void differsFromReferenceOnlyNearCollisionEdges() {
+        for (String path : TestMaps.bundledMapPaths()) {
+            TiledMap map = TestMaps.load(path);
+            WalkabilityGrid grid = new WalkabilityGrid(map);
+            int subdivisions = grid.getSubdivisions();
+            float cellWidth = grid.getTileWidth() / (float) subdivisions;
+            float cellHeight = grid.getTileHeight() / (float) subdivisions;
+            int probes = 0;
+            int mismatches = 0;
+            for (int cy = 0; cy < grid.getHeight() * subdivisions; cy++) {
+                for (int cx = 0; cx < grid.getWidth() * subdivisions; cx++) {
+                    boolean atCentre = WalkabilityGrid.isWalkableReference(map,
+                        centre(cx, subdivisions, grid.getTileWidth()),
+                        centre(cy, subdivisions, grid.getTileHeight()));
+                    for (int py = 0; py < PROBES; py++) {
+                        for (int px = 0; px < PROBES; px++) {
+                            float x = (cx + (px + 0.5f) / PROBES) * cellWidth;
+                            float y = (cy + (py + 0.5f) / PROBES) * cellHeight;
+                            boolean expected = WalkabilityGrid.isWalkableReference(map, x, y);
+                            probes++;
+                            if (expected != grid.isWalkable(x, y)) {
+                                mismatches++;
+                                assertTrue(path + " at " + x + "," + y + " is not near a collision edge",
+                                    expected != atCentre);
+                            }
+                        }
+                    }
+                }
+            }
+            System.out.println(path + ": " + mismatches + " of " + probes
+                + " probes differ from the reference");
+            // Edge sub-cells are a thin band (about 3% of map1); a large share would mean whole areas are wrong
+            assertTrue(path + ": " + mismatches + " of " + probes, mismatches < probes / 10);
+        }
+    }
+
+    @Test
+    public void treatsPositionsOutsideTheMapAsBlocked() {
+        for (String path : TestMaps.bundledMapPaths()) {
+            TiledMap map = TestMaps.load(path);
+            WalkabilityGrid grid = new WalkabilityGrid(map);
+            float width = grid.getWidth() * grid.getTileWidth();
+            float height = grid.getHeight() * grid.getTileHeight();
+            assertFalse(grid.isWalkable(-1f, 10f));
+            assertFalse(grid.isWalkable(10f, -1f));
+            assertFalse(grid.isWalkable(width, 10f));
+            assertFalse(grid.isWalkable(10f, height));
+            assertFalse(WalkabilityGrid.isWalkableReference(map, width, 10f));
+        }
+    }
+
+    /**
+     * Same arithmetic as the grid's own sample points, so the centres match bit for bit.
+     */
+    private static float centre(int cell, int subdivisions, int tileSize) {
+        int tile = cell / subdivisions;
+        int sub = cell - tile * subdivisions;
+        return tile * tileSize + (2 * sub + 1) * tileSize / (2f * subdivisions);
+    }
+}